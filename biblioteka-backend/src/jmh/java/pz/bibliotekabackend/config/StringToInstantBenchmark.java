@@ -0,0 +1,27 @@
+package pz.bibliotekabackend.config;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/** Čitanje datuma sačuvanih kao string, po formatu (prepoznavanje formata pa jedan prolaz, DateStrings). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class StringToInstantBenchmark {
+
+    @Param({
+            "2025-08-16T15:41:37Z",
+            "2025-08-16T15:41:37.123+02:00",
+            "Sat Aug 16 17:41:37 CEST 2025"
+    })
+    public String source;
+
+    private final MongoConfig.StringToInstantConverter converter = new MongoConfig.StringToInstantConverter();
+
+    @Benchmark
+    public Instant convert() {
+        return converter.convert(source);
+    }
+}
@@ -0,0 +1,56 @@
+package pz.bibliotekabackend.controller;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import pz.bibliotekabackend.model.Book;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** GET /books: spajanje id parametara (favoriti) i headeri strane (Link, Content-Range...). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class BookPagingBenchmark {
+
+    private List<String> favoritesBracket;
+    private String idsCsv;
+    private PageImpl<Book> page;
+    private final Instant lastModified = Instant.parse("2025-08-16T15:41:37Z");
+
+    @Setup
+    public void setup() {
+        favoritesBracket = new ArrayList<>();
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 24; i++) {
+            String id = String.format("66bf%020x", i);
+            if (i < 12) favoritesBracket.add(id);
+            csv.append(i == 0 ? "" : ", ").append(id); // polovina se preklapa sa favorites[]
+        }
+        idsCsv = csv.toString();
+
+        List<Book> content = new ArrayList<>();
+        for (int i = 0; i < 12; i++) content.add(new Book());
+        page = new PageImpl<>(content, PageRequest.of(4, 12), 10_000);
+    }
+
+    @Benchmark
+    public Object mergeIds() {
+        return BookPaging.ids(null, null, null, favoritesBracket, idsCsv, null);
+    }
+
+    @Benchmark
+    public HttpHeaders pageHeaders() {
+        return BookPaging.pageHeaders(page, 5, 12, "title", "asc", "W/\"c1723822897000-0123456789abcdef\"", lastModified);
+    }
+
+    @Benchmark
+    public void nextLink(Blackhole bh) {
+        bh.consume(BookPaging.nextLink(12, "66bf00000000000000000001", "Y3JlYXRlZEF0AEFTQwAxNzIzODIyODk3MDAwADY2YmY"));
+    }
+}
@@ -0,0 +1,44 @@
+package pz.bibliotekabackend.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.openjdk.jmh.annotations.*;
+import pz.bibliotekabackend.model.User;
+
+import java.util.concurrent.TimeUnit;
+
+/** Izdavanje tokena (login) i provera na svakom zahtevu: pun parse naspram keša verifikovanih claims-a. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class JwtServiceBenchmark {
+
+    private JwtService jwt;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwt = new JwtService("change-me-please-change-me-please-32b", 3_600_000, 10_000);
+        user = new User();
+        user.setId("66bf00000000000000000001");
+        user.setEmail("citalac@biblioteka.rs");
+        user.setRole("user");
+        token = jwt.generate(user);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwt.generate(user);
+    }
+
+    @Benchmark
+    public Jws<Claims> parse() {
+        return jwt.parse(token);
+    }
+
+    @Benchmark
+    public Claims claimsCached() {
+        return jwt.claims(token);
+    }
+}
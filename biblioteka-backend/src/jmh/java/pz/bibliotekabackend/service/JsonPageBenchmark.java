@@ -0,0 +1,77 @@
+package pz.bibliotekabackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.Order;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serijalizacija strana knjiga i porudžbina kao u aplikaciji: Boot-ov ObjectMapper sa podrazumevanim
+ * "fields" filterom (JacksonConfig), pun dokument i ?fields= projekcija.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class JsonPageBenchmark {
+
+    @Param({"12", "100"})
+    public int size;
+
+    private List<Book> books;
+    private List<Order> orders;
+    private ObjectWriter writer;
+    private ObjectWriter bookFields;
+
+    @Setup
+    public void setup() {
+        ObjectMapper om = Jackson2ObjectMapperBuilder.json()
+                .filters(new SimpleFilterProvider().setFailOnUnknownId(false))
+                .build();
+        writer = om.writer();
+        bookFields = om.writer(Projection.forBook("title,author,year,image").filters());
+
+        Instant t = Instant.parse("2025-08-16T15:41:37Z");
+        books = new ArrayList<>(size);
+        orders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Book b = new Book();
+            b.setId(String.format("66bf%020x", i));
+            b.setTitle("Na Drini ćuprija " + i);
+            b.setAuthor("Ivo Andrić");
+            b.setYear("1945");
+            b.setImage("/covers/" + i + ".jpg");
+            b.setDescription("Hronika višegradskog mosta kroz četiri veka.");
+            b.setCreatedAt(t.plusSeconds(i));
+            b.setUpdatedAt(t.plusSeconds(i));
+            books.add(b);
+
+            Order o = OrderService.newOrder("66bf00000000000000000001", b, t.plusSeconds(i), false);
+            o.setId(String.format("77cf%020x", i));
+            o.setDisplayBook(Order.DisplayBook.from(o.getBookSnapshot()));
+            orders.add(o);
+        }
+    }
+
+    @Benchmark
+    public byte[] books() throws Exception {
+        return writer.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public byte[] booksProjected() throws Exception {
+        return bookFields.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public byte[] orders() throws Exception {
+        return writer.writeValueAsBytes(orders);
+    }
+}
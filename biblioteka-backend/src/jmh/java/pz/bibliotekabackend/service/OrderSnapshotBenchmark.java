@@ -0,0 +1,45 @@
+package pz.bibliotekabackend.service;
+
+import org.openjdk.jmh.annotations.*;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.BookSnapshot;
+import pz.bibliotekabackend.model.Order;
+
+import java.util.concurrent.TimeUnit;
+
+/** Snapshot knjige pri zaduženju i displayBook pri svakoj hidraciji porudžbine. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class OrderSnapshotBenchmark {
+
+    private Book book;
+    private BookSnapshot snapshot;
+
+    @Setup
+    public void setup() {
+        book = new Book();
+        book.setId("66bf0000000000000000002a");
+        book.setTitle("Na Drini ćuprija");
+        book.setAuthor("Ivo Andrić");
+        book.setYear("1945");
+        book.setImage("/covers/na-drini-cuprija.jpg");
+        book.setDescription("Hronika višegradskog mosta kroz četiri veka.");
+        snapshot = OrderService.snapshotOf(book);
+    }
+
+    @Benchmark
+    public BookSnapshot snapshotOf() {
+        return OrderService.snapshotOf(book);
+    }
+
+    @Benchmark
+    public Order.DisplayBook displayBookFrom() {
+        return Order.DisplayBook.from(snapshot);
+    }
+
+    @Benchmark
+    public Order.DisplayBook snapshotThenDisplay() {
+        return Order.DisplayBook.from(OrderService.snapshotOf(book));
+    }
+}
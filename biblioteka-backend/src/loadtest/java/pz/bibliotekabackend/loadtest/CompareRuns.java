@@ -0,0 +1,90 @@
+package pz.bibliotekabackend.loadtest;
+
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Poređenje dva pokretanja (npr. dva build-a) iz njihovih .hlog fajlova:
+ *
+ *   compare loadtest-results/pre loadtest-results/posle [--metric=service] [--max-regression=10]
+ *
+ * Za svaki endpoint ispisuje percentile i promenu u procentima. Sa --max-regression izlazni kod
+ * je 1 ako p99 bilo kog endpoint-a poraste više od zadatog procenta (za CI).
+ */
+final class CompareRuns {
+
+    private CompareRuns() {}
+
+    static int run(String[] args) throws IOException {
+        List<Path> dirs = new ArrayList<>();
+        String metric = LatencyStats.RESPONSE;
+        double maxRegression = Double.NaN;
+        for (String a : args) {
+            if (a.startsWith("--metric=")) metric = a.substring(9);
+            else if (a.startsWith("--max-regression=")) maxRegression = Double.parseDouble(a.substring(17));
+            else dirs.add(Path.of(a));
+        }
+        if (dirs.size() != 2) throw new IllegalArgumentException("compare <bazni dir> <novi dir> [--metric=] [--max-regression=]");
+        Path base = dirs.get(0), candidate = dirs.get(1);
+
+        List<Path> logs;
+        try (Stream<Path> s = Files.list(base)) {
+            logs = s.filter(p -> p.getFileName().toString().endsWith(".hlog")).sorted().toList();
+        }
+
+        System.out.printf("%s: %s -> %s%n", metric, base, candidate);
+        System.out.printf(Locale.ROOT, "%-10s %-6s %12s %12s %9s%n", "endpoint", "", "bazno ms", "novo ms", "promena");
+        boolean regressed = false;
+        for (Path log : logs) {
+            String name = log.getFileName().toString().replace(".hlog", "");
+            Path other = candidate.resolve(log.getFileName());
+            if (!Files.exists(other)) continue;
+            Histogram a = read(log, metric), b = read(other, metric);
+            if (a.getTotalCount() == 0 || b.getTotalCount() == 0) continue;
+
+            for (double p : LatencyStats.PERCENTILES) {
+                regressed |= row(name, "p" + trim(p), a.getValueAtPercentile(p), b.getValueAtPercentile(p),
+                        p == 99 ? maxRegression : Double.NaN);
+            }
+            row(name, "max", a.getMaxValue(), b.getMaxValue(), Double.NaN);
+        }
+        return regressed ? 1 : 0;
+    }
+
+    /** Zbir svih intervala sa datim tagom. */
+    static Histogram read(Path file, String tag) throws IOException {
+        Histogram total = new Histogram(3);
+        HistogramLogReader reader = new HistogramLogReader(file.toFile());
+        try {
+            EncodableHistogram h;
+            while ((h = reader.nextIntervalHistogram()) != null) {
+                if (h instanceof Histogram hist && tag.equals(hist.getTag())) total.add(hist);
+            }
+        } finally {
+            reader.close();
+        }
+        return total;
+    }
+
+    // true ako je promena veća od dozvoljene regresije
+    private static boolean row(String name, String label, long before, long after, double maxRegression) {
+        double change = before == 0 ? 0 : (after - before) * 100.0 / before;
+        boolean over = !Double.isNaN(maxRegression) && change > maxRegression;
+        System.out.printf(Locale.ROOT, "%-10s %-6s %12s %12s %+8.1f%%%s%n", name, label,
+                LatencyStats.ms(before), LatencyStats.ms(after), change, over ? "  <- regresija" : "");
+        return over;
+    }
+
+    private static String trim(double p) {
+        return p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p);
+    }
+}
@@ -0,0 +1,155 @@
+package pz.bibliotekabackend.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HdrHistogram po endpoint-u, u nanosekundama. Dve mere po zahtevu:
+ * - response: od planiranog trenutka slanja do odgovora (ispravka za coordinated omission),
+ * - service: od stvarnog slanja do odgovora (ono što bi izmerio naivan klijent).
+ * Intervalni histogrami idu u {endpoint}.hlog (HistogramLogWriter, tagovi "response"/"service"),
+ * ukupni u {endpoint}.hgrm i summary.csv – to su fajlovi koji se porede između build-ova.
+ */
+final class LatencyStats {
+
+    static final String RESPONSE = "response";
+    static final String SERVICE = "service";
+    static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private static final int DIGITS = 3;
+
+    private static final class Endpoint {
+        final String name;
+        final Recorder response = new Recorder(DIGITS);
+        final Recorder service = new Recorder(DIGITS);
+        final Histogram totalResponse = new Histogram(DIGITS);
+        final Histogram totalService = new Histogram(DIGITS);
+        final LongAdder errors = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        HistogramLogWriter log;
+
+        Endpoint(String name) { this.name = name; }
+    }
+
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private final long expectedIntervalNanos;
+
+    /**
+     * @param expectedIntervalNanos za zatvorenu petlju: očekivani razmak između zahteva jednog
+     *                              klijenta; duži odgovori se dopunjuju izostalim uzorcima
+     *                              (recordValueWithExpectedInterval). 0 = bez dopune.
+     */
+    LatencyStats(List<String> names, long expectedIntervalNanos) {
+        names.forEach(n -> endpoints.put(n, new Endpoint(n)));
+        this.expectedIntervalNanos = expectedIntervalNanos;
+    }
+
+    void record(Workload.Outcome outcome, long intendedNanos, long sentNanos, long endNanos) {
+        Endpoint e = endpoints.get(outcome.endpoint());
+        long response = endNanos - intendedNanos;
+        if (expectedIntervalNanos > 0) e.response.recordValueWithExpectedInterval(response, expectedIntervalNanos);
+        else e.response.recordValue(response);
+        e.service.recordValue(endNanos - sentNanos);
+
+        int status = outcome.status();
+        if (status < 0 || status >= 500) e.errors.increment();
+        else if (status >= 400) e.rejected.increment(); // 401/409: očekivano uz konkurentna zaduživanja
+    }
+
+    /** Početak merenja (posle zagrevanja): sve do sada snimljeno se odbacuje, brojači kreću od nule. */
+    void reset() {
+        for (Endpoint e : endpoints.values()) {
+            e.response.getIntervalHistogram();
+            e.service.getIntervalHistogram();
+            e.errors.reset();
+            e.rejected.reset();
+        }
+    }
+
+    void open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        long startedMs = System.currentTimeMillis();
+        for (Endpoint e : endpoints.values()) {
+            e.log = new HistogramLogWriter(dir.resolve(e.name + ".hlog").toFile());
+            e.log.outputLogFormatVersion();
+            e.log.outputComment("endpoint " + e.name + ", vrednosti u ns");
+            e.log.outputStartTime(startedMs);
+            e.log.setBaseTime(startedMs);
+            e.log.outputLegend();
+        }
+    }
+
+    /** Poziva se periodično iz jedne niti (i jednom na kraju): upisuje interval i dodaje u ukupno. */
+    void flushInterval() {
+        for (Endpoint e : endpoints.values()) {
+            write(e, e.response.getIntervalHistogram(), RESPONSE, e.totalResponse);
+            write(e, e.service.getIntervalHistogram(), SERVICE, e.totalService);
+        }
+    }
+
+    private static void write(Endpoint e, Histogram interval, String tag, Histogram total) {
+        total.add(interval);
+        if (interval.getTotalCount() == 0) return;
+        interval.setTag(tag);
+        e.log.outputIntervalHistogram(interval);
+    }
+
+    /** Zatvara .hlog, piše {endpoint}.hgrm i summary.csv; vraća tabelu za konzolu. */
+    String close(Path dir, double seconds) throws IOException {
+        StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+                "%-10s %9s %8s %8s %8s %9s %9s %9s %9s %9s %11s%n", "endpoint", "count", "req/s", "errors",
+                "4xx", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms"));
+        try (PrintWriter csv = new PrintWriter(dir.resolve("summary.csv").toFile(), StandardCharsets.UTF_8)) {
+            csv.println("endpoint,metric,count,errors,rejected,rps,p50_ms,p90_ms,p99_ms,p99_9_ms,max_ms");
+            for (Endpoint e : endpoints.values()) {
+                e.log.close();
+                hgrm(dir.resolve(e.name + ".hgrm"), e.totalResponse);
+                csvRow(csv, e, RESPONSE, e.totalResponse, seconds);
+                csvRow(csv, e, SERVICE, e.totalService, seconds);
+                Histogram r = e.totalResponse;
+                long count = e.totalService.getTotalCount();
+                if (count == 0) continue;
+                table.append(String.format(Locale.ROOT, "%-10s %9d %8.1f %8d %8d %9s %9s %9s %9s %9s %11s%n",
+                        e.name, count, count / seconds, e.errors.sum(), e.rejected.sum(),
+                        ms(r, 50), ms(r, 90), ms(r, 99), ms(r, 99.9), ms(r.getMaxValue()), ms(e.totalService, 99)));
+            }
+        }
+        return table.toString();
+    }
+
+    // broj i protok uvek iz service histograma: response sadrži i dopunjene uzorke
+    private static void csvRow(PrintWriter csv, Endpoint e, String metric, Histogram h, double seconds) {
+        long count = e.totalService.getTotalCount();
+        csv.printf(Locale.ROOT, "%s,%s,%d,%d,%d,%.1f,%s,%s,%s,%s,%s%n", e.name, metric,
+                count, e.errors.sum(), e.rejected.sum(), count / seconds,
+                ms(h, 50), ms(h, 90), ms(h, 99), ms(h, 99.9), ms(h.getMaxValue()));
+    }
+
+    private static void hgrm(Path file, Histogram h) throws IOException {
+        try (PrintStream out = new PrintStream(file.toFile(), StandardCharsets.UTF_8)) {
+            // isti format kao wrk2 / HdrHistogram plotter, skala u milisekundama
+            h.outputPercentileDistribution(out, 5, 1_000_000.0);
+        }
+    }
+
+    static String ms(Histogram h, double percentile) {
+        return h.getTotalCount() == 0 ? "" : ms(h.getValueAtPercentile(percentile));
+    }
+
+    static String ms(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
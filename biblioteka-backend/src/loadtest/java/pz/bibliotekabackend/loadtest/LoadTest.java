@@ -0,0 +1,187 @@
+package pz.bibliotekabackend.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generator opterećenja za pokrenut backend (nad lokalnim mongod-om), npr:
+ *
+ *   java -jar target/biblioteka-backend-*.jar
+ *   mvn -Ploadtest verify -Dloadtest.args="--mode=open --rate=300 --seconds=60 --label=pre"
+ *   mvn -Ploadtest verify -Dloadtest.args="compare loadtest-results/pre loadtest-results/posle"
+ *
+ * Dva modela:
+ * - closed: --concurrency klijenata, svaki šalje sledeći zahtev kad dobije odgovor (+ --think-ms).
+ *   Protok zavisi od servera, pa spor odgovor "sakrije" zahteve koji nisu poslati; uz
+ *   --expected-interval-ms se ti izostali uzorci dopunjuju (recordValueWithExpectedInterval).
+ * - open: stalna stopa dolazaka --rate req/s, nezavisno od odgovora; kašnjenje se meri od
+ *   planiranog trenutka slanja, pa čekanje u redu klijenta ulazi u rezultat (coordinated omission).
+ *   --concurrency je ovde gornja granica zahteva u letu.
+ *
+ * Rezultati po endpoint-u idu u {out}/{label}/ (.hlog, .hgrm, summary.csv, run.properties).
+ */
+public final class LoadTest {
+
+    private LoadTest() {}
+
+    record Options(String base, String mode, int concurrency, double rate, int seconds, int warmup,
+                   String mix, int users, String password, long thinkMs, long expectedIntervalMs,
+                   long seed, int intervalSeconds, Path out, String label, boolean cleanup) {
+
+        static Options parse(String[] args) {
+            Map<String, String> m = new LinkedHashMap<>();
+            for (String a : args) {
+                if (a.equals("--no-cleanup")) m.put("cleanup", "false");
+                else if (a.startsWith("--") && a.contains("=")) m.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+                else throw new IllegalArgumentException("Nepoznat argument: " + a);
+            }
+            Options o = new Options(
+                    m.getOrDefault("base", "http://localhost:4000/api"),
+                    m.getOrDefault("mode", "closed"),
+                    Integer.parseInt(m.getOrDefault("concurrency", "50")),
+                    Double.parseDouble(m.getOrDefault("rate", "200")),
+                    Integer.parseInt(m.getOrDefault("seconds", "60")),
+                    Integer.parseInt(m.getOrDefault("warmup", "10")),
+                    m.getOrDefault("mix", "browse:35,search:15,favorites:10,order:10,return:10,auth-me:15,login:5"),
+                    Integer.parseInt(m.getOrDefault("users", "20")),
+                    m.getOrDefault("password", "loadtest-123"),
+                    Long.parseLong(m.getOrDefault("think-ms", "0")),
+                    Long.parseLong(m.getOrDefault("expected-interval-ms", "0")),
+                    Long.parseLong(m.getOrDefault("seed", "42")),
+                    Integer.parseInt(m.getOrDefault("interval", "1")),
+                    Path.of(m.getOrDefault("out", "loadtest-results")),
+                    m.getOrDefault("label", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"))),
+                    Boolean.parseBoolean(m.getOrDefault("cleanup", "true")));
+            if (!o.mode.equals("closed") && !o.mode.equals("open")) {
+                throw new IllegalArgumentException("--mode mora biti closed ili open");
+            }
+            if (o.concurrency < 1 || o.seconds < 1 || (o.open() && o.rate <= 0)) {
+                throw new IllegalArgumentException("--concurrency, --seconds i --rate (open) moraju biti pozitivni");
+            }
+            return o;
+        }
+
+        boolean open() { return mode.equals("open"); }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("compare")) {
+            System.exit(CompareRuns.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        Options o = Options.parse(args);
+
+        Workload workload = new Workload(o.base(), Workload.parseMix(o.mix()), o.password());
+        workload.setup(o.users());
+        // dopuna izostalih uzoraka ima smisla samo u zatvorenoj petlji; otvorena meri od planiranog trenutka
+        long expected = o.open() ? 0 : TimeUnit.MILLISECONDS.toNanos(o.expectedIntervalMs());
+        LatencyStats stats = new LatencyStats(Workload.endpoints(), expected);
+
+        if (o.warmup() > 0) {
+            System.out.printf("Zagrevanje %ds...%n", o.warmup());
+            drive(o, workload, stats, o.warmup(), o.seed() - 1);
+        }
+
+        Path dir = o.out().resolve(o.label());
+        stats.open(dir);
+        stats.reset();
+        writeRunInfo(dir, o, args);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "loadtest-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(stats::flushInterval, o.intervalSeconds(), o.intervalSeconds(), TimeUnit.SECONDS);
+
+        System.out.printf("Merenje %ds, %s%n", o.seconds(), o.open()
+                ? String.format(Locale.ROOT, "open %.1f req/s, najviše %d u letu", o.rate(), o.concurrency())
+                : "closed " + o.concurrency() + " klijenata");
+        long started = System.nanoTime();
+        drive(o, workload, stats, o.seconds(), o.seed());
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        reporter.shutdown();
+        reporter.awaitTermination(10, TimeUnit.SECONDS);
+        stats.flushInterval();
+        String table = stats.close(dir, elapsed);
+
+        if (o.cleanup()) System.out.printf("Vraćeno otvorenih porudžbina: %d%n", workload.cleanup());
+        System.out.printf("%n%s  (%s)%n%s", dir, o.mode(), table);
+    }
+
+    static void drive(Options o, Workload w, LatencyStats stats, int seconds, long seed) throws InterruptedException {
+        if (o.open()) openLoop(o, w, stats, seconds, seed);
+        else closedLoop(o, w, stats, seconds, seed);
+    }
+
+    static void closedLoop(Options o, Workload w, LatencyStats stats, int seconds, long seed) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(o.concurrency());
+        for (int c = 0; c < o.concurrency(); c++) {
+            SplittableRandom rnd = new SplittableRandom(seed * 31 + c);
+            Thread th = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long t0 = System.nanoTime();
+                        Workload.Outcome out = w.call(w.pick(rnd), rnd);
+                        stats.record(out, t0, t0, System.nanoTime());
+                        if (o.thinkMs() > 0) Thread.sleep(o.thinkMs());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "loadtest-" + c);
+            th.setDaemon(true);
+            th.start();
+        }
+        done.await();
+    }
+
+    static void openLoop(Options o, Workload w, LatencyStats stats, int seconds, long seed) throws InterruptedException {
+        // red ispred radnika je neograničen: zahtev koji čeka na slobodnog radnika i dalje se meri od planiranog trenutka
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(o.concurrency(), o.concurrency(), 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "loadtest-worker");
+                    t.setDaemon(true);
+                    return t;
+                });
+        SplittableRandom rnd = new SplittableRandom(seed);
+        long periodNanos = (long) (1e9 / o.rate());
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (long i = 0; ; i++) {
+            long intended = start + i * periodNanos;
+            if (intended >= end) break;
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+
+            Workload.Op op = w.pick(rnd);
+            SplittableRandom taskRnd = rnd.split();
+            workers.execute(() -> {
+                long sent = System.nanoTime();
+                Workload.Outcome out = w.call(op, taskRnd);
+                stats.record(out, intended, sent, System.nanoTime());
+            });
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(60, TimeUnit.SECONDS)) workers.shutdownNow();
+    }
+
+    private static void writeRunInfo(Path dir, Options o, String[] args) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("args=" + String.join(" ", args));
+        lines.add("options=" + o);
+        lines.add("java=" + System.getProperty("java.version"));
+        lines.add("cpus=" + Runtime.getRuntime().availableProcessors());
+        Files.write(dir.resolve("run.properties"), lines, StandardCharsets.UTF_8);
+    }
+}
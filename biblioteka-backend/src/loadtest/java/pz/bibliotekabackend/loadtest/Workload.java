@@ -0,0 +1,220 @@
+package pz.bibliotekabackend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Mešavina zahteva nad živim backend-om: katalog (strane, pretraga, omiljene), zaduživanje i
+ * vraćanje knjiga, /auth/login i /auth/me. Pre merenja se pripreme test korisnici (register ili
+ * login), uzorak id-jeva i reči za pretragu; posle merenja se vraćaju sve otvorene porudžbine
+ * da sledeće pokretanje krene od istog stanja kataloga.
+ */
+final class Workload {
+
+    enum Op {
+        BROWSE("browse"), SEARCH("search"), FAVORITES("favorites"),
+        ORDER("order"), RETURN("return"), ME("auth-me"), LOGIN("login");
+
+        final String endpoint;
+
+        Op(String endpoint) { this.endpoint = endpoint; }
+
+        static Op of(String endpoint) {
+            for (Op op : values()) if (op.endpoint.equals(endpoint)) return op;
+            throw new IllegalArgumentException("Nepoznat endpoint u mešavini: " + endpoint);
+        }
+    }
+
+    /** Ishod jednog zahteva; status -1 = greška transporta (timeout, odbijena konekcija). */
+    record Outcome(String endpoint, int status) {}
+
+    private record User(String email, String token) {}
+
+    private record OpenOrder(int user, String id) {}
+
+    static final int PAGE_SIZE = 20;
+    private static final int SAMPLE = 200;
+
+    private final HttpClient client;
+    private final String base;
+    private final String password;
+    private final ObjectMapper om = new ObjectMapper();
+
+    private final Op[] ops;
+    private final int[] cumulative;
+    private final int totalWeight;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<String> bookIds = new ArrayList<>();
+    private final List<String> terms = new ArrayList<>();
+    private int pages = 1;
+    private final Queue<OpenOrder> openOrders = new ConcurrentLinkedQueue<>();
+
+    Workload(String base, Map<Op, Integer> mix, String password) {
+        this.base = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+        this.password = password;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.ops = mix.keySet().toArray(Op[]::new);
+        this.cumulative = new int[ops.length];
+        int sum = 0;
+        for (int i = 0; i < ops.length; i++) {
+            sum += mix.get(ops[i]);
+            cumulative[i] = sum;
+        }
+        if (sum <= 0) throw new IllegalArgumentException("Mešavina mora imati bar jednu pozitivnu težinu");
+        this.totalWeight = sum;
+    }
+
+    /** Endpoint-i koji se mere (redosled za izveštaj). */
+    static List<String> endpoints() {
+        return Arrays.stream(Op.values()).map(op -> op.endpoint).toList();
+    }
+
+    /** "browse:35,search:15,..." -> težine po operaciji. */
+    static Map<Op, Integer> parseMix(String csv) {
+        Map<Op, Integer> mix = new EnumMap<>(Op.class);
+        for (String part : csv.split(",")) {
+            String t = part.trim();
+            if (t.isEmpty()) continue;
+            int colon = t.indexOf(':');
+            if (colon < 0) throw new IllegalArgumentException("Očekivano endpoint:težina, dobijeno: " + t);
+            int weight = Integer.parseInt(t.substring(colon + 1).trim());
+            if (weight > 0) mix.put(Op.of(t.substring(0, colon).trim()), weight);
+        }
+        return mix;
+    }
+
+    void setup(int userCount) throws Exception {
+        for (int i = 0; i < userCount; i++) {
+            String email = "loadtest" + i + "@example.com";
+            String body = om.writeValueAsString(Map.of("name", "Load Test " + i, "email", email, "password", password));
+            HttpResponse<String> res = client.send(post("/auth/register", body, null), HttpResponse.BodyHandlers.ofString());
+            if (res.statusCode() == 409) {
+                res = client.send(post("/auth/login", loginBody(email), null), HttpResponse.BodyHandlers.ofString());
+            }
+            if (res.statusCode() != 200) {
+                throw new IllegalStateException("Priprema korisnika " + email + " nije uspela: HTTP " + res.statusCode());
+            }
+            users.add(new User(email, om.readTree(res.body()).path("data").path("token").asText()));
+        }
+
+        HttpResponse<String> res = client.send(get("/books?page=1&limit=" + SAMPLE + "&fields=title", null),
+                HttpResponse.BodyHandlers.ofString());
+        if (res.statusCode() != 200) throw new IllegalStateException("GET /books: HTTP " + res.statusCode());
+        for (JsonNode b : om.readTree(res.body())) {
+            bookIds.add(b.path("id").asText());
+            String[] words = b.path("title").asText("").split("\\s+");
+            if (words.length > 0 && words[0].length() >= 3) terms.add(words[0]);
+        }
+        if (bookIds.isEmpty()) throw new IllegalStateException("Katalog je prazan, nema šta da se opterećuje");
+        if (terms.isEmpty()) terms.add("a");
+        long total = res.headers().firstValueAsLong("X-Total-Count").orElse(bookIds.size());
+        pages = (int) Math.max(1, Math.ceil(total / (double) PAGE_SIZE));
+    }
+
+    /** Vraća knjige iz porudžbina koje su ostale otvorene posle merenja. */
+    int cleanup() {
+        int returned = 0;
+        OpenOrder o;
+        while ((o = openOrders.poll()) != null) {
+            try {
+                HttpResponse<Void> res = client.send(patch("/orders/" + o.id() + "/return", users.get(o.user()).token()),
+                        HttpResponse.BodyHandlers.discarding());
+                if (res.statusCode() == 200) returned++;
+            } catch (Exception ignored) {
+                // backend nedostupan: porudžbina ostaje otvorena, vidi se u bazi
+            }
+        }
+        return returned;
+    }
+
+    Op pick(SplittableRandom rnd) {
+        int r = rnd.nextInt(totalWeight);
+        for (int i = 0; i < ops.length; i++) if (r < cumulative[i]) return ops[i];
+        return ops[ops.length - 1];
+    }
+
+    Outcome call(Op op, SplittableRandom rnd) {
+        // vraćanje bez otvorene porudžbine -> zaduživanje, da mešavina ne izgubi upis
+        OpenOrder open = op == Op.RETURN ? openOrders.poll() : null;
+        if (op == Op.RETURN && open == null) op = Op.ORDER;
+
+        int u = rnd.nextInt(users.size());
+        try {
+            return switch (op) {
+                case BROWSE -> send(op, get("/books?page=" + (1 + rnd.nextInt(pages)) + "&limit=" + PAGE_SIZE, null));
+                case SEARCH -> send(op, get("/books?q=" + encode(terms.get(rnd.nextInt(terms.size())))
+                        + "&limit=" + PAGE_SIZE, null));
+                case FAVORITES -> send(op, get("/books?ids=" + String.join(",", sample(rnd, 1 + rnd.nextInt(12))), null));
+                case ME -> send(op, get("/auth/me", users.get(u).token()));
+                case LOGIN -> send(op, post("/auth/login", loginBody(users.get(u).email()), null));
+                case ORDER -> order(u, rnd);
+                case RETURN -> send(op, patch("/orders/" + open.id() + "/return", users.get(open.user()).token()));
+            };
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            return new Outcome(op.endpoint, -1);
+        }
+    }
+
+    private Outcome order(int u, SplittableRandom rnd) throws Exception {
+        String bookId = bookIds.get(rnd.nextInt(bookIds.size()));
+        String body = om.writeValueAsString(Map.of("bookId", bookId));
+        HttpResponse<String> res = client.send(post("/orders", body, users.get(u).token()),
+                HttpResponse.BodyHandlers.ofString());
+        if (res.statusCode() == 201) {
+            openOrders.add(new OpenOrder(u, om.readTree(res.body()).path("id").asText()));
+        }
+        return new Outcome(Op.ORDER.endpoint, res.statusCode());
+    }
+
+    private Outcome send(Op op, HttpRequest request) throws Exception {
+        return new Outcome(op.endpoint, client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+
+    private List<String> sample(SplittableRandom rnd, int n) {
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(bookIds.get(rnd.nextInt(bookIds.size())));
+        return out;
+    }
+
+    private String loginBody(String email) throws Exception {
+        return om.writeValueAsString(Map.of("email", email, "password", password));
+    }
+
+    private HttpRequest get(String path, String token) {
+        return builder(path, token).GET().build();
+    }
+
+    private HttpRequest post(String path, String json, String token) {
+        return builder(path, token).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build();
+    }
+
+    private HttpRequest patch(String path, String token) {
+        return builder(path, token).method("PATCH", HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private HttpRequest.Builder builder(String path, String token) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(30));
+        if (token != null) b.header("Authorization", "Bearer " + token);
+        return b;
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+}
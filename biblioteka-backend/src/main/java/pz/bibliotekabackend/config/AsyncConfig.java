@@ -0,0 +1,45 @@
+package pz.bibliotekabackend.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Strimovani odgovori (StreamingResponseBody: izvoz, NDJSON liste) rade na posebnom, ograničenom
+ * pool-u. Request thread se odmah vraća Tomcat-u, a kad su svi "stream" thread-ovi i red puni,
+ * novi izvoz dobija 503 umesto da zauzima thread-ove interaktivnog saobraćaja.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Configuration
+@RequiredArgsConstructor
+public class AsyncConfig implements WebMvcConfigurer {
+
+    private final VirtualThreads virtualThreads;
+
+    @Value("${app.stream.threads:4}")
+    private int threads;
+
+    @Value("${app.stream.queue:16}")
+    private int queue;
+
+    @Value("${app.stream.timeout:30m}")
+    private Duration timeout;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("stream-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        virtualThreads.apply(executor, "stream-").initialize();
+        configurer.setTaskExecutor(executor);
+        configurer.setDefaultTimeout(timeout.toMillis());
+    }
+}
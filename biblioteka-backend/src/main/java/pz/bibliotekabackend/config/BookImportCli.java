@@ -0,0 +1,66 @@
+package pz.bibliotekabackend.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import pz.bibliotekabackend.service.BookImport;
+import pz.bibliotekabackend.service.CatalogSync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * CLI uvoz bez HTTP-a:
+ * java -jar biblioteka-backend.jar --app.import.file=knjige.csv[.gz] --spring.main.web-application-type=none
+ * Format se određuje po ekstenziji (ili --app.import.format=csv|ndjson); izlazni kod je 1 ako ima grešaka
+ * ili ako uvoz nije objavljen ostalim instancama (CatalogSync).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty("app.import.file")
+public class BookImportCli implements ApplicationRunner {
+
+    private final BookImport bookImport;
+    private final CatalogSync catalogSync;
+    private final ConfigurableApplicationContext ctx;
+
+    @Value("${app.import.file}")
+    private String file;
+
+    @Value("${app.import.format:}")
+    private String format;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        int code = importFile(Path.of(file));
+        System.exit(SpringApplication.exit(ctx, () -> code));
+    }
+
+    int importFile(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        var fmt = BookImport.Format.detect(format, name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name);
+
+        BookImport.Report report;
+        try (InputStream raw = Files.newInputStream(path);
+             InputStream in = name.endsWith(".gz") ? new GZIPInputStream(raw, 1 << 16) : raw) {
+            report = bookImport.run(in, fmt, null);
+        }
+        report.errors().forEach(e -> log.warn("Red {}: {}", e.row(), e.message()));
+        // pre izlaska: @Scheduled provera se više neće izvršiti, a ostale instance moraju da vide uvoz
+        if (!catalogSync.flush()) {
+            log.warn("Uvoz nije objavljen ostalim instancama (deljeno stanje kataloga nije dostupno)");
+            return 1;
+        }
+        return report.failed() == 0 ? 0 : 1;
+    }
+}
@@ -1,5 +1,7 @@
 package pz.bibliotekabackend.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.cors.CorsConfiguration;
@@ -12,7 +14,23 @@ import java.util.List;
 public class CorsConfig {
 
     @Bean
+    @ConditionalOnWebApplication(type = Type.SERVLET)
     public CorsConfigurationSource corsConfigurationSource() {
+        UrlBasedCorsConfigurationSource src = new UrlBasedCorsConfigurationSource();
+        src.registerCorsConfiguration("/**", settings());
+        return src;
+    }
+
+    // ista pravila za WebFlux varijantu (profil "reactive")
+    @Bean
+    @ConditionalOnWebApplication(type = Type.REACTIVE)
+    public org.springframework.web.cors.reactive.CorsConfigurationSource reactiveCorsConfigurationSource() {
+        var src = new org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource();
+        src.registerCorsConfiguration("/**", settings());
+        return src;
+    }
+
+    static CorsConfiguration settings() {
         CorsConfiguration cfg = new CorsConfiguration();
         cfg.setAllowCredentials(true);
         cfg.setAllowedOriginPatterns(List.of("http://localhost:5173"));
@@ -31,12 +49,11 @@ public class CorsConfig {
                 "X-Total-Count","x-total-count",
                 "Content-Range","content-range",
                 "Link","link",
+                "ETag","etag","Last-Modified","last-modified",
+                "X-Export-Watermark","x-export-watermark",
                 "X-Page","x-page","X-Total-Pages","x-total-pages",
                 "X-Per-Page","x-per-page","X-Prev-Page","x-prev-page","X-Next-Page","x-next-page"
         ));
-
-        UrlBasedCorsConfigurationSource src = new UrlBasedCorsConfigurationSource();
-        src.registerCorsConfiguration("/**", cfg);
-        return src;
+        return cfg;
     }
 }
@@ -0,0 +1,95 @@
+package pz.bibliotekabackend.config;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.Date;
+import java.util.Locale;
+
+import static java.time.temporal.ChronoField.*;
+
+/**
+ * Datumi sačuvani kao string (stari dokumenti). Format se prepoznaje po prvom znaku
+ * (cifra -> ISO, slovo -> "Sat Aug 16 17:41:37 CEST 2025") i parsira se jednim prolazom
+ * kroz keširan formatter preko parseUnresolved + ParsePosition, bez izuzetaka.
+ * Neprepoznat string daje null.
+ */
+public final class DateStrings {
+
+    static final String LEGACY_PATTERN = "EEE MMM dd HH:mm:ss zzz yyyy";
+
+    // DateTimeFormatter je nepromenljiv i thread-safe; ISO_OFFSET_DATE_TIME prima i "Z" i "+02:00"
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+    private static final DateTimeFormatter LEGACY = DateTimeFormatter.ofPattern(LEGACY_PATTERN, Locale.ENGLISH);
+
+    private static final int MAX_OFFSET_SECONDS = 18 * 3600;
+
+    private DateStrings() {}
+
+    public static Instant parse(String source) {
+        if (source == null) return null;
+        String s = source.trim();
+        if (s.isEmpty()) return null;
+
+        char c = s.charAt(0);
+        if (c >= '0' && c <= '9') return iso(s);
+        if (Character.isLetter(c)) return legacy(s);
+        return null;
+    }
+
+    private static Instant iso(String s) {
+        TemporalAccessor p = unresolved(ISO, s);
+        if (p == null || !p.isSupported(OFFSET_SECONDS)) return null;
+        long offset = p.getLong(OFFSET_SECONDS);
+        LocalDateTime local = localDateTime(p);
+        if (local == null || Math.abs(offset) > MAX_OFFSET_SECONDS) return null;
+        return local.toInstant(ZoneOffset.ofTotalSeconds((int) offset));
+    }
+
+    private static Instant legacy(String s) {
+        TemporalAccessor p = unresolved(LEGACY, s);
+        if (p != null) {
+            ZoneId zone = p.query(TemporalQueries.zone());
+            LocalDateTime local = localDateTime(p);
+            if (zone != null && local != null) return ZonedDateTime.ofLocal(local, zone, null).toInstant();
+        }
+        // skraćenice zona koje java.time ne zna; parse(String, ParsePosition) takođe ne baca izuzetak
+        ParsePosition pos = new ParsePosition(0);
+        Date d = new SimpleDateFormat(LEGACY_PATTERN, Locale.ENGLISH).parse(s, pos);
+        return d != null && pos.getIndex() == s.length() ? d.toInstant() : null;
+    }
+
+    private static TemporalAccessor unresolved(DateTimeFormatter f, String s) {
+        ParsePosition pos = new ParsePosition(0);
+        TemporalAccessor p = f.parseUnresolved(s, pos);
+        return p != null && pos.getErrorIndex() < 0 && pos.getIndex() == s.length() ? p : null;
+    }
+
+    // opsezi se proveravaju ručno jer LocalDateTime.of baca DateTimeException za npr. 30. februar
+    private static LocalDateTime localDateTime(TemporalAccessor p) {
+        ChronoField yearField = p.isSupported(YEAR) ? YEAR : YEAR_OF_ERA; // "yyyy" je year-of-era
+        long year = get(p, yearField, Long.MIN_VALUE);
+        long month = get(p, MONTH_OF_YEAR, -1);
+        long day = get(p, DAY_OF_MONTH, -1);
+        long hour = get(p, HOUR_OF_DAY, -1);
+        long minute = get(p, MINUTE_OF_HOUR, -1);
+        long second = get(p, SECOND_OF_MINUTE, 0);
+        long nano = get(p, NANO_OF_SECOND, 0);
+
+        if (!YEAR.range().isValidValue(year) || !MONTH_OF_YEAR.range().isValidValue(month)
+                || !HOUR_OF_DAY.range().isValidValue(hour) || !MINUTE_OF_HOUR.range().isValidValue(minute)
+                || !SECOND_OF_MINUTE.range().isValidValue(second) || !NANO_OF_SECOND.range().isValidValue(nano)) {
+            return null;
+        }
+        if (day < 1 || day > Month.of((int) month).length(Year.isLeap(year))) return null;
+        return LocalDateTime.of((int) year, (int) month, (int) day, (int) hour, (int) minute, (int) second, (int) nano);
+    }
+
+    private static long get(TemporalAccessor p, ChronoField field, long fallback) {
+        return p.isSupported(field) ? p.getLong(field) : fallback;
+    }
+}
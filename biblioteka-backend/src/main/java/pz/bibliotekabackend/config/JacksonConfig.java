@@ -0,0 +1,16 @@
+package pz.bibliotekabackend.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // Book/Order imaju @JsonFilter("fields"); bez ?fields= filter nije registrovan -> sva polja
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fieldsFilterDefault() {
+        return b -> b.filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+}
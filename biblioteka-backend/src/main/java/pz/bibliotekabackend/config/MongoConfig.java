@@ -1,5 +1,7 @@
 package pz.bibliotekabackend.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -8,10 +10,7 @@ import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 
 import java.time.Instant;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Locale;
 
 @Configuration
 @EnableMongoAuditing
@@ -22,32 +21,23 @@ public class MongoConfig {
         return new MongoCustomConversions(List.of(new StringToInstantConverter()));
     }
 
+    // veličina pool-a nezavisno od spring.data.mongodb.uri; primenjuje se posle URI-ja (i na reaktivni klijent)
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoPoolSize(@Value("${app.mongo.max-pool-size:0}") int maxPoolSize) {
+        return builder -> {
+            if (maxPoolSize > 0) builder.applyToConnectionPoolSettings(p -> p.maxSize(maxPoolSize));
+        };
+    }
+
+    // format se prepoznaje unapred (DateStrings); izuzetak samo za zaista neispravan string
     @ReadingConverter
     static class StringToInstantConverter implements Converter<String, Instant> {
-        private static final DateTimeFormatter LEGACY =
-                DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.ENGLISH);
-
         @Override
         public Instant convert(String source) {
             if (source == null || source.isBlank()) return null;
-
-            // 1) ISO INSTANT (npr. 2025-08-16T15:41:37Z)
-            try { return Instant.parse(source); } catch (Exception ignored) {}
-
-            // 2) ISO sa offsetom (npr. 2025-08-16T15:41:37.123+00:00)
-            try { return OffsetDateTime.parse(source, DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant(); }
-            catch (Exception ignored) {}
-
-            // 3) Legacy "Sat Aug 16 17:41:37 CEST 2025"
-            try { return java.time.ZonedDateTime.parse(source, LEGACY).toInstant(); }
-            catch (Exception ignored) {}
-
-            try {
-                var sdf = new java.text.SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.ENGLISH);
-                return sdf.parse(source).toInstant();
-            } catch (Exception e) {
-                throw new IllegalArgumentException("Ne mogu da parsiram datum: " + source, e);
-            }
+            Instant parsed = DateStrings.parse(source);
+            if (parsed == null) throw new IllegalArgumentException("Ne mogu da parsiram datum: " + source);
+            return parsed;
         }
     }
 }
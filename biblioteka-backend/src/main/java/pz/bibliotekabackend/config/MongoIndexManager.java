@@ -0,0 +1,180 @@
+package pz.bibliotekabackend.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.Order;
+import pz.bibliotekabackend.model.User;
+import pz.bibliotekabackend.security.RevocationSync;
+import pz.bibliotekabackend.service.CatalogSync;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kreira indekse deklarisane na @Document klasama i proverava (explain) da upiti
+ * iz repozitorijuma ne rade COLLSCAN. Sa app.mongo.indexes.fail-on-collscan=true
+ * start aplikacije pada ako neki upit nema indeks.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexManager {
+
+    private static final List<Class<?>> DOCUMENTS = List.of(Book.class, Order.class, User.class);
+
+    // kolekcije deljenog stanja instanci nemaju @Document klasu; TTL indeksi brišu istekle unose
+    private static final List<Map.Entry<String, Index>> SHARED_STATE = List.of(
+            Map.entry(RevocationSync.COLLECTION, new Index().on("expiresAt", Sort.Direction.ASC).expire(Duration.ZERO)),
+            Map.entry(RevocationSync.COLLECTION, new Index().on("createdAt", Sort.Direction.ASC)),
+            Map.entry(CatalogSync.TOMBSTONES, new Index().on("at", Sort.Direction.ASC).expire(Duration.ofDays(1))));
+
+    private final MongoTemplate mongo;
+
+    @Value("${app.mongo.indexes.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.mongo.indexes.fail-on-collscan:false}")
+    private boolean failOnCollscan;
+
+    /** Oblik upita koji treba da ide preko indeksa. */
+    public record QueryShape(String name, String collection, Document filter, Document sort, boolean delete) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled) return;
+        if (failOnCollscan) {
+            // sinhrono: izuzetak ovde obara start
+            provisionAndVerify();
+            return;
+        }
+        Thread t = new Thread(() -> {
+            try {
+                provisionAndVerify();
+            } catch (RuntimeException e) {
+                log.warn("Provera indeksa nije uspela: {}", e.getMessage());
+            }
+        }, "mongo-index-check");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public void provisionAndVerify() {
+        ensureIndexes();
+        List<String> collscans = verify();
+        if (!collscans.isEmpty() && failOnCollscan) {
+            throw new IllegalStateException("Upiti bez indeksa (COLLSCAN): " + collscans);
+        }
+    }
+
+    public void ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mongo.getConverter().getMappingContext());
+        for (Class<?> type : DOCUMENTS) {
+            for (IndexDefinition def : resolver.resolveIndexFor(type)) {
+                try {
+                    mongo.indexOps(type).createIndex(def);
+                } catch (RuntimeException e) {
+                    // npr. duplikati kod unique indeksa – ne rušimo start, verify() će prijaviti COLLSCAN
+                    log.error("Indeks {} na {} nije kreiran: {}", def.getIndexKeys().toJson(),
+                            mongo.getCollectionName(type), e.getMessage());
+                }
+            }
+        }
+        for (Map.Entry<String, Index> e : SHARED_STATE) {
+            try {
+                mongo.indexOps(e.getKey()).createIndex(e.getValue());
+            } catch (RuntimeException ex) {
+                log.error("Indeks {} na {} nije kreiran: {}", e.getValue().getIndexKeys().toJson(),
+                        e.getKey(), ex.getMessage());
+            }
+        }
+    }
+
+    /** Vraća imena upita čiji je plan COLLSCAN. */
+    public List<String> verify() {
+        List<String> collscans = new ArrayList<>();
+        for (QueryShape shape : shapes()) {
+            Document plan = explain(shape);
+            if (hasStage(plan, "COLLSCAN")) {
+                collscans.add(shape.name());
+                log.warn("COLLSCAN za {} na {} (filter {}, sort {})", shape.name(), shape.collection(),
+                        shape.filter().toJson(), shape.sort() == null ? "{}" : shape.sort().toJson());
+            }
+        }
+        if (collscans.isEmpty()) log.info("Svi upiti repozitorijuma idu preko indeksa");
+        return collscans;
+    }
+
+    List<QueryShape> shapes() {
+        String books = mongo.getCollectionName(Book.class);
+        String orders = mongo.getCollectionName(Order.class);
+        String users = mongo.getCollectionName(User.class);
+        ObjectId any = new ObjectId();
+        return List.of(
+                new QueryShape("BookRepository.findByRentedBy", books, new Document("rentedBy", any), null, false),
+                new QueryShape("BookRepository.findTopByRentedByOrderByUpdatedAtDesc", books,
+                        new Document("rentedBy", any), new Document("updatedAt", -1), false),
+                new QueryShape("BookRepository.findTopByRentedByOrderByCreatedAtDesc", books,
+                        new Document("rentedBy", any), new Document("createdAt", -1), false),
+                new QueryShape("BookService.pageAfter(createdAt)", books,
+                        new Document(), new Document("createdAt", 1).append("_id", 1), false),
+                new QueryShape("BookService.pageAfter(title)", books,
+                        new Document(), new Document("title", 1).append("_id", 1), false),
+                new QueryShape("BookService.pageAfter(author)", books,
+                        new Document(), new Document("author", 1).append("_id", 1), false),
+                new QueryShape("BookImport.upsert(title, author)", books,
+                        new Document("title", "x").append("author", "y"), null, false),
+                new QueryShape("OrderRepository.findByUserId", orders, new Document("userId", any), null, false),
+                new QueryShape("OrderRepository.findByBookId", orders, new Document("bookId", any), null, false),
+                new QueryShape("UserService.delete(orders)", orders, new Document("userId", any), null, true),
+                new QueryShape("UserRepository.findByEmail", users, new Document("email", "x@example.com"), null, false),
+                new QueryShape("CatalogSync.changedBooks", books,
+                        new Document("updatedAt", new Document("$gte", new Date())), null, false),
+                new QueryShape("CatalogSync.tombstones", CatalogSync.TOMBSTONES,
+                        new Document("at", new Document("$gte", new Date())), null, false),
+                new QueryShape("RevocationSync.poll", RevocationSync.COLLECTION,
+                        new Document("expiresAt", new Document("$gt", new Date()))
+                                .append("createdAt", new Document("$gte", new Date())), null, false)
+        );
+    }
+
+    private Document explain(QueryShape shape) {
+        Document inner;
+        if (shape.delete()) {
+            inner = new Document("delete", shape.collection())
+                    .append("deletes", List.of(new Document("q", shape.filter()).append("limit", 0)));
+        } else {
+            inner = new Document("find", shape.collection()).append("filter", shape.filter());
+            if (shape.sort() != null) inner.append("sort", shape.sort());
+        }
+        Document res = mongo.getDb().runCommand(
+                new Document("explain", inner).append("verbosity", "queryPlanner"));
+        Document planner = res.get("queryPlanner", Document.class);
+        return planner != null ? planner.get("winningPlan", Document.class) : new Document();
+    }
+
+    // plan je stablo (inputStage/inputStages/queryPlan) – tražimo stage bilo gde
+    static boolean hasStage(Object node, String stage) {
+        if (node instanceof Document d) {
+            if (stage.equals(d.get("stage"))) return true;
+            for (Object v : d.values()) if (hasStage(v, stage)) return true;
+        } else if (node instanceof List<?> list) {
+            for (Object v : list) if (hasStage(v, stage)) return true;
+        }
+        return false;
+    }
+}
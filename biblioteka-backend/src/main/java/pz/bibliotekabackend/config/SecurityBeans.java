@@ -1,13 +1,43 @@
 package pz.bibliotekabackend.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+@Slf4j
 @Configuration
 public class SecurityBeans {
+
+    static final int MIN_COST = 10;
+    static final int MAX_COST = 16;
+
+    /**
+     * app.password.bcrypt-cost > 0 -> fiksni cost; inače se pri startu meri jedan hash i bira
+     * najveći cost koji staje u app.password.target-ms (svaki +1 duplira vreme).
+     */
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BCryptPasswordEncoder passwordEncoder(@Value("${app.password.bcrypt-cost:0}") int cost,
+                                                 @Value("${app.password.target-ms:250}") long targetMs) {
+        int strength = cost > 0 ? cost : calibrate(targetMs);
+        log.info("BCrypt cost: {}{}", strength, cost > 0 ? "" : " (kalibrisano za ~" + targetMs + " ms)");
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    static int calibrate(long targetMs) {
+        int probe = 8;
+        BCryptPasswordEncoder enc = new BCryptPasswordEncoder(probe);
+        enc.encode("warm-up"); // JIT
+        long t0 = System.nanoTime();
+        enc.encode("kalibracija");
+        double ms = Math.max(0.1, (System.nanoTime() - t0) / 1_000_000.0);
+
+        int strength = probe;
+        while (strength < MAX_COST && ms * 2 <= targetMs) {
+            ms *= 2;
+            strength++;
+        }
+        return Math.max(MIN_COST, strength);
     }
 }
@@ -0,0 +1,34 @@
+package pz.bibliotekabackend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opt-in virtual thread režim (profil "virtual": spring.threads.virtual.enabled=true, JDK 21+).
+ * Tomcat, @Scheduled i Spring executor-e prebacuje sam Boot; ovde se na virtual thread-ove prebacuju
+ * i naši I/O pool-ovi (strimovanje, brisanje korisnika), uz iste granice (threads/queue) i 503 odbijanje.
+ * BCrypt pool namerno ostaje na platform thread-ovima: posao je CPU-bound, a SecureRandom je synchronized.
+ */
+@Slf4j
+@Component
+public class VirtualThreads {
+
+    private final boolean active;
+
+    public VirtualThreads(Environment env) {
+        this.active = Threading.VIRTUAL.isActive(env);
+        if (active) log.info("Virtual thread režim je uključen");
+    }
+
+    public boolean isActive() { return active; }
+
+    /** Isti pool (limiti, red, odbijanje), ali svaki posao na novom virtual thread-u. */
+    public ThreadPoolTaskExecutor apply(ThreadPoolTaskExecutor executor, String prefix) {
+        if (active) executor.setThreadFactory(new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory());
+        return executor;
+    }
+}
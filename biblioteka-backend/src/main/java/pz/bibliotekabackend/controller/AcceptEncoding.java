@@ -0,0 +1,35 @@
+package pz.bibliotekabackend.controller;
+
+import java.util.Locale;
+
+/**
+ * Accept-Encoding po RFC 9110: lista kodiranja sa opcionim q; q=0 znači "ne prihvatam".
+ * Eksplicitno navedeno kodiranje ima prednost nad "*". Šalje se samo "gzip", pa se samo on priznaje
+ * (klijent koji navodi samo x-gzip dobija nekompresovan odgovor, koji je uvek prihvatljiv).
+ */
+final class AcceptEncoding {
+
+    private AcceptEncoding() {}
+
+    static boolean acceptsGzip(String header) {
+        if (header == null || header.isBlank()) return false;
+        Double gzip = null, any = null;
+        for (String part : header.split(",")) {
+            String[] p = part.split(";");
+            String coding = p[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < p.length; i++) {
+                String param = p[i].trim();
+                if (!param.regionMatches(true, 0, "q=", 0, 2)) continue;
+                try {
+                    q = Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    q = 0; // neispravan q -> kao da kodiranje nije prihvaćeno
+                }
+            }
+            if (coding.equals("gzip")) gzip = q;
+            else if (coding.equals("*")) any = q;
+        }
+        return gzip != null ? gzip > 0 : any != null && any > 0;
+    }
+}
@@ -0,0 +1,106 @@
+package pz.bibliotekabackend.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pz.bibliotekabackend.security.JwtService;
+import pz.bibliotekabackend.security.PasswordHasher;
+import pz.bibliotekabackend.service.BookCache;
+import pz.bibliotekabackend.service.BookImport;
+import pz.bibliotekabackend.service.CatalogCounters;
+import pz.bibliotekabackend.service.DateFieldMigration;
+import pz.bibliotekabackend.service.OrderSnapshotMigration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final BookCache bookCache;
+    private final CatalogCounters counters;
+    private final PageResponseCache pageCache;
+    private final OrderSnapshotMigration orderMigration;
+    private final DateFieldMigration dateMigration;
+    private final BookImport bookImport;
+    private final JwtService jwt;
+    private final PasswordHasher hasher;
+
+    // GET /admin/stats -> interni brojači i statistika keševa
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("bookCache", bookCache.stats());
+        out.put("pageCache", pageCache.stats());
+        out.put("jwtCache", jwt.cacheStats());
+        out.put("bcrypt", hasher.stats());
+        out.put("catalog", Map.of(
+                "ready", counters.isReady(),
+                "total", counters.total(),
+                "rented", counters.rented(),
+                "available", counters.available()
+        ));
+        return ResponseEntity.ok(Map.of("data", out));
+    }
+
+    // GET /admin/imports/books -> napredak tekućeg (ili izveštaj poslednjeg) uvoza knjiga
+    @GetMapping("/imports/books")
+    public ResponseEntity<?> bookImportProgress() {
+        var p = bookImport.progress();
+        if (p == null) return ResponseEntity.noContent().build();
+        return ResponseEntity.ok(Map.of("data", p));
+    }
+
+    // POST /admin/users/{id}/revoke-tokens -> svi dosadašnji tokeni korisnika prestaju da važe
+    @PostMapping("/users/{id}/revoke-tokens")
+    public ResponseEntity<Void> revokeUserTokens(@PathVariable String id) {
+        jwt.revokeUser(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/cache/books")
+    public ResponseEntity<Void> clearBookCache() {
+        bookCache.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    // GET /admin/migrations/order-snapshot -> checkpoint i stanje migracije porudžbina
+    @GetMapping("/migrations/order-snapshot")
+    public ResponseEntity<?> orderMigrationStatus() {
+        return ResponseEntity.ok(Map.of("data", orderMigration.status()));
+    }
+
+    @PostMapping("/migrations/order-snapshot/start")
+    public ResponseEntity<?> startOrderMigration() {
+        boolean started = orderMigration.start();
+        return ResponseEntity.accepted().body(Map.of("started", started));
+    }
+
+    @PostMapping("/migrations/order-snapshot/stop")
+    public ResponseEntity<Void> stopOrderMigration() {
+        orderMigration.stop();
+        return ResponseEntity.accepted().build();
+    }
+
+    // GET /admin/migrations/date-fields -> string datumi -> BSON Date, stanje po kolekciji
+    @GetMapping("/migrations/date-fields")
+    public ResponseEntity<?> dateMigrationStatus() {
+        return ResponseEntity.ok(Map.of("data", dateMigration.status()));
+    }
+
+    @PostMapping("/migrations/date-fields/start")
+    public ResponseEntity<?> startDateMigration() {
+        boolean started = dateMigration.start();
+        return ResponseEntity.accepted().body(Map.of("started", started));
+    }
+
+    @PostMapping("/migrations/date-fields/stop")
+    public ResponseEntity<Void> stopDateMigration() {
+        dateMigration.stop();
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -1,27 +1,30 @@
 package pz.bibliotekabackend.controller;
 
-import jakarta.servlet.http.HttpServletRequest;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import pz.bibliotekabackend.model.User;
 import pz.bibliotekabackend.repository.UserRepository;
+import pz.bibliotekabackend.security.AuthPrincipal;
 import pz.bibliotekabackend.security.JwtService;
+import pz.bibliotekabackend.security.PasswordHasher;
+import pz.bibliotekabackend.service.UserService;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/auth")
 @RequiredArgsConstructor
 public class AuthController {
 
     private final UserRepository users;
-    private final BCryptPasswordEncoder encoder;
+    private final PasswordHasher hasher;
+    private final UserService userService;
     private final JwtService jwt;
 
     // POST /auth/login  ->  { data: { id, name, email, role, favorites, token } }
@@ -38,11 +41,14 @@ public class AuthController {
         if (list.isEmpty()) return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
 
         User u = list.get(0);
-        boolean ok = (u.getPassword() != null && u.getPassword().startsWith("$2"))
-                ? encoder.matches(password, u.getPassword())
-                : Objects.equals(password, u.getPassword());
-
-        if (!ok) return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
+        String stored = u.getPassword();
+        if (!hasher.matches(password, stored)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
+        }
+        // plaintext ili slab hash -> novi hash u pozadini
+        if (hasher.needsUpgrade(stored)) {
+            hasher.upgradeLater(password, h -> userService.replacePassword(u.getId(), stored, h));
+        }
 
         String token = jwt.generate(u);
         return ResponseEntity.ok(Map.of("data", flatUser(u, token)));
@@ -61,33 +67,27 @@ public class AuthController {
         u.setName(req.getName().trim());
         u.setEmail(req.getEmail().trim());
         u.setRole("user");
-        u.setPassword(encoder.encode(req.getPassword().trim()));
+        u.setPassword(hasher.hash(req.getPassword().trim()));
         users.save(u);
 
         String token = jwt.generate(u);
         return ResponseEntity.ok(Map.of("data", flatUser(u, token)));
     }
 
-    @GetMapping("/me")
-    public ResponseEntity<?> me(HttpServletRequest request) {
-        String userId = null;
-
-        var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
-        if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof String p && StringUtils.hasText(p)) {
-            userId = p;
+    // POST /auth/logout -> opoziva token iz Authorization header-a (samo ako je važeći)
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String header) {
+        if (header != null && header.startsWith("Bearer ")) {
+            String token = header.substring(7).trim();
+            if (!token.isEmpty()) jwt.revoke(token);
         }
+        return ResponseEntity.noContent().build();
+    }
 
-        // 2) fallback: parsiraj Authorization header ručno (radi i kada je app.security.enabled=false)
-        if (userId == null) {
-            String header = request.getHeader("Authorization");
-            if (header != null && header.startsWith("Bearer ")) {
-                String token = header.substring(7);
-                try {
-                    var jws = jwt.parse(token);
-                    userId = jws.getPayload().getSubject();
-                } catch (Exception ignored) {}
-            }
-        }
+    @GetMapping("/me")
+    public ResponseEntity<?> me(AuthPrincipal caller) {
+        // radi i kada je app.security.enabled=false (principal se razrešava iz headera po potrebi)
+        String userId = caller != null ? caller.userId() : null;
 
         if (!StringUtils.hasText(userId)) {
             return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
@@ -1,26 +1,38 @@
 package pz.bibliotekabackend.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 import pz.bibliotekabackend.model.Book;
-import pz.bibliotekabackend.repository.BookRepository;
+import pz.bibliotekabackend.service.BookImport;
 import pz.bibliotekabackend.service.BookService;
+import pz.bibliotekabackend.service.CatalogVersion;
+import pz.bibliotekabackend.service.Projection;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.*;
-import java.util.stream.Collectors;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/books")
 @RequiredArgsConstructor
 public class BookController {
 
     private final BookService books;
-    private final BookRepository repo;
+    private final CatalogVersion catalogVersion;
+    private final BookImport bookImport;
+    private final PageResponseCache pageCache;
 
     @GetMapping
-    public ResponseEntity<List<Book>> list(
+    public ResponseEntity<?> list(
             @RequestParam(required = false) String rentedBy,
             @RequestParam(required = false, name = "q") String q,
             @RequestParam(required = false, name = "search") String search,
@@ -40,44 +52,42 @@ public class BookController {
             @RequestParam(required = false, name = "ids[]") List<String> idsBracket1,
             @RequestParam(required = false, name = "id[]") List<String> idsBracket2,
             @RequestParam(required = false, name = "favorites") String favoritesCsv,
-            @RequestParam(required = false, name = "favorites[]") List<String> favoritesBracket
-    ) {
-        LinkedHashSet<String> idsSet = new LinkedHashSet<>();
+            @RequestParam(required = false, name = "favorites[]") List<String> favoritesBracket,
 
-        if (idsRepeated != null) idsSet.addAll(idsRepeated);
-        if (idsBracket1 != null) idsSet.addAll(idsBracket1);
-        if (idsBracket2 != null) idsSet.addAll(idsBracket2);
-        if (favoritesBracket != null) idsSet.addAll(favoritesBracket);
+            // keyset paginacija: ?after= (prazno za prvu stranu) ili token iz Link rel="next"
+            @RequestParam(required = false, name = "after") String after,
+            @RequestParam(required = false, name = "count") Boolean count,
 
-        if (idsCsv != null && !idsCsv.isBlank()) {
-            for (String s : idsCsv.split(",")) {
-                String t = s.trim();
-                if (!t.isBlank()) idsSet.add(t);
-            }
-        }
-        if (favoritesCsv != null && !favoritesCsv.isBlank()) {
-            for (String s : favoritesCsv.split(",")) {
-                String t = s.trim();
-                if (!t.isBlank()) idsSet.add(t);
-            }
+            // projekcija: ?fields=title,author,year,image
+            @RequestParam(required = false, name = "fields") String fieldsCsv,
+
+            HttpServletRequest request
+    ) {
+        // ETag liste = verzija kataloga + upit; čita se PRE upita da nov upis ne dobije stari tag
+        long version = catalogVersion.current();
+        String etag = Conditional.etag("c", version, queryKey(request));
+        Instant lastModified = catalogVersion.lastModified();
+        if (Conditional.notModified(request, etag, lastModified)) {
+            // isti Vary kao 200 iz keša strana (gzip ili ne, po Accept-Encoding)
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).lastModified(lastModified)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
         }
 
-        if (!idsSet.isEmpty()) {
-            List<String> inOrder = new ArrayList<>(idsSet);
+        Projection fields = Projection.forBook(fieldsCsv);
 
-            Map<String, Book> byId = new HashMap<>();
-            repo.findAllById(inOrder).forEach(b -> byId.put(b.getId(), b));
+        LinkedHashSet<String> idsSet = BookPaging.ids(idsRepeated, idsBracket1, idsBracket2, favoritesBracket,
+                idsCsv, favoritesCsv);
 
-            List<Book> result = inOrder.stream()
-                    .map(byId::get)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
+        if (!idsSet.isEmpty()) {
+            List<Book> result = books.getAll(new ArrayList<>(idsSet), fields);
 
             int n = result.size();
             return ResponseEntity.ok()
+                    .eTag(etag)
+                    .lastModified(lastModified)
                     .header("X-Total-Count", String.valueOf(n))
                     .header("Content-Range", "items 0-" + (Math.max(0, n - 1)) + "/" + n)
-                    .body(result);
+                    .body(Projection.wrap(result, fields));
         }
 
         int p = (page != null ? page : (_page != null ? _page : 1));
@@ -86,32 +96,77 @@ public class BookController {
         String o = (order != null ? order : (_order != null ? _order : "asc"));
         String query = (q != null ? q : (search != null ? search : null));
 
-        Page<Book> result = books.page(rentedBy, query, p, l, s, o);
+        // keyset strana ide po sort ključu, pretraga po relevantnosti -> nema smislenog cursor-a
+        if (after != null && query != null) {
+            throw new IllegalArgumentException("after se ne može kombinovati sa q/search");
+        }
+        if (after != null) {
+            var res = ResponseEntity.ok().eTag(etag).lastModified(lastModified);
+            return cursorPage(res, rentedBy, after, l, s, o, Boolean.TRUE.equals(count), fields);
+        }
+
+        // prve strane: gotov odgovor (headeri + JSON/gzip bajtovi) iz keša, bez upita i serijalizacije
+        String cacheKey = pageCache.cacheable(p)
+                ? PageResponseCache.key(p, l, s, o, query, rentedBy, fieldsCsv)
+                : null;
+        if (cacheKey != null) {
+            var hit = pageCache.get(cacheKey, version);
+            if (hit != null) return pageCache.respond(hit, request);
+        }
 
-        int from = (p - 1) * l;
-        int to = from + result.getNumberOfElements() - 1;
-        long total = result.getTotalElements();
-        int lastPage = (int) Math.max(1, Math.ceil(total / (double) l));
+        Page<Book> result = books.page(rentedBy, query, p, l, s, o, fields);
 
-        String base = "/api/books?sort=" + (s != null ? s : "createdAt")
-                + "&order=" + o + "&limit=" + l;
-        StringBuilder link = new StringBuilder();
-        link.append("<").append(base).append("&page=1").append(">; rel=\"first\"");
-        if (p > 1) link.append(", <").append(base).append("&page=").append(p - 1).append(">; rel=\"prev\"");
-        if (p < lastPage) link.append(", <").append(base).append("&page=").append(p + 1).append(">; rel=\"next\"");
-        link.append(", <").append(base).append("&page=").append(lastPage).append(">; rel=\"last\"");
+        HttpHeaders headers = BookPaging.pageHeaders(result, p, l, s, o, etag, lastModified);
 
+        if (cacheKey != null) {
+            var entry = pageCache.put(cacheKey, version, headers, result.getContent(),
+                    fields != null ? fields.filters() : null);
+            return pageCache.respond(entry, request);
+        }
         return ResponseEntity.ok()
-                .header("X-Total-Count", String.valueOf(total))
-                .header("Content-Range", "items " + (result.getNumberOfElements() == 0 ? 0 : from) + "-" + (result.getNumberOfElements() == 0 ? 0 : to) + "/" + total)
-                .header("Link", link.toString())
-                .body(result.getContent());
+                .headers(headers)
+                .body(Projection.wrap(result.getContent(), fields));
+    }
+
+    private ResponseEntity<?> cursorPage(ResponseEntity.BodyBuilder res, String rentedBy, String after, int l,
+                                         String s, String o, boolean withCount, Projection fields) {
+        BookService.KeysetPage result = books.pageAfter(rentedBy, after, l, s, o, fields);
+
+        if (result.next() != null) {
+            res.header("Link", BookPaging.nextLink(l, rentedBy, result.next()));
+        }
+        // count samo na zahtev – to je ono što keyset mod izbegava
+        if (withCount) {
+            res.header("X-Total-Count", String.valueOf(books.count(rentedBy)));
+        }
+        return res.body(Projection.wrap(result.content(), fields));
+    }
+
+    // normalizovan upit (sortirani parametri) -> kratak hash za ETag
+    private static String queryKey(HttpServletRequest request) {
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(request.getParameterMap()).forEach((k, v) ->
+                sb.append(k).append('=').append(String.join(",", v)).append('&'));
+        return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8)).substring(0, 16);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> get(@PathVariable String id) {
+    public ResponseEntity<?> get(@PathVariable String id, HttpServletRequest request) {
+        // conditional GET: updatedAt iz keša ili projekcije, bez čitanja celog dokumenta
+        if (Conditional.isConditional(request)) {
+            Optional<Instant> v = books.version(id);
+            if (v.isPresent() && Conditional.notModified(request, Conditional.etag("b", v.get()), v.get())) {
+                return Conditional.notModifiedResponse(Conditional.etag("b", v.get()), v.get());
+            }
+        }
+
         Book b = books.get(id);
-        return (b != null) ? ResponseEntity.ok(Map.of("data", b)) : ResponseEntity.notFound().build();
+        if (b == null) return ResponseEntity.notFound().build();
+        var res = ResponseEntity.ok();
+        if (b.getUpdatedAt() != null) {
+            res.eTag(Conditional.etag("b", b.getUpdatedAt())).lastModified(b.getUpdatedAt());
+        }
+        return res.body(Map.of("data", b));
     }
 
     @PostMapping
@@ -120,6 +175,19 @@ public class BookController {
         return ResponseEntity.ok(Map.of("data", saved));
     }
 
+    /**
+     * POST /books/import  (Content-Type: text/csv ili application/x-ndjson, ili ?format=csv|ndjson)
+     * Telo se čita kao stream; odgovor je izveštaj sa brojem novih/ažuriranih i greškama po redu.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importBooks(@RequestParam(required = false) String format,
+                                         @RequestParam(required = false) Integer batchSize,
+                                         HttpServletRequest request) throws IOException {
+        var fmt = BookImport.Format.detect(format, request.getContentType());
+        var report = bookImport.run(request.getInputStream(), fmt, batchSize);
+        return ResponseEntity.ok(Map.of("data", report));
+    }
+
     @PatchMapping("/{id}")
     public ResponseEntity<?> patch(@PathVariable String id, @RequestBody Map<String, Object> body) {
         var updated = books.patch(id, body);
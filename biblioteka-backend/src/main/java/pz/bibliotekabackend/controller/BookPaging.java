@@ -0,0 +1,75 @@
+package pz.bibliotekabackend.controller;
+
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spajanje id parametara i headeri strane za GET /books (BookController i ReactiveBookController).
+ * Izvršava se na svakom zahtevu liste – pokriven JMH benchmark-om (src/jmh).
+ */
+final class BookPaging {
+
+    private BookPaging() {}
+
+    /** ?id=&ids=&ids[]=&id[]=&favorites=&favorites[]= -> jedinstveni id-jevi u redosledu pojavljivanja. */
+    static LinkedHashSet<String> ids(List<String> repeated, List<String> bracket1, List<String> bracket2,
+                                     List<String> favoritesBracket, String idsCsv, String favoritesCsv) {
+        LinkedHashSet<String> ids = new LinkedHashSet<>();
+        if (repeated != null) ids.addAll(repeated);
+        if (bracket1 != null) ids.addAll(bracket1);
+        if (bracket2 != null) ids.addAll(bracket2);
+        if (favoritesBracket != null) ids.addAll(favoritesBracket);
+        addCsv(ids, idsCsv);
+        addCsv(ids, favoritesCsv);
+        return ids;
+    }
+
+    private static void addCsv(LinkedHashSet<String> ids, String csv) {
+        if (csv == null || csv.isBlank()) return;
+        for (String s : csv.split(",")) {
+            String t = s.trim();
+            if (!t.isBlank()) ids.add(t);
+        }
+    }
+
+    /** ETag, Last-Modified, X-Total-Count, Content-Range i Link (first/prev/next/last) za offset stranu. */
+    static HttpHeaders pageHeaders(Page<?> result, int p, int l, String s, String o,
+                                   String etag, Instant lastModified) {
+        int from = (p - 1) * l;
+        int to = from + result.getNumberOfElements() - 1;
+        long total = result.getTotalElements();
+        int lastPage = (int) Math.max(1, Math.ceil(total / (double) l));
+
+        String base = "/api/books?sort=" + (s != null ? s : "createdAt")
+                + "&order=" + o + "&limit=" + l;
+        StringBuilder link = new StringBuilder();
+        link.append("<").append(base).append("&page=1").append(">; rel=\"first\"");
+        if (p > 1) link.append(", <").append(base).append("&page=").append(p - 1).append(">; rel=\"prev\"");
+        if (p < lastPage) link.append(", <").append(base).append("&page=").append(p + 1).append(">; rel=\"next\"");
+        link.append(", <").append(base).append("&page=").append(lastPage).append(">; rel=\"last\"");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setLastModified(lastModified);
+        headers.set("X-Total-Count", String.valueOf(total));
+        headers.set("Content-Range", "items " + (result.getNumberOfElements() == 0 ? 0 : from) + "-" + (result.getNumberOfElements() == 0 ? 0 : to) + "/" + total);
+        headers.set("Link", link.toString());
+        return headers;
+    }
+
+    /** Link rel="next" za keyset stranu; vrednosti parametara su URL-enkodovane. */
+    static String nextLink(int l, String rentedBy, String next) {
+        UriComponentsBuilder b = UriComponentsBuilder.fromPath("/api/books").queryParam("limit", l);
+        if (rentedBy != null && !rentedBy.isBlank()) b.queryParam("rentedBy", "{rentedBy}");
+        String uri = b.queryParam("after", "{after}").encode()
+                .buildAndExpand(Map.of("rentedBy", rentedBy == null ? "" : rentedBy.trim(), "after", next))
+                .toUriString();
+        return "<" + uri + ">; rel=\"next\"";
+    }
+}
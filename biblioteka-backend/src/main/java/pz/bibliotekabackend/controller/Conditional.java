@@ -0,0 +1,77 @@
+package pz.bibliotekabackend.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.time.Instant;
+
+/**
+ * Conditional GET (If-None-Match / If-Modified-Since) pre bilo kakvog čitanja ili serijalizacije.
+ * ETag-ovi su slabi (W/) jer se ista verzija može vratiti u više reprezentacija (?fields=).
+ */
+final class Conditional {
+
+    private Conditional() {}
+
+    static String etag(String prefix, Instant version) {
+        return "W/\"" + prefix + version.toEpochMilli() + "\"";
+    }
+
+    static String etag(String prefix, long version, String variant) {
+        return "W/\"" + prefix + version + "-" + variant + "\"";
+    }
+
+    /** If-None-Match ima prednost; If-Modified-Since se gleda samo ako njega nema. */
+    static boolean notModified(HttpServletRequest req, String etag, Instant lastModified) {
+        return notModified(req.getHeader(HttpHeaders.IF_NONE_MATCH), req.getHeader(HttpHeaders.IF_MODIFIED_SINCE),
+                etag, lastModified);
+    }
+
+    /** Isto za WebFlux (reaktivna varijanta kontrolera). */
+    static boolean notModified(ServerHttpRequest req, String etag, Instant lastModified) {
+        HttpHeaders h = req.getHeaders();
+        return notModified(h.getFirst(HttpHeaders.IF_NONE_MATCH), h.getFirst(HttpHeaders.IF_MODIFIED_SINCE),
+                etag, lastModified);
+    }
+
+    private static boolean notModified(String inm, String ims, String etag, Instant lastModified) {
+        if (inm != null) {
+            String mine = opaque(etag);
+            for (String candidate : inm.split(",")) {
+                String c = candidate.trim();
+                if (c.equals("*") || opaque(c).equals(mine)) return true;
+            }
+            return false;
+        }
+        if (ims != null && lastModified != null) {
+            HttpHeaders h = new HttpHeaders();
+            h.set(HttpHeaders.IF_MODIFIED_SINCE, ims);
+            long since;
+            try { since = h.getIfModifiedSince(); } catch (IllegalArgumentException e) { return false; }
+            return since >= 0 && lastModified.getEpochSecond() * 1000 <= since;
+        }
+        return false;
+    }
+
+    static boolean isConditional(HttpServletRequest req) {
+        return req.getHeader(HttpHeaders.IF_NONE_MATCH) != null || req.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    static boolean isConditional(ServerHttpRequest req) {
+        HttpHeaders h = req.getHeaders();
+        return h.containsKey(HttpHeaders.IF_NONE_MATCH) || h.containsKey(HttpHeaders.IF_MODIFIED_SINCE);
+    }
+
+    static <T> ResponseEntity<T> notModifiedResponse(String etag, Instant lastModified) {
+        var res = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag);
+        if (lastModified != null) res.lastModified(lastModified);
+        return res.build();
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
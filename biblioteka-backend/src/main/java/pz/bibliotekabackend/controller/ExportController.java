@@ -0,0 +1,134 @@
+package pz.bibliotekabackend.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pz.bibliotekabackend.service.ExportService;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GET /export/{books|orders|users}?format=ndjson|csv&since=<ISO instant>&gzip=true
+ * Odgovor se piše iz kursora na "stream" executor-u (vidi AsyncConfig), ne na request thread-u.
+ * Izvoz obuhvata since < updatedAt <= X-Export-Watermark; watermark je since za sledeći inkrementalni izvoz.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RestController
+@RequestMapping("/export")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+    private final ExportService exports;
+    private final ObjectMapper om;
+
+    @GetMapping("/{dataset}")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable String dataset,
+                                                        @RequestParam(defaultValue = "ndjson") String format,
+                                                        @RequestParam(required = false) String since,
+                                                        @RequestParam(required = false) Boolean gzip,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        var ds = ExportService.Dataset.of(dataset);
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("format mora biti ndjson ili csv");
+        }
+        Instant from = parseSince(since);
+        boolean gz = gzip != null ? gzip : AcceptEncoding.acceptsGzip(acceptEncoding);
+
+        // watermark pre prvog reda: izvoz ide do njega, sve posle ulazi u sledeći izvoz
+        Instant watermark = exports.watermark();
+        if (from != null && !from.isBefore(watermark)) {
+            throw new IllegalArgumentException("since mora biti pre trenutnog watermark-a");
+        }
+        String file = ds.name().toLowerCase() + (csv ? ".csv" : ".ndjson");
+
+        var res = ResponseEntity.ok()
+                .contentType(csv ? CSV : JsonStreams.NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file + "\"");
+        res.header("X-Export-Watermark", watermark.toString());
+        if (gz) res.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        // bez ?gzip= odluka zavisi od Accept-Encoding, pa keš/proxy mora da ga uzme u obzir
+        if (gzip == null) res.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        return res.body(out -> {
+            OutputStream target = gz ? new GZIPOutputStream(out, 1 << 16, true) : out;
+            if (csv) writeCsv(target, ds, from, watermark);
+            else writeNdjson(target, ds, from, watermark);
+            if (gz) ((GZIPOutputStream) target).finish();
+        });
+    }
+
+    private void writeNdjson(OutputStream out, ExportService.Dataset ds, Instant since, Instant until) throws IOException {
+        try (JsonGenerator gen = om.getFactory().createGenerator(out)) {
+            gen.setRootValueSeparator(null);
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            exports.export(ds, since, until, batch -> {
+                try {
+                    for (Map<String, Object> row : batch) {
+                        om.writeValue(gen, row);
+                        gen.writeRaw('\n');
+                    }
+                    gen.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void writeCsv(OutputStream out, ExportService.Dataset ds, Instant since, Instant until) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        w.write(String.join(",", ds.columns));
+        w.write("\r\n");
+        exports.export(ds, since, until, batch -> {
+            try {
+                for (Map<String, Object> row : batch) {
+                    for (int i = 0; i < ds.columns.size(); i++) {
+                        if (i > 0) w.write(',');
+                        w.write(csvCell(row.get(ds.columns.get(i))));
+                    }
+                    w.write("\r\n");
+                }
+                w.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        w.flush();
+    }
+
+    static String csvCell(Object v) {
+        if (v == null) return "";
+        String s = v instanceof Collection<?> c
+                ? c.stream().map(String::valueOf).collect(Collectors.joining(";"))
+                : v.toString();
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private static Instant parseSince(String since) {
+        if (!StringUtils.hasText(since)) return null;
+        try {
+            return Instant.parse(since.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("since mora biti ISO instant (npr. 2025-08-16T15:41:37Z)");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package pz.bibliotekabackend.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Strimovanje kolekcija direktno u response: JSON niz ili NDJSON (jedan objekat po liniji).
+ * Producer gura batch-eve, svaki se odmah serijalizuje i flush-uje – memorija ne raste sa kolekcijom.
+ */
+public final class JsonStreams {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+
+    private JsonStreams() {}
+
+    public static boolean wantsNdjson(String accept) {
+        return accept != null && accept.contains(NDJSON_VALUE);
+    }
+
+    public static <T> ResponseEntity<StreamingResponseBody> response(ObjectMapper om, Class<T> type, boolean ndjson,
+                                                                     Consumer<Consumer<List<T>>> producer) {
+        return response(om, type, ndjson, null, producer);
+    }
+
+    /** filters != null -> samo polja iz ?fields= (vidi Projection). */
+    public static <T> ResponseEntity<StreamingResponseBody> response(ObjectMapper om, Class<T> type, boolean ndjson,
+                                                                     FilterProvider filters,
+                                                                     Consumer<Consumer<List<T>>> producer) {
+        return ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .body(body(om, type, ndjson, filters, producer));
+    }
+
+    public static <T> StreamingResponseBody body(ObjectMapper om, Class<T> type, boolean ndjson,
+                                                 FilterProvider filters,
+                                                 Consumer<Consumer<List<T>>> producer) {
+        ObjectWriter writer = om.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        if (filters != null) writer = writer.with(filters);
+        ObjectWriter w = writer;
+        return out -> {
+            try (JsonGenerator gen = om.getFactory().createGenerator(out)) {
+                gen.setRootValueSeparator(null);
+                if (!ndjson) gen.writeStartArray();
+                producer.accept(batch -> {
+                    try {
+                        for (T item : batch) {
+                            w.writeValue(gen, item);
+                            if (ndjson) gen.writeRaw('\n');
+                        }
+                        gen.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (!ndjson) gen.writeEndArray();
+            }
+        };
+    }
+}
@@ -1,68 +1,84 @@
 package pz.bibliotekabackend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import pz.bibliotekabackend.model.Order;
-import pz.bibliotekabackend.security.JwtService;
+import pz.bibliotekabackend.security.AuthPrincipal;
 import pz.bibliotekabackend.service.OrderService;
+import pz.bibliotekabackend.service.Projection;
 
 import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/orders")
 @RequiredArgsConstructor
 public class OrderController {
 
     private final OrderService orders;
-    private final JwtService jwt;
+    private final ObjectMapper om;
     /**
      * GET /orders
      * - Admin: vidi sve (ili filtrira ?userId=...), opciono ?bookId=...
      * - User: uvek vidi SAMO svoje (ignoriše bilo koji userId u query-ju)
+     * - Bez filtera ili uz Accept: application/x-ndjson odgovor se strimuje iz kursora
      */
     @GetMapping
-    public ResponseEntity<List<Order>> list(@RequestParam(required = false) String userId,
-                                            @RequestParam(required = false) String bookId,
-                                            HttpServletRequest request) {
-        String auth = request.getHeader("Authorization");
-        String callerId = null;
-        String callerRole = null;
-        if (auth != null && auth.startsWith("Bearer ")) {
-            try {
-                var claims = jwt.parse(auth.substring(7)).getPayload();
-                callerId = claims.getSubject();
-                callerRole = claims.get("role", String.class);
-            } catch (Exception ignored) {}
-        }
-        boolean isAdmin = callerRole != null && callerRole.equalsIgnoreCase("admin");
-        String effectiveUserId = isAdmin ? userId : (callerId != null ? callerId : null);
+    public ResponseEntity<?> list(@RequestParam(required = false) String userId,
+                                  @RequestParam(required = false) String bookId,
+                                  @RequestParam(required = false, name = "fields") String fieldsCsv,
+                                  @RequestHeader(value = "Accept", required = false) String accept,
+                                  AuthPrincipal caller) {
+        boolean isAdmin = caller != null && caller.isAdmin();
+        String effectiveUserId = isAdmin ? userId : (caller != null ? caller.userId() : null);
         if (!isAdmin && effectiveUserId == null) return ResponseEntity.ok(List.of());
-        return ResponseEntity.ok(orders.list(effectiveUserId, bookId));
+
+        Projection fields = Projection.forOrder(fieldsCsv);
+        boolean ndjson = JsonStreams.wantsNdjson(accept);
+        if (ndjson || (effectiveUserId == null && !StringUtils.hasText(bookId))) {
+            String uid = effectiveUserId;
+            return JsonStreams.response(om, Order.class, ndjson, fields != null ? fields.filters() : null,
+                    sink -> orders.stream(uid, bookId, fields, sink));
+        }
+        return ResponseEntity.ok(Projection.wrap(orders.list(effectiveUserId, bookId, fields), fields));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Order> get(@PathVariable String id) {
+    public ResponseEntity<Order> get(@PathVariable String id, HttpServletRequest request) {
+        // conditional GET: čita se samo updatedAt, dokument i hidracija tek ako je izmenjen
+        if (Conditional.isConditional(request)) {
+            Optional<Instant> v = orders.version(id);
+            if (v.isPresent() && Conditional.notModified(request, Conditional.etag("o", v.get()), v.get())) {
+                return Conditional.notModifiedResponse(Conditional.etag("o", v.get()), v.get());
+            }
+        }
+
         var o = orders.get(id);
-        return o != null ? ResponseEntity.ok(o) : ResponseEntity.notFound().build();
+        if (o == null) return ResponseEntity.notFound().build();
+        var res = ResponseEntity.ok();
+        if (o.getUpdatedAt() != null) {
+            res.eTag(Conditional.etag("o", o.getUpdatedAt())).lastModified(o.getUpdatedAt());
+        }
+        return res.body(o);
     }
 
     @PostMapping
     public ResponseEntity<Order> create(@RequestBody Map<String, Object> body,
+                                        AuthPrincipal caller,
                                         HttpServletRequest request) {
-        // 1) Izvuci userId iz JWT-a
-        String auth = request.getHeader("Authorization");
-        String callerId = null;
-        if (auth != null && auth.startsWith("Bearer ")) {
-            try {
-                var claims = jwt.parse(auth.substring(7)).getPayload();
-                callerId = claims.getSubject();
-            } catch (Exception ignored) {}
-        }
+        // 1) userId iz JWT-a (parsiran jednom po zahtevu)
+        String callerId = caller != null ? caller.userId() : null;
 
         // 2) Uhvati bookId iz raznih mogućih ključeva u telu
         String bookId = null;
@@ -89,6 +105,26 @@ public class OrderController {
         return ResponseEntity.created(URI.create("/orders/" + saved.getId())).body(saved);
     }
 
+    /**
+     * POST /orders/batch  { "bookIds": ["...", "..."], "userId": "..." }
+     * Šalter zadužuje više knjiga u jednom zahtevu; rezultat je po knjizi (created/conflict/not_found).
+     * - Admin (šalter): zadužuje zadatog korisnika
+     * - User: uvek sebe, userId se ignoriše
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createBatch(@RequestBody Map<String, Object> body, AuthPrincipal caller) {
+        String callerId = targetUser(caller, body.get("userId") instanceof String s ? s : null);
+
+        List<String> bookIds = new ArrayList<>();
+        if (body.get("bookIds") instanceof List<?> list) {
+            for (Object id : list) if (id != null) bookIds.add(id.toString());
+        }
+
+        var items = orders.createBatch(callerId, bookIds);
+        long created = items.stream().filter(i -> "created".equals(i.status())).count();
+        return ResponseEntity.ok(Map.of("data", items, "created", created, "failed", items.size() - created));
+    }
+
     @PatchMapping("/{id}")
     public ResponseEntity<Order> patch(@PathVariable String id, @RequestBody Map<String,Object> body) {
         return ResponseEntity.ok(orders.patch(id, body));
@@ -104,6 +140,23 @@ public class OrderController {
         }
     }
 
+    /**
+     * PATCH /orders/return-all?userId=...
+     * - Admin (šalter): vraća sve za zadatog korisnika
+     * - User: uvek samo svoje
+     */
+    @PatchMapping("/return-all")
+    public ResponseEntity<?> returnAll(@RequestParam(required = false) String userId,
+                                       AuthPrincipal caller) {
+        return ResponseEntity.ok(Map.of("data", orders.returnAllForUser(targetUser(caller, userId))));
+    }
+
+    // zadati korisnik važi samo za admina; ostali uvek rade nad sobom
+    static String targetUser(AuthPrincipal caller, String userId) {
+        boolean isAdmin = caller != null && caller.isAdmin();
+        return isAdmin && StringUtils.hasText(userId) ? userId : (caller != null ? caller.userId() : null);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id) {
         orders.delete(id);
@@ -0,0 +1,117 @@
+package pz.bibliotekabackend.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keš gotovih odgovora za prve strane GET /books: headeri + JSON bajtovi + unapred gzip-ovana varijanta.
+ * Unos važi dok se verzija kataloga ne promeni; pogodak ne radi ni mapiranje ni kompresiju.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Component
+public class PageResponseCache {
+
+    private final ObjectMapper om;
+    private final int maxPage;
+    private final Cache<String, Entry> cache;
+    // pogodak = unos postoji I verzija je tekuća (Caffeine bi zastareo unos brojao kao hit)
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public record Entry(long version, HttpHeaders headers, byte[] json, byte[] gzip) {}
+
+    public PageResponseCache(ObjectMapper om,
+                             @Value("${app.cache.pages.max-page:3}") int maxPage,
+                             @Value("${app.cache.pages.max-entries:512}") long maxEntries) {
+        this.om = om;
+        this.maxPage = maxPage;
+        this.cache = Caffeine.newBuilder().maximumSize(maxEntries).recordStats().build();
+    }
+
+    public boolean cacheable(int page) {
+        return page >= 1 && page <= maxPage;
+    }
+
+    /**
+     * sort je sirova vrednost iz upita: bez nje pretraga (q) ide po relevantnosti,
+     * a lista po createdAt – to su različiti odgovori i ne smeju deliti unos.
+     */
+    public static String key(int page, int limit, String sort, String order, String q, String rentedBy, String fields) {
+        String effectiveSort = sort != null ? sort : (q != null ? "relevance" : "createdAt");
+        return page + "|" + limit + "|" + effectiveSort + "|" + order.toLowerCase() + "|"
+                + (q == null ? "" : q.trim()) + "|" + (rentedBy == null ? "" : rentedBy.trim()) + "|"
+                + (fields == null ? "" : fields.replace(" ", ""));
+    }
+
+    /** null ako nema unosa za tekuću verziju kataloga. */
+    public Entry get(String key, long version) {
+        Entry e = cache.getIfPresent(key);
+        if (e != null && e.version() == version) {
+            hits.increment();
+            return e;
+        }
+        misses.increment();
+        return null;
+    }
+
+    public Entry put(String key, long version, HttpHeaders headers, Object body, FilterProvider filters) {
+        byte[] json;
+        try {
+            json = filters != null ? om.writer(filters).writeValueAsBytes(body) : om.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] gz = gzip(json);
+        Entry e = new Entry(version, HttpHeaders.readOnlyHttpHeaders(headers), json, gz.length < json.length ? gz : null);
+        cache.put(key, e);
+        return e;
+    }
+
+    public ResponseEntity<byte[]> respond(Entry e, HttpServletRequest request) {
+        boolean gzip = e.gzip() != null && AcceptEncoding.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        var res = ResponseEntity.ok()
+                .headers(e.headers())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) res.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return res.body(gzip ? e.gzip() : e.json());
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.sum(), m = misses.sum();
+        return Map.of(
+                "size", cache.estimatedSize(),
+                "hits", h,
+                "misses", m,
+                "hitRate", h + m == 0 ? 1.0 : h / (double) (h + m),
+                "evictions", cache.stats().evictionCount()
+        );
+    }
+
+    private static byte[] gzip(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
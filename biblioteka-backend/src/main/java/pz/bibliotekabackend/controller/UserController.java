@@ -1,28 +1,38 @@
 package pz.bibliotekabackend.controller;
 
-import jakarta.servlet.http.HttpServletRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import pz.bibliotekabackend.model.User;
-import pz.bibliotekabackend.security.JwtService;
+import pz.bibliotekabackend.security.AuthPrincipal;
+import pz.bibliotekabackend.service.UserDeletionJobs;
 import pz.bibliotekabackend.service.UserService;
 
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 public class UserController {
     private final UserService users;
-    private final JwtService jwt;
+    private final ObjectMapper om;
+    private final UserDeletionJobs deletionJobs;
 
+    // bez email-a: cela kolekcija se strimuje (JSON niz ili NDJSON)
     @GetMapping
-    public List<User> query(@RequestParam(required = false) String email,
-                            @RequestParam(required = false) String password) {
-        return users.query(email, password);
+    public ResponseEntity<?> query(@RequestParam(required = false) String email,
+                                   @RequestParam(required = false) String password,
+                                   @RequestHeader(value = "Accept", required = false) String accept) {
+        if (!StringUtils.hasText(email)) {
+            return JsonStreams.response(om, User.class, JsonStreams.wantsNdjson(accept), users::streamAll);
+        }
+        return ResponseEntity.ok(users.query(email, password));
     }
 
     @GetMapping("/{id}")
@@ -40,18 +50,9 @@ public class UserController {
     @PatchMapping("/{id}")
     public ResponseEntity<?> patch(@PathVariable String id,
                                    @RequestBody Map<String, Object> body,
-                                   HttpServletRequest request) {
-        String auth = request.getHeader("Authorization");
-        String callerId = null, callerRole = null;
-        if (auth != null && auth.startsWith("Bearer ")) {
-            try {
-                var claims = jwt.parse(auth.substring(7)).getPayload();
-                callerId = claims.getSubject();
-                callerRole = claims.get("role", String.class);
-            } catch (Exception ignored) {}
-        }
-        boolean isAdmin = callerRole != null && callerRole.equalsIgnoreCase("admin");
-        if (!isAdmin && (callerId == null || !callerId.equals(id))) {
+                                   AuthPrincipal caller) {
+        boolean isAdmin = caller != null && caller.isAdmin();
+        if (!isAdmin && (caller == null || !id.equals(caller.userId()))) {
             return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
         }
 
@@ -60,9 +61,24 @@ public class UserController {
     }
 
 
+    // ?async=true -> 202 + jobId, kaskada radi u pozadini (korisnici sa velikom istorijom)
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable String id) {
+    public ResponseEntity<?> delete(@PathVariable String id,
+                                    @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            var job = deletionJobs.submit(id);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/users/delete-jobs/" + job.id()))
+                    .body(Map.of("data", job));
+        }
         users.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    @GetMapping("/delete-jobs/{jobId}")
+    public ResponseEntity<?> deleteJob(@PathVariable String jobId) {
+        return deletionJobs.get(jobId)
+                .<ResponseEntity<?>>map(j -> ResponseEntity.ok(Map.of("data", j)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 }
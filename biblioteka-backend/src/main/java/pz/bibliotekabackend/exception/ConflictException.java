@@ -0,0 +1,8 @@
+package pz.bibliotekabackend.exception;
+
+/** Stanje se promenilo između čitanja i upisa (npr. knjigu je u međuvremenu uzeo neko drugi) -> 409. */
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -1,8 +1,11 @@
 package pz.bibliotekabackend.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.FieldType;
@@ -11,7 +14,15 @@ import org.springframework.data.mongodb.core.mapping.MongoId;
 import java.time.Instant;
 
 @Data
+@JsonFilter("fields") // ?fields= projekcija, vidi Projection
 @Document(collection = "books")
+// indeksi se kreiraju/proveravaju pri startu (MongoIndexManager)
+@CompoundIndex(name = "rentedBy_updatedAt", def = "{'rentedBy': 1, 'updatedAt': -1}")
+@CompoundIndex(name = "rentedBy_createdAt", def = "{'rentedBy': 1, 'createdAt': -1}")
+@CompoundIndex(name = "createdAt_id", def = "{'createdAt': 1, '_id': 1}")
+@CompoundIndex(name = "title_id", def = "{'title': 1, '_id': 1}")
+@CompoundIndex(name = "author_id", def = "{'author': 1, '_id': 1}")
+@CompoundIndex(name = "title_author", def = "{'title': 1, 'author': 1}") // prirodni ključ za uvoz
 public class Book {
 
     @MongoId(FieldType.OBJECT_ID)
@@ -29,6 +40,7 @@ public class Book {
     @CreatedDate
     private Instant createdAt;
 
+    @Indexed(name = "updatedAt") // watermark za inkrementalni izvoz
     @LastModifiedDate
     private Instant updatedAt;
 }
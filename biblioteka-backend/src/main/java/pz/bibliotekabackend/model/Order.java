@@ -1,11 +1,13 @@
 package pz.bibliotekabackend.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.FieldType;
@@ -14,15 +16,18 @@ import org.springframework.data.mongodb.core.mapping.MongoId;
 import java.time.Instant;
 
 @Data
+@JsonFilter("fields") // ?fields= projekcija, vidi Projection
 @Document(collection = "orders")
 public class Order {
 
     @MongoId(FieldType.OBJECT_ID)
     private String id;
 
+    @Indexed(name = "userId")
     @Field(targetType = FieldType.OBJECT_ID)
     private String userId;
 
+    @Indexed(name = "bookId")
     @Field(targetType = FieldType.OBJECT_ID)
     private String bookId;
 
@@ -40,6 +45,7 @@ public class Order {
     @CreatedDate
     private Instant createdAt;
 
+    @Indexed(name = "updatedAt") // watermark za inkrementalni izvoz
     @LastModifiedDate
     private Instant updatedAt;
 
@@ -1,11 +1,15 @@
 package pz.bibliotekabackend.model;
 
 import lombok.Data;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.FieldType;
 import org.springframework.data.mongodb.core.mapping.MongoId;
 
+import java.time.Instant;
 import java.util.List;
 
 @Data
@@ -16,10 +20,18 @@ public class User {
     private String id;
 
     private String name;
+    @Indexed(name = "email", unique = true)
     private String email;
     private String password;
     private String role = "user";
 
     @Field(targetType = FieldType.OBJECT_ID)
     private List<String> favorites;
+
+    @CreatedDate
+    private Instant createdAt;
+
+    @Indexed(name = "updatedAt") // watermark za inkrementalni izvoz
+    @LastModifiedDate
+    private Instant updatedAt;
 }
@@ -0,0 +1,279 @@
+package pz.bibliotekabackend.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import pz.bibliotekabackend.model.Book;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory invertovani indeks nad knjigama (title, author, year, description).
+ * Pretraga vraća samo id-jeve; dokumenti se posle čitaju iz Monga po id-ju.
+ * Podržava tačno, prefiksno i podstring poklapanje (preko trigrama rečnika).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndex {
+
+    // bitovi polja u kojima se token pojavljuje
+    static final int TITLE = 1, AUTHOR = 2, YEAR = 4, DESCRIPTION = 8;
+
+    private static final double EXACT = 1.0, PREFIX = 0.7, SUBSTRING = 0.4;
+
+    private final MongoTemplate mongo;
+
+    @Value("${app.search.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup = true;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Segment current = new Segment();
+    // izmene pristigle dok traje rebuild (null = nema rebuild-a)
+    private Map<String, Optional<Doc>> pending;
+    private volatile boolean ready;
+
+    public record Hits(List<String> ids, long total) {}
+
+    public boolean isReady() { return ready; }
+
+    public int size() {
+        lock.readLock().lock();
+        try { return current.docs.size(); } finally { lock.readLock().unlock(); }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!rebuildOnStartup) return;
+        Thread t = new Thread(this::rebuild, "book-search-rebuild");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Ponovo gradi ceo indeks iz kolekcije "books"; pretraga radi i tokom gradnje (stari segment). */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try { pending = new LinkedHashMap<>(); } finally { lock.writeLock().unlock(); }
+
+        Segment fresh = new Segment();
+        try {
+            Query q = new Query();
+            q.fields().include("title", "author", "year", "description", "createdAt");
+            long t0 = System.nanoTime();
+            try (Stream<Book> s = mongo.stream(q, Book.class)) {
+                s.forEach(b -> fresh.put(Doc.of(b)));
+            }
+
+            lock.writeLock().lock();
+            try {
+                pending.forEach((id, d) -> {
+                    if (d.isPresent()) fresh.put(d.get());
+                    else fresh.remove(id);
+                });
+                current = fresh;
+                pending = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Search indeks izgrađen: {} knjiga, {} tokena za {} ms",
+                    fresh.docs.size(), fresh.postings.size(), (System.nanoTime() - t0) / 1_000_000);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try { pending = null; } finally { lock.writeLock().unlock(); }
+            log.warn("Search indeks nije izgrađen, pretraga ide preko Monga: {}", e.getMessage());
+        }
+    }
+
+    public void index(Book b) {
+        if (b == null || b.getId() == null) return;
+        Doc d = Doc.of(b);
+        lock.writeLock().lock();
+        try {
+            current.put(d);
+            if (pending != null) pending.put(d.id, Optional.of(d));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        if (id == null) return;
+        lock.writeLock().lock();
+        try {
+            current.remove(id);
+            if (pending != null) pending.put(id, Optional.empty());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Svi termini upita moraju da se poklope (AND). Bez sortField-a (ili "relevance")
+     * rezultati su poređani po skoru, inače po polju pa po skoru.
+     */
+    public Hits search(String query, String sortField, Sort.Direction dir, int offset, int limit) {
+        List<String> terms = TextFolding.tokenize(query);
+        if (terms.isEmpty()) return new Hits(List.of(), 0);
+
+        List<Map.Entry<Doc, Double>> matched;
+        lock.readLock().lock();
+        try {
+            Map<String, Double> scores = null;
+            for (String term : new LinkedHashSet<>(terms)) {
+                Map<String, Double> termScores = current.match(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (var e : scores.entrySet()) e.setValue(e.getValue() + termScores.get(e.getKey()));
+                }
+                if (scores.isEmpty()) break;
+            }
+            matched = new ArrayList<>(scores.size());
+            for (var e : scores.entrySet()) matched.add(Map.entry(current.docs.get(e.getKey()), e.getValue()));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matched.sort(comparator(sortField, dir));
+
+        int from = Math.min(Math.max(0, offset), matched.size());
+        int to = Math.min(matched.size(), from + Math.max(0, limit));
+        List<String> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) ids.add(matched.get(i).getKey().id);
+        return new Hits(ids, matched.size());
+    }
+
+    private static Comparator<Map.Entry<Doc, Double>> comparator(String sortField, Sort.Direction dir) {
+        Comparator<Map.Entry<Doc, Double>> byScore =
+                Comparator.comparing((Map.Entry<Doc, Double> e) -> e.getValue()).reversed();
+        Comparator<Map.Entry<Doc, Double>> byId = Comparator.comparing(e -> e.getKey().id);
+
+        Comparator<Doc> field = switch (sortField == null ? "" : sortField) {
+            case "createdAt" -> Comparator.comparing(d -> d.createdAt, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "title" -> Comparator.comparing(d -> d.title, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "author" -> Comparator.comparing(d -> d.author, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "year" -> Comparator.comparing(d -> d.year, Comparator.nullsFirst(Comparator.naturalOrder()));
+            default -> null;
+        };
+        if (field == null) return byScore.thenComparing(byId);
+        if (dir == Sort.Direction.DESC) field = field.reversed();
+        Comparator<Doc> f = field;
+        return Comparator.<Map.Entry<Doc, Double>, Doc>comparing(Map.Entry::getKey, f)
+                .thenComparing(byScore)
+                .thenComparing(byId);
+    }
+
+    private static double fieldWeight(int bits) {
+        if ((bits & TITLE) != 0) return 3.0;
+        if ((bits & AUTHOR) != 0) return 2.0;
+        if ((bits & YEAR) != 0) return 1.5;
+        return 1.0;
+    }
+
+    // ================= interne strukture =================
+
+    record Doc(String id, String title, String author, String year, Instant createdAt, Map<String, Integer> tokens) {
+        static Doc of(Book b) {
+            Map<String, Integer> tokens = new HashMap<>();
+            addTokens(tokens, b.getTitle(), TITLE);
+            addTokens(tokens, b.getAuthor(), AUTHOR);
+            addTokens(tokens, b.getYear(), YEAR);
+            addTokens(tokens, b.getDescription(), DESCRIPTION);
+            return new Doc(b.getId(), b.getTitle(), b.getAuthor(), b.getYear(), b.getCreatedAt(), tokens);
+        }
+
+        private static void addTokens(Map<String, Integer> tokens, String text, int bit) {
+            for (String t : TextFolding.tokenize(text)) tokens.merge(t, bit, (a, c) -> a | c);
+        }
+    }
+
+    private static final class Segment {
+        final Map<String, Doc> docs = new HashMap<>();
+        // token -> (docId -> bitovi polja)
+        final NavigableMap<String, Map<String, Integer>> postings = new TreeMap<>();
+        // trigram -> tokeni rečnika koji ga sadrže
+        final Map<String, Set<String>> grams = new HashMap<>();
+
+        void put(Doc d) {
+            remove(d.id);
+            docs.put(d.id, d);
+            d.tokens.forEach((token, bits) -> {
+                Map<String, Integer> p = postings.get(token);
+                if (p == null) {
+                    p = new HashMap<>(4);
+                    postings.put(token, p);
+                    for (String g : trigrams(token)) grams.computeIfAbsent(g, k -> new HashSet<>()).add(token);
+                }
+                p.put(d.id, bits);
+            });
+        }
+
+        void remove(String id) {
+            Doc old = docs.remove(id);
+            if (old == null) return;
+            for (String token : old.tokens.keySet()) {
+                Map<String, Integer> p = postings.get(token);
+                if (p == null) continue;
+                p.remove(id);
+                if (p.isEmpty()) {
+                    postings.remove(token);
+                    for (String g : trigrams(token)) {
+                        Set<String> s = grams.get(g);
+                        if (s != null && s.remove(token) && s.isEmpty()) grams.remove(g);
+                    }
+                }
+            }
+        }
+
+        /** docId -> najbolji skor ovog termina. */
+        Map<String, Double> match(String term) {
+            Map<String, Double> out = new HashMap<>();
+            // tačno + prefiks: opseg u sortiranom rečniku
+            for (var e : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                double w = e.getKey().length() == term.length() ? EXACT : PREFIX;
+                collect(out, e.getValue(), w);
+            }
+            // podstring: kandidati iz preseka trigrama, pa provera contains
+            if (term.length() >= 3) {
+                Set<String> candidates = null;
+                for (String g : trigrams(term)) {
+                    Set<String> s = grams.get(g);
+                    if (s == null) return out;
+                    if (candidates == null) candidates = new HashSet<>(s);
+                    else candidates.retainAll(s);
+                    if (candidates.isEmpty()) return out;
+                }
+                for (String token : candidates) {
+                    if (!token.startsWith(term) && token.contains(term)) {
+                        collect(out, postings.get(token), SUBSTRING);
+                    }
+                }
+            }
+            return out;
+        }
+
+        private static void collect(Map<String, Double> out, Map<String, Integer> posting, double matchWeight) {
+            if (posting == null) return;
+            posting.forEach((docId, bits) -> out.merge(docId, matchWeight * fieldWeight(bits), Math::max));
+        }
+
+        private static List<String> trigrams(String token) {
+            if (token.length() < 3) return List.of();
+            List<String> out = new ArrayList<>(token.length() - 2);
+            for (int i = 0; i + 3 <= token.length(); i++) out.add(token.substring(i, i + 3));
+            return out;
+        }
+    }
+}
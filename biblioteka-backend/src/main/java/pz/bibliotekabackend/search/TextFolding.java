@@ -0,0 +1,67 @@
+package pz.bibliotekabackend.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizacija teksta za pretragu: ćirilica -> latinica, bez dijakritika, mala slova.
+ * "Šćepan", "Шћепан" i "scepan" daju isti token.
+ */
+public final class TextFolding {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Map<Character, String> CYRILLIC = Map.ofEntries(
+            Map.entry('а', "a"), Map.entry('б', "b"), Map.entry('в', "v"), Map.entry('г', "g"),
+            Map.entry('д', "d"), Map.entry('ђ', "dj"), Map.entry('е', "e"), Map.entry('ж', "z"),
+            Map.entry('з', "z"), Map.entry('и', "i"), Map.entry('ј', "j"), Map.entry('к', "k"),
+            Map.entry('л', "l"), Map.entry('љ', "lj"), Map.entry('м', "m"), Map.entry('н', "n"),
+            Map.entry('њ', "nj"), Map.entry('о', "o"), Map.entry('п', "p"), Map.entry('р', "r"),
+            Map.entry('с', "s"), Map.entry('т', "t"), Map.entry('ћ', "c"), Map.entry('у', "u"),
+            Map.entry('ф', "f"), Map.entry('х', "h"), Map.entry('ц', "c"), Map.entry('ч', "c"),
+            Map.entry('џ', "dz"), Map.entry('ш', "s"),
+            // ruska slova koja se javljaju u imenima autora
+            Map.entry('й', "j"), Map.entry('ы', "y"), Map.entry('э', "e"), Map.entry('ю', "ju"),
+            Map.entry('я', "ja"), Map.entry('ё', "e"), Map.entry('щ', "sc"), Map.entry('ъ', ""),
+            Map.entry('ь', "")
+    );
+
+    private TextFolding() {}
+
+    public static String fold(String s) {
+        if (s == null || s.isEmpty()) return "";
+        String lower = s.toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(lower.length() + 4);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            String cyr = CYRILLIC.get(c);
+            if (cyr != null) sb.append(cyr);
+            else if (c == 'đ') sb.append("dj");
+            else if (c == 'ß') sb.append("ss");
+            else sb.append(c);
+        }
+        String decomposed = Normalizer.normalize(sb, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    /** Foldovan tekst razbijen na tokene (slova i cifre). */
+    public static List<String> tokenize(String s) {
+        String folded = fold(s);
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean word = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                out.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+}
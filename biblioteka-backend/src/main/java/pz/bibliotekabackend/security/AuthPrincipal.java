@@ -0,0 +1,21 @@
+package pz.bibliotekabackend.security;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Pozivalac iz JWT-a, parsiran jednom po zahtevu (vidi AuthPrincipals).
+ * U kontrolerima se prima kao parametar metode; null kad zahtev nema ispravan token.
+ */
+public record AuthPrincipal(String userId, String role, String email) {
+
+    public static AuthPrincipal of(Claims claims) {
+        String role = claims.get("role", String.class);
+        return new AuthPrincipal(claims.getSubject(),
+                role == null || role.isBlank() ? "user" : role,
+                claims.get("email", String.class));
+    }
+
+    public boolean isAdmin() {
+        return "admin".equalsIgnoreCase(role);
+    }
+}
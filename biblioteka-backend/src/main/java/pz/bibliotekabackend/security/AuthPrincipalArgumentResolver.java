@@ -0,0 +1,32 @@
+package pz.bibliotekabackend.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/** Parametar tipa AuthPrincipal u kontroleru -> pozivalac iz tokena (ili null). */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Component
+@RequiredArgsConstructor
+public class AuthPrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final AuthPrincipals principals;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.getParameterType() == AuthPrincipal.class;
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mav,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        HttpServletRequest req = webRequest.getNativeRequest(HttpServletRequest.class);
+        return req == null ? null : principals.resolve(req).orElse(null);
+    }
+}
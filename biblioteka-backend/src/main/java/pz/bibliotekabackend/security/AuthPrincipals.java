@@ -0,0 +1,57 @@
+package pz.bibliotekabackend.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Optional;
+
+/**
+ * Jedno mesto gde se Authorization header pretvara u AuthPrincipal. Rezultat (i "nema tokena")
+ * se pamti kao atribut zahteva, pa filter, kontroleri i servisi dele isti parse – radi i kad je
+ * app.security.enabled=false.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthPrincipals {
+
+    static final String ATTRIBUTE = AuthPrincipal.class.getName();
+
+    private final JwtService jwt;
+
+    public Optional<AuthPrincipal> resolve(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Optional<AuthPrincipal> cached = (Optional<AuthPrincipal>) request.getAttribute(ATTRIBUTE);
+        if (cached != null) return cached;
+
+        Optional<AuthPrincipal> p = parse(request.getHeader("Authorization"));
+        request.setAttribute(ATTRIBUTE, p);
+        return p;
+    }
+
+    /** WebFlux: isto pamćenje, ali u atributima exchange-a. */
+    public Optional<AuthPrincipal> resolve(ServerWebExchange exchange) {
+        @SuppressWarnings("unchecked")
+        Optional<AuthPrincipal> cached = (Optional<AuthPrincipal>) exchange.getAttributes().get(ATTRIBUTE);
+        if (cached != null) return cached;
+
+        Optional<AuthPrincipal> p = parse(exchange.getRequest().getHeaders().getFirst("Authorization"));
+        exchange.getAttributes().put(ATTRIBUTE, p);
+        return p;
+    }
+
+    private Optional<AuthPrincipal> parse(String auth) {
+        if (auth != null && auth.startsWith("Bearer ")) {
+            String token = auth.substring(7).trim();
+            if (!token.isEmpty()) {
+                try {
+                    return Optional.of(AuthPrincipal.of(jwt.claims(token)));
+                } catch (Exception ex) {
+                    // neispravan/istekao token -> anoniman
+                }
+            }
+        }
+        return Optional.empty();
+    }
+}
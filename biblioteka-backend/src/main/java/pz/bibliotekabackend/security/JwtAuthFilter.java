@@ -1,12 +1,11 @@
 package pz.bibliotekabackend.security;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -16,11 +15,12 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.List;
 
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Component
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
-    private final JwtService jwt;
+    private final AuthPrincipals principals;
 
     @Override
     protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
@@ -32,27 +32,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             return;
         }
 
-        String auth = req.getHeader("Authorization");
-        if (auth != null && auth.startsWith("Bearer ")) {
-            String token = auth.substring(7).trim();
-            if (!token.isEmpty()) {
-                try {
-                    Jws<Claims> jws = jwt.parse(token);
-                    Claims claims = jws.getPayload();
-                    String userId = claims.getSubject();
-                    String role = claims.get("role", String.class);
-                    if (role == null || role.isBlank()) role = "USER";
-
-                    var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()));
-                    var authentication = new UsernamePasswordAuthenticationToken(userId, token, authorities);
-
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                } catch (Exception ex) {
-                    // neispravan/istekao token -> bez autentikacije
-                    SecurityContextHolder.clearContext();
-                }
-            }
-        }
+        // parse se pamti na zahtevu -> kontroleri (AuthPrincipal parametar) ne parsiraju ponovo
+        principals.resolve(req).ifPresentOrElse(p -> {
+            var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + p.role().toUpperCase()));
+            var authentication = new UsernamePasswordAuthenticationToken(p.userId(), null, authorities);
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }, SecurityContextHolder::clearContext);
 
         chain.doFilter(req, res);
     }
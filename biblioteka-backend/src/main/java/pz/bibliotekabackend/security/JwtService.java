@@ -1,5 +1,9 @@
 package pz.bibliotekabackend.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,19 +12,54 @@ import pz.bibliotekabackend.model.User;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
 @Service
 public class JwtService {
 
     private final SecretKey key;
     private final long expirationMs;
+    // JwtParser je immutable i thread-safe -> jedan za ceo servis
+    private final JwtParser parser;
+
+    // SHA-256(token) -> verifikovani claims; unos ističe tačno na exp tokena
+    private final Cache<String, Claims> verified;
+    // opozvani tokeni (digest -> exp) i korisnici (userId -> trenutak opoziva); bez ograničenja veličine,
+    // jer izbačen unos = opoziv koji više ne važi. Token ističe na svoj exp, korisnik posle najdužeg roka tokena.
+    // Ovo je lokalna kopija kolekcije "revocations": opoziv na jednoj instanci važi na svim (RevocationSync).
+    private final Cache<String, Long> revokedTokens;
+    private final Cache<String, Long> revokedUsers;
+    // lokalni opozivi koje RevocationSync još nije upisao u Mongo (odatle ih preuzimaju ostale instance)
+    private final Queue<Revocation> unpublished = new ConcurrentLinkedQueue<>();
+
+    /** Opoziv za deljenje između instanci: token (key = digest) ili korisnik (key = userId); at i expiresAt u ms. */
+    public record Revocation(boolean user, String key, long at, long expiresAt) {}
 
     public JwtService(
             @Value("${app.jwt.secret}") String secret,
-            @Value("${app.jwt.expiration-ms:3600000}") long expirationMs) {
+            @Value("${app.jwt.expiration-ms:3600000}") long expirationMs,
+            @Value("${app.jwt.cache.max-size:10000}") long cacheSize) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new At<Claims>(JwtService::expiresAt))
+                .recordStats()
+                .build();
+        this.revokedTokens = Caffeine.newBuilder().expireAfter(new At<Long>(exp -> exp)).build();
+        this.revokedUsers = Caffeine.newBuilder().expireAfter(new At<Long>(at -> at + expirationMs)).build();
     }
 
     public String generate(User u) {
@@ -36,11 +75,124 @@ public class JwtService {
                 .compact();
     }
 
+    /** Puna verifikacija (potpis + JSON), bez keša. */
     public Jws<Claims> parse(String token) {
-        return Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token);
+        return parser.parseSignedClaims(token);
     }
-}
 
+    /**
+     * Verifikovani claims sa kešom: isti token se verifikuje jednom dok ne istekne.
+     * Opozvan token ili token korisnika opozvanog posle izdavanja -> JwtException.
+     */
+    public Claims claims(String token) {
+        String digest = digest(token);
+        if (revokedTokens.getIfPresent(digest) != null) throw new JwtException("Token je opozvan");
+
+        Claims c = verified.get(digest, d -> parse(token).getPayload());
+        if (isRevokedUser(c)) {
+            verified.invalidate(digest);
+            throw new JwtException("Token je opozvan");
+        }
+        return c;
+    }
+
+    /**
+     * Odjava: token više ne prolazi (do svog exp). Opoziva se samo token koji prolazi verifikaciju,
+     * da nepotpisani ili istekli stringovi ne pune listu; vraća false ako token nije važeći.
+     */
+    public boolean revoke(String token) {
+        Claims c;
+        try {
+            c = claims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+        Revocation r = new Revocation(false, digest(token), System.currentTimeMillis(), expiresAt(c));
+        apply(r);
+        unpublished.add(r);
+        return true;
+    }
+
+    /** Svi tokeni korisnika izdati do sada prestaju da važe (npr. promena lozinke, blokada). */
+    public void revokeUser(String userId) {
+        // iat je u sekundama -> opoziv važi za sve izdate do kraja tekuće sekunde
+        long at = System.currentTimeMillis() / 1000 * 1000;
+        Revocation r = new Revocation(true, userId, at, at + expirationMs);
+        apply(r);
+        unpublished.add(r);
+    }
+
+    /** Opoziv (lokalni ili sa druge instance) ulazi u listu; ponovna primena istog nema efekta. */
+    void apply(Revocation r) {
+        if (r.expiresAt() <= System.currentTimeMillis()) return;
+        if (r.user()) {
+            // noviji opoziv istog korisnika pokriva stariji
+            revokedUsers.asMap().merge(r.key(), r.at(), Math::max);
+            verified.asMap().values().removeIf(c -> r.key().equals(c.getSubject()));
+        } else {
+            revokedTokens.put(r.key(), r.expiresAt());
+            verified.invalidate(r.key());
+        }
+    }
+
+    List<Revocation> drainUnpublished() {
+        List<Revocation> out = new ArrayList<>();
+        Revocation r;
+        while ((r = unpublished.poll()) != null) out.add(r);
+        return out;
+    }
+
+    void requeue(Collection<Revocation> rs) { unpublished.addAll(rs); }
+
+    public Map<String, Object> cacheStats() {
+        CacheStats s = verified.stats();
+        return Map.of(
+                "size", verified.estimatedSize(),
+                "hits", s.hitCount(),
+                "misses", s.missCount(),
+                "hitRate", s.hitRate(),
+                "revokedTokens", revokedTokens.estimatedSize(),
+                "revokedUsers", revokedUsers.estimatedSize()
+        );
+    }
+
+    private boolean isRevokedUser(Claims c) {
+        Long revokedAt = c.getSubject() == null ? null : revokedUsers.getIfPresent(c.getSubject());
+        if (revokedAt == null) return false;
+        Date iat = c.getIssuedAt();
+        return iat == null || iat.getTime() <= revokedAt;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] h = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(h);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // bez exp: token ne ističe, ali ga keš ne drži duže od sat vremena
+    private static long expiresAt(Claims c) {
+        Date exp = c.getExpiration();
+        return exp != null ? exp.getTime() : System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+    }
+
+    /** Unos ističe u zadatom trenutku (epoch ms) izvedenom iz vrednosti; čitanje ga ne produžava. */
+    private static final class At<V> implements Expiry<String, V> {
+        private final ToLongFunction<V> expiresAtMs;
+
+        At(ToLongFunction<V> expiresAtMs) { this.expiresAtMs = expiresAtMs; }
+
+        @Override
+        public long expireAfterCreate(String k, V v, long now) {
+            return Math.max(0, TimeUnit.MILLISECONDS.toNanos(expiresAtMs.applyAsLong(v) - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String k, V v, long now, long current) { return expireAfterCreate(k, v, now); }
+
+        @Override
+        public long expireAfterRead(String k, V v, long now, long current) { return current; }
+    }
+}
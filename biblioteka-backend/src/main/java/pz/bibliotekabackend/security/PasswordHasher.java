@@ -0,0 +1,130 @@
+package pz.bibliotekabackend.security;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * BCrypt hash/verify na posebnom, ograničenom pool-u. Request thread samo čeka rezultat svog posla;
+ * kad su svi "bcrypt" thread-ovi zauzeti i red pun, zahtev odmah dobija 503 (TaskRejectedException),
+ * pa talas prijava ne može da zauzme sve Tomcat thread-ove.
+ * Rehash posle prijave ide na zaseban thread sa malim redom: ne zauzima mesta prijavama,
+ * a višak se odbacuje (ponoviće se na sledećoj prijavi).
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolTaskExecutor executor;
+    private final ThreadPoolTaskExecutor rehash;
+    private final long timeoutMs;
+
+    public PasswordHasher(BCryptPasswordEncoder encoder,
+                          @Value("${app.password.threads:0}") int threads,
+                          @Value("${app.password.queue:64}") int queue,
+                          @Value("${app.password.rehash-queue:16}") int rehashQueue,
+                          @Value("${app.password.timeout:5s}") Duration timeout) {
+        this.encoder = encoder;
+        this.timeoutMs = timeout.toMillis();
+        int n = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("bcrypt-");
+        executor.setCorePoolSize(n);
+        executor.setMaxPoolSize(n);
+        executor.setQueueCapacity(queue);
+        executor.initialize();
+
+        this.rehash = new ThreadPoolTaskExecutor();
+        rehash.setThreadNamePrefix("bcrypt-rehash-");
+        rehash.setCorePoolSize(1);
+        rehash.setMaxPoolSize(1);
+        rehash.setQueueCapacity(rehashQueue);
+        rehash.initialize();
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith("$2");
+    }
+
+    public String hash(String raw) {
+        return await(() -> encoder.encode(raw));
+    }
+
+    /** BCrypt hash ili (legacy) plaintext, poređenje u konstantnom vremenu. */
+    public boolean matches(String raw, String stored) {
+        if (raw == null || stored == null) return false;
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(raw.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        return await(() -> encoder.matches(raw, stored));
+    }
+
+    /** Plaintext ili hash slabiji od tekućeg cost-a. */
+    public boolean needsUpgrade(String stored) {
+        return !isHashed(stored) || encoder.upgradeEncoding(stored);
+    }
+
+    /**
+     * Posle uspešne prijave: novi hash se računa u pozadini i predaje store-u, bez produžavanja odgovora.
+     * Ako je red za rehash pun, preskače se – pokušaće ponovo na sledećoj prijavi.
+     */
+    public void upgradeLater(String raw, Consumer<String> store) {
+        try {
+            rehash.execute(() -> {
+                try {
+                    store.accept(encoder.encode(raw));
+                } catch (RuntimeException e) {
+                    log.warn("Rehash lozinke nije uspeo: {}", e.getMessage());
+                }
+            });
+        } catch (TaskRejectedException ignored) {
+            // pun red -> sledeći put
+        }
+    }
+
+    public Map<String, Object> stats() {
+        var pool = executor.getThreadPoolExecutor();
+        return Map.of(
+                "threads", pool.getMaximumPoolSize(),
+                "active", pool.getActiveCount(),
+                "queued", pool.getQueue().size(),
+                "completed", pool.getCompletedTaskCount(),
+                "rehashQueued", rehash.getThreadPoolExecutor().getQueue().size()
+        );
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        rehash.shutdown();
+    }
+
+    private <T> T await(Callable<T> work) {
+        Future<T> f = executor.submit(work); // pun red -> TaskRejectedException -> 503
+        try {
+            return f.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            f.cancel(true);
+            throw new TaskRejectedException("BCrypt posao nije završen na vreme", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            f.cancel(true);
+            throw new TaskRejectedException("Prekinuto čekanje na BCrypt", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
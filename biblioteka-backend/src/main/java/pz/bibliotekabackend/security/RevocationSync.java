@@ -0,0 +1,90 @@
+package pz.bibliotekabackend.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Opozivi tokena dele se između instanci preko kolekcije "revocations" (TTL indeks na expiresAt).
+ * Svaka instanca upisuje svoje nove opozive i učitava tuđe upisane od prethodne provere;
+ * prva provera po startu učitava sve koji još važe, pa opoziv preživljava i restart.
+ * Opoziv na jednoj instanci važi na ostalim najkasnije posle dva intervala app.shared-state.poll-ms.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RevocationSync {
+
+    public static final String COLLECTION = "revocations";
+
+    private final MongoTemplate mongo;
+    private final JwtService jwt;
+
+    @Value("${app.shared-state.enabled:true}")
+    private boolean enabled = true;
+
+    // createdAt piše instanca koja opoziva, po svom satu: prozor pokriva razliku satova
+    @Value("${app.shared-state.lag:30s}")
+    private Duration lag = Duration.ofSeconds(30);
+
+    private Instant lastPoll;
+    private boolean failing;
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.shared-state.poll-ms:1000}")
+    public synchronized void poll() {
+        if (!enabled) return;
+        Instant started = Instant.now();
+        List<JwtService.Revocation> mine = jwt.drainUnpublished();
+        try {
+            publish(mine, started);
+            Query q = new Query(Criteria.where("expiresAt").gt(Date.from(started)));
+            if (lastPoll != null) q.addCriteria(Criteria.where("createdAt").gte(Date.from(lastPoll.minus(lag))));
+            for (Document d : mongo.find(q, Document.class, COLLECTION)) {
+                jwt.apply(new JwtService.Revocation(d.getBoolean("user", false), d.getString("key"),
+                        number(d, "at"), d.getDate("expiresAt").getTime()));
+            }
+            lastPoll = started;
+            if (failing) log.info("Deljeni opozivi tokena ponovo dostupni");
+            failing = false;
+        } catch (RuntimeException e) {
+            jwt.requeue(mine);
+            if (!failing) log.warn("Deljeni opozivi tokena nisu dostupni: {}", e.getMessage());
+            failing = true;
+        }
+    }
+
+    private void publish(List<JwtService.Revocation> rs, Instant now) {
+        if (rs.isEmpty()) return;
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        for (JwtService.Revocation r : rs) {
+            String id = (r.user() ? "user:" : "token:") + r.key();
+            // ponovljen opoziv korisnika pomera trenutak opoziva unapred, nikad unazad
+            Update u = new Update()
+                    .set("user", r.user())
+                    .set("key", r.key())
+                    .max("at", r.at())
+                    .max("expiresAt", new Date(r.expiresAt()))
+                    .set("createdAt", Date.from(now));
+            bulk.upsert(new Query(Criteria.where("_id").is(id)), u);
+        }
+        bulk.execute();
+    }
+
+    private static long number(Document d, String key) {
+        Object v = d.get(key);
+        return v instanceof Number n ? n.longValue() : 0;
+    }
+}
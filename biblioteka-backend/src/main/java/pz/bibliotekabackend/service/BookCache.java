@@ -0,0 +1,103 @@
+package pz.bibliotekabackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.repository.BookRepository;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through keš knjiga po id-ju (Caffeine, W-TinyLFU, ograničen brojem i TTL-om).
+ * Vraćene instance su deljene – tretirati ih kao read-only; svaki upis knjige mora da pozove invalidate.
+ */
+@Component
+public class BookCache {
+
+    private final BookRepository repo;
+    private final Cache<String, Book> cache;
+    // raste pri svakom invalidate-u; bulk punjenje po njemu vidi da li je tokom čitanja nešto izbačeno
+    private final AtomicLong generation = new AtomicLong();
+
+    public BookCache(BookRepository repo,
+                     @Value("${app.cache.books.max-size:10000}") long maxSize,
+                     @Value("${app.cache.books.ttl:10m}") Duration ttl) {
+        this.repo = repo;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Book> get(String id) {
+        if (id == null) return Optional.empty();
+        return Optional.ofNullable(cache.get(id, k -> repo.findById(k).orElse(null)));
+    }
+
+    /** Samo keš, bez odlaska u Mongo. */
+    public Optional<Book> peek(String id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    /**
+     * Jedan $in upit za sve što nije u kešu; rezultat je u redosledu ids, bez nepostojećih.
+     * Invalidate koji stigne između čitanja iz Monga i upisa u keš ne sme da se izgubi: ako se
+     * generacija promenila tokom punjenja, upravo upisani unosi se izbacuju (vraćaju se samo pozivaocu).
+     */
+    public List<Book> getAll(Collection<String> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<String, Book> found = new HashMap<>(cache.getAllPresent(ids));
+        Set<String> missing = new LinkedHashSet<>();
+        for (String id : ids) if (!found.containsKey(id)) missing.add(id);
+        if (!missing.isEmpty()) {
+            long gen = generation.get();
+            Map<String, Book> loaded = new HashMap<>();
+            repo.findAllById(missing).forEach(b -> loaded.put(b.getId(), b));
+            cache.putAll(loaded);
+            // upis pa provera: invalidate posle provere i sam izbacuje unos
+            if (generation.get() != gen) cache.invalidateAll(loaded.keySet());
+            found.putAll(loaded);
+        }
+        List<Book> out = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Book b = found.get(id);
+            if (b != null) out.add(b);
+        }
+        return out;
+    }
+
+    public void invalidate(String id) {
+        if (id == null) return;
+        generation.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<String> ids) {
+        generation.incrementAndGet();
+        cache.invalidateAll(ids);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats s = cache.stats();
+        return Map.of(
+                "size", cache.estimatedSize(),
+                "hits", s.hitCount(),
+                "misses", s.missCount(),
+                "hitRate", s.hitRate(),
+                "evictions", s.evictionCount(),
+                "loadFailures", s.loadFailureCount(),
+                "averageLoadPenaltyMs", s.averageLoadPenalty() / 1_000_000.0
+        );
+    }
+}
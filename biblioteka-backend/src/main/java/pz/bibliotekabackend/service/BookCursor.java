@@ -0,0 +1,54 @@
+package pz.bibliotekabackend.service;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Neprozirni "after" token za keyset paginaciju: sort polje + smer + poslednja vrednost + _id.
+ * Vrednost je null kada poslednja knjiga nema sort polje.
+ */
+public record BookCursor(String sortField, Sort.Direction direction, String value, String id) {
+
+    public static final Set<String> SORT_FIELDS = Set.of("createdAt", "title", "author");
+
+    private static final char SEP = '\u0000';
+
+    public String encode() {
+        String raw = sortField + SEP + direction.name() + SEP + (value == null ? "" : "v" + value) + SEP + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(String.valueOf(SEP), -1);
+            if (parts.length != 4 || !SORT_FIELDS.contains(parts[0]) || parts[3].isEmpty()) {
+                throw new IllegalArgumentException("Neispravan cursor");
+            }
+            String value = parts[2].isEmpty() ? null : parts[2].substring(1);
+            BookCursor c = new BookCursor(parts[0], Sort.Direction.valueOf(parts[1]), value, parts[3]);
+            c.typedValue(); // proveri da je createdAt broj
+            return c;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Neispravan cursor", e);
+        }
+    }
+
+    /** Vrednost spremna za Mongo upit (createdAt je Instant, ostalo string). */
+    public Object typedValue() {
+        if (value == null) return null;
+        return "createdAt".equals(sortField) ? Instant.ofEpochMilli(Long.parseLong(value)) : value;
+    }
+
+    static String keyOf(String sortField, Instant createdAt, String title, String author) {
+        return switch (sortField) {
+            case "createdAt" -> createdAt == null ? null : String.valueOf(createdAt.toEpochMilli());
+            case "title" -> title;
+            default -> author;
+        };
+    }
+}
@@ -0,0 +1,285 @@
+package pz.bibliotekabackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import pz.bibliotekabackend.exception.ConflictException;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.search.BookSearchIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Masovni uvoz knjiga iz CSV-a ili NDJSON-a. Ulaz se čita zapis po zapis i upisuje u batch-evima
+ * (unordered bulkWrite, upsert po prirodnom ključu title + author). Čitanje sledećeg batch-a počinje
+ * tek kad Mongo potvrdi prethodni, pa brzina uploada prati brzinu upisa (backpressure preko TCP-a).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookImport {
+
+    public enum Format {
+        CSV, NDJSON;
+
+        /** Iz Content-Type-a, ekstenzije fajla ili eksplicitnog ?format=. */
+        public static Format detect(String format, String contentTypeOrName) {
+            String s = (StringUtils.hasText(format) ? format : Objects.toString(contentTypeOrName, ""))
+                    .toLowerCase(Locale.ROOT);
+            if (s.contains("csv")) return CSV;
+            if (s.contains("ndjson") || s.contains("jsonl") || s.contains("json")) return NDJSON;
+            throw new IllegalArgumentException("Nepoznat format uvoza (očekuje se CSV ili NDJSON)");
+        }
+    }
+
+    /** Jedan pročitan zapis: vrednosti po koloni ili greška parsiranja. */
+    public record RawRow(long row, Map<String, String> values, String error) {}
+
+    public record RowError(long row, String message) {}
+
+    /** error != null: uvoz je prekinut (Mongo, prekinut upload); do tada upisani batch-evi ostaju. */
+    public record Report(boolean running, long rows, long inserted, long updated, long failed,
+                         List<RowError> errors, long millis, String error) {}
+
+    static final int MAX_ERRORS = 100;
+    private static final Pattern YEAR = Pattern.compile("-?\\d{1,4}");
+
+    private final MongoTemplate mongo;
+    private final ObjectMapper om;
+    private final BookSearchIndex searchIndex;
+    private final CatalogCounters counters;
+    private final BookCache cache;
+    private final CatalogVersion catalogVersion;
+
+    @Value("${app.import.batch-size:1000}")
+    private int defaultBatchSize = 1000;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Report last;
+
+    /** Tekući ili poslednji uvoz (null ako ga nije bilo). */
+    public Report progress() { return last; }
+
+    public Report run(InputStream in, Format format, Integer batchSize) {
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException("Uvoz je već u toku");
+        }
+        try {
+            int size = batchSize != null && batchSize > 0 ? Math.min(batchSize, 10_000) : defaultBatchSize;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+            Iterator<RawRow> rows = format == Format.CSV ? new CsvRows(reader) : new NdjsonRows(reader);
+            return importRows(rows, size);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    Report importRows(Iterator<RawRow> rows, int batchSize) {
+        long t0 = System.nanoTime();
+        Counts c = new Counts();
+        Map<String, Pending> batch = new LinkedHashMap<>();
+        String error = null;
+
+        try {
+            while (rows.hasNext()) {
+                RawRow r = rows.next();
+                c.rows++;
+                if (r.error() != null) {
+                    c.fail(r.row(), r.error());
+                    continue;
+                }
+                try {
+                    Book b = normalize(r.values());
+                    // isti ključ dvaput u batch-u -> poslednji pobeđuje (inače bi unordered upsert napravio duplikat)
+                    batch.put(key(b), new Pending(r.row(), b));
+                } catch (IllegalArgumentException e) {
+                    c.fail(r.row(), e.getMessage());
+                }
+                if (batch.size() >= batchSize) {
+                    flush(batch.values(), c);
+                    batch.clear();
+                    last = c.report(true, t0, null);
+                    if (++c.batches % 10 == 0) {
+                        log.info("Uvoz knjiga: {} redova, {} novih, {} ažuriranih, {} grešaka",
+                                c.rows, c.inserted, c.updated, c.failed);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) flush(batch.values(), c);
+        } catch (RuntimeException e) {
+            error = "Uvoz prekinut posle " + c.rows + " redova: " + e.getMessage();
+            log.warn(error);
+            throw e;
+        } finally {
+            // i posle prekida: ranije potvrđeni batch-evi su u bazi, izvedeno stanje mora da ih vidi
+            last = c.report(false, t0, error);
+            if (c.flushed > 0) refreshDerivedState();
+        }
+
+        Report report = last;
+        log.info("Uvoz knjiga završen: {} redova, {} novih, {} ažuriranih, {} grešaka za {} ms",
+                report.rows(), report.inserted(), report.updated(), report.failed(), report.millis());
+        return report;
+    }
+
+    private void flush(Collection<Pending> batch, Counts c) {
+        List<Pending> items = new ArrayList<>(batch);
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class);
+        Instant now = Instant.now();
+        for (Pending p : items) {
+            Book b = p.book();
+            Update u = new Update()
+                    .set("title", b.getTitle())
+                    .set("author", b.getAuthor())
+                    .set("updatedAt", now)
+                    .setOnInsert("createdAt", now);
+            // prazna kolona ne briše postojeću vrednost (npr. uvoz samo korica)
+            if (b.getYear() != null) u.set("year", b.getYear());
+            if (b.getImage() != null) u.set("image", b.getImage());
+            if (b.getDescription() != null) u.set("description", b.getDescription());
+            bulk.upsert(new Query(Criteria.where("title").is(b.getTitle()).and("author").is(b.getAuthor())), u);
+        }
+
+        BulkWriteResult res;
+        c.flushed++; // brojimo pre execute: i neuspeo unordered bulk je mogao delom da se upiše
+        try {
+            res = bulk.execute();
+        } catch (BulkOperationException e) {
+            res = e.getResult();
+            for (BulkWriteError err : e.getErrors()) {
+                c.fail(items.get(err.getIndex()).row(), err.getMessage());
+            }
+        }
+        c.inserted += res.getUpserts().size();
+        c.updated += res.getMatchedCount();
+    }
+
+    // keš, brojači, verzija i search indeks se posle uvoza osvežavaju jednom, ne po redu
+    private void refreshDerivedState() {
+        try {
+            cache.invalidateAll();
+            counters.reconcile();
+            // uvoz može trajati duže od app.shared-state.lag: ostale instance osvežavaju sve, ne po updatedAt
+            catalogVersion.fullRefresh();
+            Thread t = new Thread(searchIndex::rebuild, "book-search-rebuild");
+            t.setDaemon(true);
+            t.start();
+        } catch (RuntimeException e) {
+            // ne sme da prikrije grešku samog uvoza
+            log.warn("Osvežavanje posle uvoza nije uspelo: {}", e.getMessage());
+        }
+    }
+
+    static Book normalize(Map<String, String> v) {
+        String title = clean(v.get("title"));
+        String author = clean(v.get("author"));
+        if (title == null) throw new IllegalArgumentException("Naslov je obavezan");
+        if (author == null) throw new IllegalArgumentException("Autor je obavezan");
+
+        String year = clean(v.get("year"));
+        if (year != null && !YEAR.matcher(year).matches()) {
+            throw new IllegalArgumentException("Neispravna godina: " + year);
+        }
+        String image = clean(v.get("image"));
+        if (image != null && !(image.startsWith("http://") || image.startsWith("https://"))) {
+            throw new IllegalArgumentException("image mora biti http(s) URL");
+        }
+
+        Book b = new Book();
+        b.setTitle(title);
+        b.setAuthor(author);
+        b.setYear(year);
+        b.setImage(image);
+        b.setDescription(v.get("description") == null ? null : v.get("description").trim());
+        return b;
+    }
+
+    // trim + višestruki razmaci u jedan; prazno -> null
+    private static String clean(String s) {
+        if (s == null) return null;
+        String t = s.trim().replaceAll("\\s+", " ");
+        return t.isEmpty() ? null : t;
+    }
+
+    private static String key(Book b) {
+        return b.getTitle() + '\u0000' + b.getAuthor();
+    }
+
+    private record Pending(long row, Book book) {}
+
+    private static final class Counts {
+        long rows, inserted, updated, failed, batches, flushed;
+        final List<RowError> errors = new ArrayList<>();
+
+        void fail(long row, String message) {
+            failed++;
+            if (errors.size() < MAX_ERRORS) errors.add(new RowError(row, message));
+        }
+
+        Report report(boolean running, long t0, String error) {
+            return new Report(running, rows, inserted, updated, failed, List.copyOf(errors),
+                    (System.nanoTime() - t0) / 1_000_000, error);
+        }
+    }
+
+    /** NDJSON: jedan JSON objekat po liniji; loša linija je greška tog reda, ne celog uvoza. */
+    private final class NdjsonRows implements Iterator<RawRow> {
+        private final BufferedReader in;
+        private long row;
+        private String line;
+
+        NdjsonRows(BufferedReader in) { this.in = in; }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (line == null) {
+                    String l = in.readLine();
+                    if (l == null) return false;
+                    row++;
+                    if (!l.isBlank()) line = l;
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public RawRow next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            String l = line;
+            line = null;
+            try {
+                Map<?, ?> m = om.readValue(l, Map.class);
+                Map<String, String> values = new HashMap<>();
+                m.forEach((k, v) -> {
+                    if (v != null) values.put(k.toString().toLowerCase(Locale.ROOT), v.toString());
+                });
+                return new RawRow(row, values, null);
+            } catch (IOException e) {
+                return new RawRow(row, null, "Neispravan JSON");
+            }
+        }
+    }
+}
@@ -2,17 +2,22 @@ package pz.bibliotekabackend.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.bson.types.ObjectId;
 import pz.bibliotekabackend.model.Book;
 import pz.bibliotekabackend.repository.BookRepository;
+import pz.bibliotekabackend.search.BookSearchIndex;
 
 import java.time.Instant; // ⬅⬅⬅ DODAJ ovaj import
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.regex.Pattern;
 
 @Service
@@ -20,32 +25,98 @@ import java.util.regex.Pattern;
 public class BookService {
 
     private final BookRepository repo;
+    private final BookSearchIndex searchIndex;
+    private final MongoTemplate mongo;
+    private final CatalogCounters counters;
+    private final BookCache cache;
+    private final CatalogVersion catalogVersion;
+
+    /** Jedna keyset strana: sadržaj + token za sledeću (null ako je poslednja). */
+    public record KeysetPage(List<Book> content, String next) {}
 
     public List<Book> list(String rentedBy) {
         return (StringUtils.hasText(rentedBy)) ? repo.findByRentedBy(rentedBy) : repo.findAll();
     }
 
-    public Book get(String id) { return repo.findById(id).orElse(null); }
+    public Book get(String id) { return cache.get(id).orElse(null); }
+
+    /**
+     * updatedAt knjige za conditional GET: iz keša ako je tu, inače projekcija samo tog polja.
+     * Optional.empty() ako knjiga ne postoji ili nema updatedAt.
+     */
+    public Optional<Instant> version(String id) {
+        Optional<Book> cached = cache.peek(id);
+        if (cached.isPresent()) return Optional.ofNullable(cached.get().getUpdatedAt());
+        Query q = new Query(Criteria.where("id").is(id));
+        q.fields().include("updatedAt");
+        Book b = mongo.findOne(q, Book.class);
+        return b == null ? Optional.empty() : Optional.ofNullable(b.getUpdatedAt());
+    }
+
+    /** Knjige po id-jevima u zadatom redosledu (nepostojeće se preskaču). */
+    public List<Book> getAll(List<String> ids) { return cache.getAll(ids); }
+
+    /** Sa projekcijom: jedan $in upit koji čita samo tražena polja (mimo keša punih dokumenata). */
+    public List<Book> getAll(List<String> ids, Projection fields) {
+        if (fields == null) return getAll(ids);
+        if (ids.isEmpty()) return List.of();
+        Query q = fields.applyTo(new Query(Criteria.where("id").in(ids)));
+        return inOrder(ids, mongo.find(q, Book.class));
+    }
+
+    // redosled iz zahteva, nepostojeće se preskaču
+    static List<Book> inOrder(List<String> ids, Collection<Book> rows) {
+        Map<String, Book> byId = new HashMap<>();
+        rows.forEach(b -> byId.put(b.getId(), b));
+        List<Book> out = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Book b = byId.get(id);
+            if (b != null) out.add(b);
+        }
+        return out;
+    }
 
     public Book create(Book b) {
         if (b.getCreatedAt() == null) {
             b.setCreatedAt(Instant.now());
         }
-        return repo.save(b);
+        Book saved = repo.save(b);
+        cache.invalidate(saved.getId());
+        searchIndex.index(saved);
+        counters.bookAdded(saved.getRentedBy());
+        catalogVersion.bump();
+        return saved;
     }
 
     public Book patch(String id, Map<String, Object> changes) {
         Book b = repo.findById(id).orElseThrow();
+        String rentedBefore = b.getRentedBy();
         if (changes.containsKey("title")) b.setTitle((String) changes.get("title"));
         if (changes.containsKey("author")) b.setAuthor((String) changes.get("author"));
         if (changes.containsKey("year")) b.setYear((String) changes.get("year"));
         if (changes.containsKey("image")) b.setImage((String) changes.get("image"));
         if (changes.containsKey("description")) b.setDescription((String) changes.get("description"));
         if (changes.containsKey("rentedBy")) b.setRentedBy((String) changes.get("rentedBy"));
-        return repo.save(b);
+        Book saved = repo.save(b);
+        cache.invalidate(id);
+        searchIndex.index(saved);
+        counters.rentedByChanged(rentedBefore, saved.getRentedBy());
+        catalogVersion.bump();
+        return saved;
     }
 
-    public void delete(String id) { repo.deleteById(id); }
+    public void delete(String id) {
+        // findAndRemove vraća obrisani dokument -> znamo rentedBy bez dodatnog čitanja
+        Query q = new Query(Criteria.where("id").is(id));
+        q.fields().include("rentedBy");
+        Book removed = mongo.findAndRemove(q, Book.class);
+        cache.invalidate(id);
+        searchIndex.remove(id);
+        if (removed != null) {
+            counters.bookRemoved(removed.getRentedBy());
+            catalogVersion.deleted(id);
+        }
+    }
 
     public Page<Book> page(
             String rentedBy,
@@ -53,28 +124,138 @@ public class BookService {
             int page1Based,
             int limit,
             String sortField,
-            String order
+            String order,
+            Projection fields
     ) {
-        int pageIdx = Math.max(0, page1Based - 1);
-        int size = (limit > 0 && limit <= 200) ? limit : 12;
-
-        String sortBy = (sortField != null && !sortField.isBlank()) ? sortField : "createdAt";
-        Sort.Direction dir = "desc".equalsIgnoreCase(order) ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(pageIdx, size, Sort.by(dir, sortBy));
+        Pageable pageable = pageable(page1Based, limit, sortField, order);
+        int size = pageable.getPageSize();
+        Sort.Direction dir = sortDirection(order);
 
         // rentedBy filter
         if (StringUtils.hasText(rentedBy)) {
-            return repo.findByRentedBy(rentedBy.trim(), pageable);
+            String renter = rentedBy.trim();
+            if (counters.isReady()) {
+                Query q = project(new Query(Criteria.where("rentedBy").is(renter)).with(pageable), fields);
+                return new PageImpl<>(mongo.find(q, Book.class), pageable, counters.rentedBy(renter));
+            }
+            return repo.findByRentedBy(renter, pageable);
         }
 
         // search (q ili search)
         if (StringUtils.hasText(qOrSearch)) {
             String q = qOrSearch.trim();
+            if (searchIndex.isReady()) {
+                // indeks vraća samo id-jeve strane, Mongo čita samo te dokumente
+                var hits = searchIndex.search(q, sortField, dir, (int) pageable.getOffset(), size);
+                return new PageImpl<>(cache.getAll(hits.ids()), pageable, hits.total());
+            }
+            // indeks se još gradi -> stari regex upit
             String rx = ".*" + Pattern.quote(q) + ".*"; // regex "contains"
             return repo.findByTitleRegexIgnoreCaseOrAuthorRegexIgnoreCaseOrYearRegex(rx, rx, rx, pageable);
         }
 
-        // default: sve
+        // default: sve (total iz brojača, bez countDocuments)
+        if (counters.isReady()) {
+            Query q = project(new Query().with(pageable), fields);
+            return new PageImpl<>(mongo.find(q, Book.class), pageable, counters.total());
+        }
         return repo.findAll(pageable);
     }
+
+    /**
+     * Keyset (cursor) paginacija: (sortKey, _id) > poslednji viđeni, bez skip-a i bez count-a.
+     * Cena strane je ista bez obzira na dubinu (indeks na sortKey + _id).
+     */
+    public KeysetPage pageAfter(String rentedBy, String after, int limit, String sortField, String order,
+                                Projection fields) {
+        Keyset k = keyset(rentedBy, after, limit, sortField, order, fields);
+        return k.page(mongo.find(k.query(), Book.class));
+    }
+
+    /** Upit za jednu keyset stranu (limit + 1 red) i sort iz kojeg se pravi sledeći token. */
+    record Keyset(Query query, String sortBy, Sort.Direction dir, int size) {
+
+        KeysetPage page(List<Book> rows) {
+            if (rows.size() <= size) return new KeysetPage(rows, null);
+
+            List<Book> content = rows.subList(0, size);
+            Book last = content.get(size - 1);
+            String key = BookCursor.keyOf(sortBy, last.getCreatedAt(), last.getTitle(), last.getAuthor());
+            return new KeysetPage(content, new BookCursor(sortBy, dir, key, last.getId()).encode());
+        }
+    }
+
+    static Keyset keyset(String rentedBy, String after, int limit, String sortField, String order,
+                         Projection fields) {
+        int size = (limit > 0 && limit <= 200) ? limit : 12;
+
+        BookCursor cursor = StringUtils.hasText(after) ? BookCursor.decode(after.trim()) : null;
+        String sortBy;
+        Sort.Direction dir;
+        if (cursor != null) {
+            // sort je zapečen u token da se strane ne bi pomešale
+            sortBy = cursor.sortField();
+            dir = cursor.direction();
+        } else {
+            sortBy = (sortField != null && !sortField.isBlank()) ? sortField : "createdAt";
+            if (!BookCursor.SORT_FIELDS.contains(sortBy)) {
+                throw new IllegalArgumentException("Cursor paginacija podržava sort: " + BookCursor.SORT_FIELDS);
+            }
+            dir = sortDirection(order);
+        }
+
+        Query q = new Query();
+        if (StringUtils.hasText(rentedBy)) {
+            q.addCriteria(Criteria.where("rentedBy").is(rentedBy.trim()));
+        }
+        if (cursor != null) {
+            q.addCriteria(afterCriteria(sortBy, dir, cursor.typedValue(), cursor.id()));
+        }
+        q.with(Sort.by(dir, sortBy).and(Sort.by(dir, "_id")));
+        q.limit(size + 1);
+        // sort ključ mora da se pročita i kad nije u fields – od njega se pravi cursor
+        if (fields != null) fields.alsoRead(sortBy).applyTo(q);
+        return new Keyset(q, sortBy, dir, size);
+    }
+
+    static Pageable pageable(int page1Based, int limit, String sortField, String order) {
+        int pageIdx = Math.max(0, page1Based - 1);
+        int size = (limit > 0 && limit <= 200) ? limit : 12;
+        String sortBy = (sortField != null && !sortField.isBlank()) ? sortField : "createdAt";
+        return PageRequest.of(pageIdx, size, Sort.by(sortDirection(order), sortBy));
+    }
+
+    static Sort.Direction sortDirection(String order) {
+        return "desc".equalsIgnoreCase(order) ? Sort.Direction.DESC : Sort.Direction.ASC;
+    }
+
+    public long count(String rentedBy) {
+        if (counters.isReady()) {
+            return StringUtils.hasText(rentedBy) ? counters.rentedBy(rentedBy.trim()) : counters.total();
+        }
+        Query q = new Query();
+        if (StringUtils.hasText(rentedBy)) q.addCriteria(Criteria.where("rentedBy").is(rentedBy.trim()));
+        return mongo.count(q, Book.class);
+    }
+
+    static Query project(Query q, Projection fields) {
+        return fields == null ? q : fields.applyTo(q);
+    }
+
+    // Mongo sortira null/missing pre svih vrednosti (ASC), tj. posle njih (DESC)
+    private static Criteria afterCriteria(String field, Sort.Direction dir, Object value, String lastId) {
+        Object id = ObjectId.isValid(lastId) ? new ObjectId(lastId) : lastId;
+        boolean asc = dir == Sort.Direction.ASC;
+        Criteria sameKeyNextId = asc ? Criteria.where("_id").gt(id) : Criteria.where("_id").lt(id);
+
+        if (value == null) {
+            Criteria tie = new Criteria().andOperator(Criteria.where(field).is(null), sameKeyNextId);
+            return asc ? new Criteria().orOperator(tie, Criteria.where(field).ne(null)) : tie;
+        }
+        Criteria beyond = asc ? Criteria.where(field).gt(value) : Criteria.where(field).lt(value);
+        Criteria tie = new Criteria().andOperator(Criteria.where(field).is(value), sameKeyNextId);
+        return asc
+                ? new Criteria().orOperator(beyond, tie)
+                : new Criteria().orOperator(beyond, tie, Criteria.where(field).is(null));
+    }
 }
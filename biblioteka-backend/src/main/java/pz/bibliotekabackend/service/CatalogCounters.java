@@ -0,0 +1,162 @@
+package pz.bibliotekabackend.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import pz.bibliotekabackend.model.Book;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Brojači kataloga u memoriji: ukupno knjiga i broj iznajmljenih po korisniku.
+ * Pune se iz Monga pri startu, servisi ih ažuriraju pri svakom upisu,
+ * a periodična rekoncilijacija ispravlja eventualni drift (npr. upisi mimo aplikacije).
+ * Brojevi su eventualno konzistentni: delta upisa stiže posle upisa u Mongo, pa rekoncilijacija
+ * koja je upis već videla ne može da je razlikuje od nove; takvo odstupanje ispravlja sledeća.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogCounters {
+
+    static final int RETRIES = 3;
+
+    private final MongoTemplate mongo;
+
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong rented = new AtomicLong();
+    private final Map<String, AtomicLong> byRenter = new ConcurrentHashMap<>();
+    // broj primenjenih delti: rekoncilijacija po njemu vidi da li je neka stigla dok je agregacija trajala
+    private final AtomicLong writes = new AtomicLong();
+    private volatile boolean ready;
+
+    public boolean isReady() { return ready; }
+
+    public long total() { return total.get(); }
+
+    public long rented() { return rented.get(); }
+
+    public long available() { return Math.max(0, total.get() - rented.get()); }
+
+    public long rentedBy(String userId) {
+        AtomicLong n = byRenter.get(userId);
+        return n == null ? 0 : n.get();
+    }
+
+    public void bookAdded(String rentedBy) {
+        writes.incrementAndGet();
+        total.incrementAndGet();
+        adjustRenter(rentedBy, 1);
+    }
+
+    public void bookRemoved(String rentedBy) {
+        writes.incrementAndGet();
+        total.decrementAndGet();
+        adjustRenter(rentedBy, -1);
+    }
+
+    public void rentedByChanged(String before, String after) {
+        if (same(before, after)) return;
+        writes.incrementAndGet();
+        adjustRenter(before, -1);
+        adjustRenter(after, 1);
+    }
+
+    /** Korisnik je oslobodio n knjiga odjednom (brisanje korisnika). */
+    public void renterCleared(String userId, long n) {
+        if (!StringUtils.hasText(userId) || n <= 0) return;
+        writes.incrementAndGet();
+        byRenter.computeIfPresent(userId, (k, v) -> v.addAndGet(-n) <= 0 ? null : v);
+        rented.addAndGet(-n);
+    }
+
+    /**
+     * Prvo punjenje odmah po startu, posle toga rekoncilijacija na app.counters.reconcile-ms.
+     * Ispravka se primenjuje kao razlika (agregacija - stanje pre agregacije). Ako je za vreme
+     * agregacije stigla neka delta, ne zna se da li ju je agregacija već videla (dvostruko brojanje)
+     * ili ne, pa se agregacija ponavlja. Posle RETRIES pokušaja u trci ispravka se ipak primenjuje
+     * (inače bi je stalni upisi zauvek odlagali): delte iz poslednje agregacije mogu biti uračunate
+     * dvaput do sledeće rekoncilijacije.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.counters.reconcile-ms:300000}")
+    public synchronized void reconcile() {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                long seq = writes.get();
+                long seenTotal = total.get(), seenRented = rented.get();
+                Map<String, Long> seen = new HashMap<>();
+                byRenter.forEach((k, v) -> seen.put(k, v.get()));
+
+                Counts fresh = aggregate();
+                if (writes.get() != seq && attempt < RETRIES) continue;
+                apply(fresh, seenTotal, seenRented, seen);
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Rekoncilijacija brojača nije uspela: {}", e.getMessage());
+        }
+    }
+
+    private record Counts(long total, long rented, Map<String, Long> byRenter) {}
+
+    private Counts aggregate() {
+        var agg = Aggregation.newAggregation(Aggregation.group("rentedBy").count().as("n"));
+        var rows = mongo.aggregate(agg, Book.class, Document.class).getMappedResults();
+
+        long newTotal = 0, newRented = 0;
+        Map<String, Long> fresh = new HashMap<>();
+        for (Document d : rows) {
+            long n = ((Number) d.get("n")).longValue();
+            newTotal += n;
+            Object renter = d.get("_id");
+            if (renter != null) {
+                fresh.put(renter.toString(), n);
+                newRented += n;
+            }
+        }
+        return new Counts(newTotal, newRented, fresh);
+    }
+
+    private void apply(Counts fresh, long seenTotal, long seenRented, Map<String, Long> seen) {
+        if (ready && (fresh.total() != seenTotal || fresh.rented() != seenRented)) {
+            log.info("Brojači rekoncilirani: total {} -> {}, rented {} -> {}",
+                    seenTotal, fresh.total(), seenRented, fresh.rented());
+        }
+        Set<String> renters = new HashSet<>(seen.keySet());
+        renters.addAll(fresh.byRenter().keySet());
+        for (String k : renters) {
+            long diff = fresh.byRenter().getOrDefault(k, 0L) - seen.getOrDefault(k, 0L);
+            if (diff != 0) adjustMap(k, diff);
+        }
+        total.addAndGet(fresh.total() - seenTotal);
+        rented.addAndGet(fresh.rented() - seenRented);
+        ready = true;
+    }
+
+    private void adjustRenter(String userId, long delta) {
+        if (!StringUtils.hasText(userId)) return;
+        rented.addAndGet(delta);
+        adjustMap(userId, delta);
+    }
+
+    private void adjustMap(String userId, long delta) {
+        byRenter.compute(userId, (k, v) -> {
+            if (v == null) v = new AtomicLong();
+            return v.addAndGet(delta) <= 0 ? null : v;
+        });
+    }
+
+    private static boolean same(String a, String b) {
+        return StringUtils.hasText(a) ? a.equals(b) : !StringUtils.hasText(b);
+    }
+}
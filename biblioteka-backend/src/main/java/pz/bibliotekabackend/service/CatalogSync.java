@@ -0,0 +1,179 @@
+package pz.bibliotekabackend.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.search.BookSearchIndex;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Deljeno stanje kataloga između instanci (servlet i reaktivna iza istog proxy-ja).
+ * Verzija kataloga je brojač u "catalog_state" koji svaka instanca uvećava za svoje upise;
+ * kad poraste više nego što je instanca sama dodala, upisivala je druga instanca, pa se:
+ * knjige izmenjene od prethodne provere (updatedAt) izbacuju iz BookCache i ponovo indeksiraju,
+ * obrisane (tombstone u "book_tombstones") uklanjaju, lokalna verzija pomera (ETag, keš strana)
+ * i brojači rekonciliraju iz Monga (najčešće jednom na app.shared-state.reconcile-min-ms).
+ * Masovne izmene (uvoz) ne oslanjaju se na prozor app.shared-state.lag: uvećavaju i brojač "refresh",
+ * pa ostale instance prazne ceo keš, rekonciliraju brojače i ponovo grade search indeks.
+ * Upisi u Mongo idu iz ove niti, ne iz zahteva, pa ni reaktivne niti ne čekaju na njih.
+ * Instance vide tuđe izmene sa zakašnjenjem od najviše dva intervala app.shared-state.poll-ms.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogSync {
+
+    public static final String STATE = "catalog_state";
+    public static final String TOMBSTONES = "book_tombstones";
+    static final String ID = "catalog";
+
+    private final MongoTemplate mongo;
+    private final CatalogVersion version;
+    private final CatalogCounters counters;
+    private final BookSearchIndex searchIndex;
+    private final BookCache cache;
+
+    @Value("${app.shared-state.enabled:true}")
+    private boolean enabled = true;
+
+    // updatedAt piše instanca koja menja knjigu, po svom satu: prozor pokriva razliku satova i interval provere
+    @Value("${app.shared-state.lag:30s}")
+    private Duration lag = Duration.ofSeconds(30);
+
+    @Value("${app.shared-state.reconcile-min-ms:5000}")
+    private long reconcileMinMs = 5000;
+
+    private long seen = -1;
+    private long seenRefresh = -1;
+    private Instant lastPoll;
+    private boolean reconcilePending;
+    private long lastReconcile;
+    private boolean failing;
+
+    @Scheduled(initialDelayString = "${app.shared-state.poll-ms:1000}", fixedDelayString = "${app.shared-state.poll-ms:1000}")
+    public synchronized void poll() {
+        if (!enabled) return;
+        Instant started = Instant.now();
+        long mine = version.drainUnpublished();
+        List<String> deleted = version.drainDeleted();
+        long refreshes = version.drainRefreshes();
+        try {
+            publishDeleted(deleted, started);
+            Document state = publish(mine, refreshes, started);
+            long shared = number(state, "version");
+            long sharedRefresh = number(state, "refresh");
+            // prva provera posle starta samo beleži stanje: keš, indeks i brojači su tek napunjeni iz Monga
+            boolean remote = seen >= 0 && shared - seen > mine;
+            boolean remoteRefresh = seenRefresh >= 0 && sharedRefresh - seenRefresh > refreshes;
+            seen = shared;
+            seenRefresh = sharedRefresh;
+            if (remoteRefresh) {
+                applyFullRefresh();
+            } else if (remote) {
+                applyRemote(lastPoll.minus(lag));
+                reconcilePending = true;
+            }
+            reconcileIfDue();
+            lastPoll = started;
+            if (failing) log.info("Deljeno stanje kataloga ponovo dostupno");
+            failing = false;
+        } catch (RuntimeException e) {
+            version.requeue(mine, deleted, refreshes);
+            if (!failing) log.warn("Deljeno stanje kataloga nije dostupno: {}", e.getMessage());
+            failing = true;
+        }
+    }
+
+    /**
+     * Odmah objavljuje lokalne upise (CLI uvoz pre System.exit ne čeka sledeću proveru).
+     * Vraća false ako deljeno stanje nije dostupno ili je isključeno.
+     */
+    public synchronized boolean flush() {
+        poll();
+        return enabled && !failing;
+    }
+
+    // $inc za lokalne upise; bez njih samo čitanje
+    private Document publish(long mine, long refreshes, Instant now) {
+        Query q = new Query(Criteria.where("_id").is(ID));
+        if (mine == 0 && refreshes == 0) return mongo.findOne(q, Document.class, STATE);
+        Update u = new Update().inc("version", mine).set("updatedAt", Date.from(now));
+        if (refreshes > 0) u.inc("refresh", refreshes);
+        return mongo.findAndModify(q, u, FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, STATE);
+    }
+
+    private static long number(Document state, String key) {
+        return state != null && state.get(key) instanceof Number n ? n.longValue() : 0;
+    }
+
+    private void publishDeleted(List<String> ids, Instant now) {
+        if (ids.isEmpty()) return;
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, TOMBSTONES);
+        for (String id : ids) {
+            bulk.upsert(new Query(Criteria.where("_id").is(id)), new Update().set("at", Date.from(now)));
+        }
+        bulk.execute();
+    }
+
+    void applyRemote(Instant since) {
+        Query changed = new Query(Criteria.where("updatedAt").gte(since));
+        changed.fields().include("title", "author", "year", "description", "createdAt");
+        long n = 0;
+        try (Stream<Book> s = mongo.stream(changed, Book.class)) {
+            for (Book b : (Iterable<Book>) s::iterator) {
+                cache.invalidate(b.getId());
+                searchIndex.index(b);
+                n++;
+            }
+        }
+
+        Query gone = new Query(Criteria.where("at").gte(Date.from(since)));
+        gone.fields().include("_id");
+        List<Document> tombstones = mongo.find(gone, Document.class, TOMBSTONES);
+        for (Document t : tombstones) {
+            String id = t.get("_id").toString();
+            cache.invalidate(id);
+            searchIndex.remove(id);
+        }
+
+        version.remoteChange();
+        log.debug("Izmene sa drugih instanci: {} knjiga osveženo, {} obrisano", n, tombstones.size());
+    }
+
+    // uvoz na drugoj instanci: izmenjenih knjiga je previše (i mogu biti starije od lag prozora) za applyRemote
+    void applyFullRefresh() {
+        cache.invalidateAll();
+        version.remoteChange();
+        reconcilePending = false;
+        lastReconcile = System.currentTimeMillis();
+        counters.reconcile();
+        Thread t = new Thread(searchIndex::rebuild, "book-search-rebuild");
+        t.setDaemon(true);
+        t.start();
+        log.info("Masovna izmena kataloga na drugoj instanci: keš, brojači i search indeks osveženi");
+    }
+
+    private void reconcileIfDue() {
+        long now = System.currentTimeMillis();
+        if (!reconcilePending || now - lastReconcile < reconcileMinMs) return;
+        reconcilePending = false;
+        lastReconcile = now;
+        counters.reconcile();
+    }
+}
@@ -0,0 +1,78 @@
+package pz.bibliotekabackend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verzija kataloga: raste pri svakom upisu knjige (uključujući rentedBy izmene).
+ * Koristi se za ETag/Last-Modified listi i za invalidaciju keširanih odgovora.
+ * Počinje od trenutnog vremena da se stamp-ovi ne ponove posle restarta.
+ * Lokalni upisi se ostalim instancama objavljuju preko CatalogSync, a njihovi ovde stižu kao remoteChange().
+ */
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    private volatile Instant lastModified = Instant.now();
+
+    // lokalni upisi, obrisane knjige i masovne izmene koje CatalogSync još nije upisao u Mongo
+    private final AtomicLong unpublished = new AtomicLong();
+    private final Queue<String> deleted = new ConcurrentLinkedQueue<>();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    public long current() { return version.get(); }
+
+    public Instant lastModified() { return lastModified; }
+
+    public void bump() {
+        lastModified = Instant.now();
+        version.incrementAndGet();
+        unpublished.incrementAndGet();
+    }
+
+    /** Brisanje knjige: bump + id za ostale instance (da je izbace iz keša i indeksa). */
+    public void deleted(String bookId) {
+        if (bookId != null) deleted.add(bookId);
+        bump();
+    }
+
+    /**
+     * Masovna izmena (uvoz): ostale instance ne traže izmenjene knjige po updatedAt,
+     * već ceo keš, indeks i brojače osvežavaju iz Monga.
+     */
+    public void fullRefresh() {
+        refreshes.incrementAndGet();
+        bump();
+    }
+
+    /** Katalog je izmenjen na drugoj instanci; ne objavljuje se nazad. */
+    void remoteChange() {
+        lastModified = Instant.now();
+        version.incrementAndGet();
+    }
+
+    long drainUnpublished() { return unpublished.getAndSet(0); }
+
+    long drainRefreshes() { return refreshes.getAndSet(0); }
+
+    List<String> drainDeleted() {
+        List<String> out = new ArrayList<>();
+        String id;
+        while ((id = deleted.poll()) != null) out.add(id);
+        return out;
+    }
+
+    /** Objavljivanje nije uspelo: vraća se za sledeći pokušaj. */
+    void requeue(long bumps, Collection<String> deletedIds, long fullRefreshes) {
+        unpublished.addAndGet(bumps);
+        deleted.addAll(deletedIds);
+        refreshes.addAndGet(fullRefreshes);
+    }
+}
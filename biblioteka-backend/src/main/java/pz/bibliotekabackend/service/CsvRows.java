@@ -0,0 +1,95 @@
+package pz.bibliotekabackend.service;
+
+import java.io.IOException;
+import java.io.BufferedReader;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Minimalni CSV čitač (RFC 4180: navodnici, "" unutar navodnika, novi red u polju) koji čita
+ * zapis po zapis iz BufferedReader-a – ceo fajl nikad nije u memoriji. Prvi zapis je zaglavlje.
+ */
+final class CsvRows implements Iterator<BookImport.RawRow> {
+
+    private final BufferedReader in;
+    private final List<String> header;
+    private long row;          // redni broj zapisa (zaglavlje = 1)
+    private List<String> next;
+    private boolean eof;
+
+    CsvRows(BufferedReader in) {
+        this.in = in;
+        List<String> h = read();
+        if (h == null) throw new IllegalArgumentException("CSV je prazan (nema zaglavlja)");
+        // Excel "CSV UTF-8" počinje sa BOM; bez ovoga prva kolona bi bila "\uFEFFtitle"
+        if (h.get(0).startsWith("\uFEFF")) h.set(0, h.get(0).substring(1));
+        this.header = h.stream().map(s -> s.trim().toLowerCase(Locale.ROOT)).toList();
+        this.row = 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !eof) {
+            next = read();
+            // prazne linije se preskaču
+            while (next != null && next.size() == 1 && next.get(0).isEmpty()) next = read();
+            if (next == null) eof = true;
+        }
+        return next != null;
+    }
+
+    @Override
+    public BookImport.RawRow next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        List<String> cols = next;
+        next = null;
+        row++;
+        if (cols.size() != header.size()) {
+            return new BookImport.RawRow(row, null,
+                    "Očekivano " + header.size() + " kolona, pronađeno " + cols.size());
+        }
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < cols.size(); i++) values.put(header.get(i), cols.get(i));
+        return new BookImport.RawRow(row, values, null);
+    }
+
+    // jedan zapis ili null na kraju ulaza
+    private List<String> read() {
+        try {
+            List<String> out = new ArrayList<>();
+            StringBuilder cur = new StringBuilder();
+            boolean quoted = false, any = false;
+            int c;
+            while ((c = in.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int d = in.read();
+                        if (d == '"') cur.append('"');
+                        else {
+                            quoted = false;
+                            if (d != -1) in.reset();
+                        }
+                    } else {
+                        cur.append((char) c);
+                    }
+                } else if (c == '"' && cur.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    out.add(cur.toString());
+                    cur.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    cur.append((char) c);
+                }
+            }
+            if (!any) return null;
+            out.add(cur.toString());
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package pz.bibliotekabackend.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import pz.bibliotekabackend.config.DateStrings;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Jednokratna migracija datuma sačuvanih kao string (createdAt/updatedAt/rentedAt/returnedAt)
+ * u books i orders na pravi BSON Date, da čitanje ne ide kroz konverter i da opsezi i sortiranje
+ * po datumu koriste indekse. Ista šema kao OrderSnapshotMigration: batch-evi po _id, checkpoint
+ * po kolekciji u "migrations", brzina ograničena na app.migration.date-fields.rate dok/s.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DateFieldMigration {
+
+    static final String ID = "date-fields";
+    static final List<String> COLLECTIONS = List.of("books", "orders");
+    static final List<String> FIELDS = List.of("createdAt", "updatedAt", "rentedAt", "returnedAt");
+
+    private final MongoTemplate mongo;
+
+    @Value("${app.migration.date-fields.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.migration.date-fields.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${app.migration.date-fields.rate:2000}")
+    private int ratePerSecond = 2000;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopRequested;
+
+    /** Stanje jedne kolekcije; unparseable su vrednosti koje su ostale string (nepoznat format). */
+    public record Status(boolean running, boolean done, String lastId, long scanned, long converted,
+                         long unparseable, Instant updatedAt) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) start();
+    }
+
+    /** Pokreće migraciju u pozadini; false ako već radi. */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) return false;
+        stopRequested = false;
+        Thread t = new Thread(() -> {
+            try {
+                for (String collection : COLLECTIONS) {
+                    if (stopRequested) break;
+                    run(collection);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Migracija datuma prekinuta: {}", e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }, "date-field-migration");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    /** Zaustavlja posle tekućeg batch-a (checkpoint ostaje upisan). */
+    public void stop() { stopRequested = true; }
+
+    public Map<String, Status> status() {
+        Map<String, Status> out = new LinkedHashMap<>();
+        for (String collection : COLLECTIONS) {
+            Document cp = mongo.findById(checkpointId(collection), Document.class, OrderSnapshotMigration.CHECKPOINTS);
+            if (cp == null) {
+                out.put(collection, new Status(running.get(), false, null, 0, 0, 0, null));
+                continue;
+            }
+            Date at = cp.getDate("updatedAt");
+            out.put(collection, new Status(running.get(), cp.getBoolean("done", false),
+                    Objects.toString(cp.get("lastId"), null),
+                    number(cp, "scanned"), number(cp, "converted"), number(cp, "unparseable"),
+                    at == null ? null : at.toInstant()));
+        }
+        return out;
+    }
+
+    void run(String collection) {
+        Document cp = mongo.findById(checkpointId(collection), Document.class, OrderSnapshotMigration.CHECKPOINTS);
+        if (cp != null && cp.getBoolean("done", false)) return;
+
+        // _id se pamti u izvornom tipu (ObjectId), da bi $gt išao preko primarnog indeksa
+        Object lastId = cp == null ? null : cp.get("lastId");
+        long scanned = cp == null ? 0 : number(cp, "scanned");
+        long converted = cp == null ? 0 : number(cp, "converted");
+        long unparseable = cp == null ? 0 : number(cp, "unparseable");
+        log.info("Migracija datuma ({}): start od {}", collection, lastId == null ? "početka" : lastId);
+
+        while (!stopRequested) {
+            long started = System.nanoTime();
+            List<Document> batch = mongo.find(nextBatch(lastId), Document.class, collection);
+            if (batch.isEmpty()) {
+                checkpoint(collection, lastId, scanned, converted, unparseable, true);
+                log.info("Migracija datuma ({}) završena: {} polja konvertovano, {} neprepoznato",
+                        collection, converted, unparseable);
+                return;
+            }
+
+            long[] res = convert(collection, batch);
+            converted += res[0];
+            unparseable += res[1];
+            scanned += batch.size();
+            lastId = batch.get(batch.size() - 1).get("_id");
+            checkpoint(collection, lastId, scanned, converted, unparseable, false);
+
+            throttle(batch.size(), started);
+        }
+        log.info("Migracija datuma ({}) zaustavljena na {}", collection, lastId);
+    }
+
+    // samo dokumenti sa bar jednim string datumom ($type 2 = string)
+    private Query nextBatch(Object lastId) {
+        Criteria[] anyString = FIELDS.stream().map(f -> Criteria.where(f).type(2)).toArray(Criteria[]::new);
+        Query q = new Query(new Criteria().orOperator(anyString));
+        if (lastId != null) q.addCriteria(Criteria.where("_id").gt(lastId));
+        q.with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        FIELDS.forEach(f -> q.fields().include(f));
+        return q;
+    }
+
+    /** Vraća {konvertovano polja, neprepoznatih polja}. */
+    long[] convert(String collection, List<Document> batch) {
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+        long converted = 0, unparseable = 0;
+        int ops = 0;
+        for (Document doc : batch) {
+            Criteria match = Criteria.where("_id").is(doc.get("_id"));
+            Update u = new Update();
+            for (String f : FIELDS) {
+                if (!(doc.get(f) instanceof String s)) continue;
+                Instant parsed = DateStrings.parse(s);
+                if (parsed == null) {
+                    unparseable++;
+                    continue;
+                }
+                // uslov na staru vrednost: ako je aplikacija u međuvremenu upisala polje, ne gazi se
+                match.and(f).is(s);
+                u.set(f, Date.from(parsed));
+                converted++;
+            }
+            if (u.getUpdateObject().isEmpty()) continue;
+            bulk.updateOne(new Query(match), u);
+            ops++;
+        }
+        if (ops > 0) bulk.execute();
+        return new long[]{converted, unparseable};
+    }
+
+    private void checkpoint(String collection, Object lastId, long scanned, long converted,
+                            long unparseable, boolean done) {
+        Update u = new Update()
+                .set("lastId", lastId)
+                .set("scanned", scanned)
+                .set("converted", converted)
+                .set("unparseable", unparseable)
+                .set("done", done)
+                .set("updatedAt", new Date());
+        mongo.upsert(new Query(Criteria.where("_id").is(checkpointId(collection))), u,
+                OrderSnapshotMigration.CHECKPOINTS);
+    }
+
+    private static String checkpointId(String collection) {
+        return ID + ":" + collection;
+    }
+
+    // batch od n dokumenata ne sme da traje kraće od n / rate sekundi
+    private void throttle(int n, long startedNanos) {
+        if (ratePerSecond <= 0) return;
+        long minNanos = n * 1_000_000_000L / ratePerSecond;
+        long sleepMs = (minNanos - (System.nanoTime() - startedNanos)) / 1_000_000;
+        if (sleepMs <= 0) return;
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopRequested = true;
+        }
+    }
+
+    private static long number(Document d, String key) {
+        Object v = d.get(key);
+        return v instanceof Number n ? n.longValue() : 0;
+    }
+}
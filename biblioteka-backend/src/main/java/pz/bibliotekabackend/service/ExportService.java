@@ -0,0 +1,155 @@
+package pz.bibliotekabackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.stereotype.Service;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.Order;
+import pz.bibliotekabackend.model.User;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Izvoz kolekcija direktno iz Mongo kursora, batch po batch, kao ravni redovi (kolona -> vrednost).
+ * Kolone su fiksne po skupu – lozinke se nikad ne čitaju ni ne izvoze.
+ *
+ * Watermark: now - app.export.watermark-lag. updatedAt postavlja sat aplikacije PRE upisa, pa
+ * dokument sa starijim updatedAt može da se pojavi u bazi posle novijeg; najveći updatedAt zato
+ * nije bezbedna granica. Izvoz vraća since < updatedAt <= watermark (bez since: sve do watermark-a),
+ * klijent sledeći put šalje watermark kao since i nastavlja tačno gde je ovaj stao. Upis koji kasni
+ * više od lag-a za svojim updatedAt-om se i dalje može propustiti – lag mora da pokrije najduži upis
+ * i razliku satova između instanci.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    static final int BATCH = 1000;
+
+    private final MongoTemplate mongo;
+    private final OrderService orders;
+
+    @Value("${app.export.watermark-lag:30s}")
+    private Duration watermarkLag = Duration.ofSeconds(30);
+
+    public enum Dataset {
+        BOOKS(Book.class, List.of("id", "title", "author", "year", "image", "description", "rentedBy",
+                "createdAt", "updatedAt")),
+        ORDERS(Order.class, List.of("id", "userId", "bookId", "status", "rentedAt", "returnedAt",
+                "bookTitle", "bookAuthor", "bookYear", "bookImage", "createdAt", "updatedAt")),
+        USERS(User.class, List.of("id", "name", "email", "role", "favorites", "createdAt", "updatedAt"));
+
+        final Class<?> type;
+        public final List<String> columns;
+
+        Dataset(Class<?> type, List<String> columns) {
+            this.type = type;
+            this.columns = columns;
+        }
+
+        public static Dataset of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Nepoznat skup za izvoz: " + name + " (books, orders, users)");
+            }
+        }
+    }
+
+    /** Gornja granica izvoza (i since za sledeći): sve sa updatedAt <= watermark je već upisano. */
+    public Instant watermark() {
+        return Instant.now().minus(watermarkLag);
+    }
+
+    public void export(Dataset ds, Instant since, Instant until, Consumer<List<Map<String, Object>>> sink) {
+        Query q = new Query().cursorBatchSize(BATCH);
+        if (since != null) {
+            q.addCriteria(Criteria.where("updatedAt").gt(since).lte(until));
+        } else {
+            // pun izvoz: i stari dokumenti bez updatedAt ili sa updatedAt kao stringom (pre DateFieldMigration);
+            // $not $type date obuhvata i nepostojeće i null polje, a $lte bi string preskočio
+            q.addCriteria(new Criteria().orOperator(
+                    Criteria.where("updatedAt").lte(until),
+                    Criteria.where("updatedAt").not().type(JsonSchemaObject.Type.DATE)));
+        }
+        if (ds == Dataset.USERS) q.fields().exclude("password");
+
+        try (Stream<?> s = mongo.stream(q, ds.type)) {
+            List<Object> batch = new ArrayList<>(BATCH);
+            for (Iterator<?> it = s.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                if (batch.size() == BATCH) {
+                    sink.accept(rows(ds, batch));
+                    batch = new ArrayList<>(BATCH);
+                }
+            }
+            if (!batch.isEmpty()) sink.accept(rows(ds, batch));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> rows(Dataset ds, List<Object> batch) {
+        if (ds == Dataset.ORDERS) orders.hydrateDisplayBooks((List<Order>) (List<?>) batch);
+        List<Map<String, Object>> out = new ArrayList<>(batch.size());
+        for (Object o : batch) {
+            out.add(switch (ds) {
+                case BOOKS -> row((Book) o);
+                case ORDERS -> row((Order) o);
+                case USERS -> row((User) o);
+            });
+        }
+        return out;
+    }
+
+    static Map<String, Object> row(Book b) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", b.getId());
+        m.put("title", b.getTitle());
+        m.put("author", b.getAuthor());
+        m.put("year", b.getYear());
+        m.put("image", b.getImage());
+        m.put("description", b.getDescription());
+        m.put("rentedBy", b.getRentedBy());
+        m.put("createdAt", b.getCreatedAt());
+        m.put("updatedAt", b.getUpdatedAt());
+        return m;
+    }
+
+    static Map<String, Object> row(Order o) {
+        Order.DisplayBook d = o.getDisplayBook();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", o.getId());
+        m.put("userId", o.getUserId());
+        m.put("bookId", o.getBookId());
+        m.put("status", o.getStatus());
+        m.put("rentedAt", o.getRentedAt());
+        m.put("returnedAt", o.getReturnedAt());
+        m.put("bookTitle", d == null ? null : d.getTitle());
+        m.put("bookAuthor", d == null ? null : d.getAuthor());
+        m.put("bookYear", d == null ? null : d.getYear());
+        m.put("bookImage", d == null ? null : d.getImage());
+        m.put("createdAt", o.getCreatedAt());
+        m.put("updatedAt", o.getUpdatedAt());
+        return m;
+    }
+
+    static Map<String, Object> row(User u) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", u.getId());
+        m.put("name", u.getName());
+        m.put("email", u.getEmail());
+        m.put("role", u.getRole());
+        m.put("favorites", u.getFavorites());
+        m.put("createdAt", u.getCreatedAt());
+        m.put("updatedAt", u.getUpdatedAt());
+        return m;
+    }
+}
@@ -1,8 +1,18 @@
 package pz.bibliotekabackend.service;
 
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import pz.bibliotekabackend.exception.ConflictException;
 import pz.bibliotekabackend.model.Book;
 import pz.bibliotekabackend.model.BookSnapshot;
 import pz.bibliotekabackend.model.Order;
@@ -10,9 +20,9 @@ import pz.bibliotekabackend.repository.BookRepository;
 import pz.bibliotekabackend.repository.OrderRepository;
 
 import java.time.Instant;
-import java.util.List;
-import java.util.Map;
-import java.util.NoSuchElementException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -20,24 +30,86 @@ public class OrderService {
 
     private final OrderRepository repo;
     private final BookRepository bookRepo;
+    private final CatalogCounters counters;
+    private final BookCache bookCache;
+    private final MongoTemplate mongo;
+    private final CatalogVersion catalogVersion;
+
+    // false = upisuje se samo bookSnapshot (legacy "book" uklanja OrderSnapshotMigration)
+    @Value("${app.orders.write-legacy-book:true}")
+    private boolean writeLegacyBook = true;
+
+    static final int HYDRATE_CHUNK = 500;
+    static final int STREAM_BATCH = 500;
 
     public List<Order> list(String userId, String bookId) {
+        return list(userId, bookId, null);
+    }
+
+    /** Sa projekcijom čita samo tražena polja; displayBook se hidrira samo ako je tražen. */
+    public List<Order> list(String userId, String bookId, Projection fields) {
         List<Order> out;
-        if (StringUtils.hasText(userId)) {
+        if (fields != null) {
+            out = mongo.find(fields.applyTo(filter(userId, bookId)), Order.class);
+        } else if (StringUtils.hasText(userId)) {
             out = repo.findByUserId(userId);
         } else if (StringUtils.hasText(bookId)) {
             out = repo.findByBookId(bookId);
         } else {
             out = repo.findAll();
         }
-        out.forEach(this::hydrateDisplayBook);
+        if (fields == null || fields.has("displayBook")) hydrateDisplayBooks(out);
         return out;
     }
 
+    /**
+     * Isti filteri kao list(), ali preko Mongo kursora: batch po batch se hidrira
+     * i predaje sink-u, bez učitavanja cele kolekcije u memoriju.
+     */
+    public void stream(String userId, String bookId, Projection fields, Consumer<List<Order>> sink) {
+        Query q = filter(userId, bookId).cursorBatchSize(STREAM_BATCH);
+        if (fields != null) fields.applyTo(q);
+        boolean hydrate = fields == null || fields.has("displayBook");
+
+        try (Stream<Order> s = mongo.stream(q, Order.class)) {
+            List<Order> batch = new ArrayList<>(STREAM_BATCH);
+            for (Iterator<Order> it = s.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                if (batch.size() == STREAM_BATCH) {
+                    if (hydrate) hydrateDisplayBooks(batch);
+                    sink.accept(batch);
+                    batch = new ArrayList<>(STREAM_BATCH);
+                }
+            }
+            if (!batch.isEmpty()) {
+                if (hydrate) hydrateDisplayBooks(batch);
+                sink.accept(batch);
+            }
+        }
+    }
+
+    static Query filter(String userId, String bookId) {
+        Query q = new Query();
+        if (StringUtils.hasText(userId)) {
+            q.addCriteria(Criteria.where("userId").is(userId));
+        } else if (StringUtils.hasText(bookId)) {
+            q.addCriteria(Criteria.where("bookId").is(bookId));
+        }
+        return q;
+    }
+
+    /** updatedAt porudžbine za conditional GET (čita samo to polje). */
+    public Optional<Instant> version(String id) {
+        Query q = new Query(Criteria.where("id").is(id));
+        q.fields().include("updatedAt");
+        Order o = mongo.findOne(q, Order.class);
+        return o == null ? Optional.empty() : Optional.ofNullable(o.getUpdatedAt());
+    }
+
     public Order get(String id) {
         return repo.findById(id)
                 .map(o -> {
-                    hydrateDisplayBook(o);
+                    hydrateDisplayBooks(List.of(o));
                     return o;
                 })
                 .orElse(null);
@@ -50,51 +122,209 @@ public class OrderService {
 
         String bookId = inbound.getBookId();
         if (!StringUtils.hasText(bookId)) {
-            var opt = bookRepo.findTopByRentedByOrderByUpdatedAtDesc(inbound.getUserId());
-            if (opt.isEmpty()) opt = bookRepo.findTopByRentedByOrderByCreatedAtDesc(inbound.getUserId());
-            opt.ifPresent(b -> {
-                inbound.setBookId(b.getId());
-            });
+            // bez updatedAt knjiga i dalje dolazi (null ide na kraj) -> createdAt upit bi bio suvišan
+            bookRepo.findTopByRentedByOrderByUpdatedAtDesc(inbound.getUserId())
+                    .ifPresent(b -> inbound.setBookId(b.getId()));
             bookId = inbound.getBookId();
         }
         if (!StringUtils.hasText(bookId)) {
             throw new IllegalArgumentException("userId i bookId su obavezni");
         }
 
-        Book book = bookRepo.findById(bookId)
-                .orElseThrow(() -> new NoSuchElementException("Knjiga ne postoji"));
+        Book book = claim(bookId, inbound.getUserId());
+        boolean claimed = !inbound.getUserId().equals(book.getRentedBy());
+        if (claimed) bookCache.invalidate(bookId);
+
+        Order o = newOrder(inbound.getUserId(), book, Instant.now(), writeLegacyBook);
 
-        if (book.getRentedBy() == null || !book.getRentedBy().equals(inbound.getUserId())) {
-            book.setRentedBy(inbound.getUserId());
-            bookRepo.save(book);
+        Order saved;
+        try {
+            saved = repo.save(o);
+        } catch (RuntimeException e) {
+            if (claimed) release(bookId, inbound.getUserId(), book.getRentedBy());
+            throw e;
+        }
+        if (claimed) {
+            counters.rentedByChanged(book.getRentedBy(), inbound.getUserId());
+            catalogVersion.bump();
         }
+        hydrateDisplayBooks(List.of(saved));
+        return saved;
+    }
 
-        BookSnapshot snap = new BookSnapshot();
-        snap.setId(book.getId());
-        snap.setTitle(book.getTitle());
-        snap.setAuthor(book.getAuthor());
-        snap.setYear(book.getYear());
-        snap.setImage(book.getImage());
+    /** Status jedne knjige u batch zaduženju: created (sa orderId), conflict, not_found ili failed (upis porudžbine). */
+    public record BatchItem(String bookId, String status, String orderId) {}
+
+    public static final int MAX_BATCH = 100;
+
+    // privremeno polje na knjizi: koje primerke je zauzeo baš ovaj batch zahtev
+    static final String BATCH_CLAIM = "batchClaim";
+
+    /**
+     * Zaduženje više knjiga odjednom: jedno čitanje stanja, jedan updateMany koji zauzima
+     * slobodne primerke (rentedBy null -> userId), jedan neuređen insertMany porudžbina.
+     * Knjige koje je u međuvremenu uzeo neko drugi vraćaju se kao conflict, ostale prolaze;
+     * ako deo porudžbina ne može da se upiše, oslobađaju se samo njihove knjige (failed).
+     */
+    public List<BatchItem> createBatch(String userId, List<String> bookIds) {
+        if (!StringUtils.hasText(userId)) {
+            throw new IllegalArgumentException("Niste prijavljeni (nema userId u tokenu).");
+        }
+        List<String> ids = bookIds == null ? List.of() : bookIds.stream()
+                .filter(StringUtils::hasText).distinct().toList();
+        if (ids.isEmpty()) throw new IllegalArgumentException("bookIds je obavezan");
+        if (ids.size() > MAX_BATCH) throw new IllegalArgumentException("Najviše " + MAX_BATCH + " knjiga po zahtevu");
+
+        Query read = new Query(Criteria.where("id").in(ids));
+        read.fields().include("title", "author", "year", "image", "rentedBy");
+        Map<String, Book> books = new HashMap<>();
+        mongo.find(read, Book.class).forEach(b -> books.put(b.getId(), b));
+
+        // slobodne pokušavamo da zauzmemo; one koje korisnik već drži samo dobijaju porudžbinu
+        List<String> free = new ArrayList<>();
+        for (String id : ids) {
+            Book b = books.get(id);
+            if (b != null && b.getRentedBy() == null) free.add(id);
+        }
+        Set<String> claimed = new HashSet<>();
+        if (!free.isEmpty()) {
+            // jedinstvena oznaka ovog zahteva: rentedBy == userId bi obuhvatio i primerke koje je
+            // isti korisnik paralelno zauzeo drugim zahtevom (dupli submit, POST /orders)
+            String claim = UUID.randomUUID().toString();
+            long n = mongo.updateMulti(
+                    new Query(Criteria.where("id").in(free).and("rentedBy").is(null)),
+                    new Update().set("rentedBy", userId).set(BATCH_CLAIM, claim).set("updatedAt", Instant.now()),
+                    Book.class).getModifiedCount();
+            if (n == free.size()) {
+                claimed.addAll(free);
+            } else if (n > 0) {
+                // deo je preotet između čitanja i upisa -> naše su samo one sa našom oznakom
+                Query ours = new Query(Criteria.where("id").in(free).and(BATCH_CLAIM).is(claim));
+                ours.fields().include("id");
+                mongo.find(ours, Book.class).forEach(b -> claimed.add(b.getId()));
+            }
+            if (n > 0) {
+                mongo.updateMulti(new Query(Criteria.where("id").in(free).and(BATCH_CLAIM).is(claim)),
+                        new Update().unset(BATCH_CLAIM), Book.class);
+            }
+            bookCache.invalidateAll(free);
+        }
 
         Instant now = Instant.now();
+        List<Order> toInsert = new ArrayList<>();
+        for (String id : ids) {
+            Book b = books.get(id);
+            if (b != null && (claimed.contains(id) || userId.equals(b.getRentedBy()))) {
+                toInsert.add(newOrder(userId, b, now, writeLegacyBook));
+            }
+        }
+
+        Set<String> failed = new HashSet<>();
+        if (!toInsert.isEmpty()) {
+            // id-jevi unapred: bulk insert ih ne vraća, a greške stižu po indeksu u listi
+            toInsert.forEach(o -> o.setId(new ObjectId().toHexString()));
+            try {
+                mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class).insert(toInsert).execute();
+            } catch (BulkOperationException e) {
+                // neuređen upis: ostale porudžbine su upisane, greške su samo za navedene indekse
+                e.getErrors().forEach(err -> failed.add(toInsert.get(err.getIndex()).getBookId()));
+            } catch (RuntimeException e) {
+                if (!claimed.isEmpty()) releaseClaimed(userId, claimed);
+                throw e;
+            }
+        }
+        Map<String, String> orderIds = new HashMap<>();
+        for (Order o : toInsert) {
+            if (!failed.contains(o.getBookId())) orderIds.put(o.getBookId(), o.getId());
+        }
+        List<String> release = claimed.stream().filter(failed::contains).toList();
+        if (!release.isEmpty()) {
+            releaseClaimed(userId, release);
+            claimed.removeAll(release);
+        }
+        if (!claimed.isEmpty()) {
+            claimed.forEach(id -> counters.rentedByChanged(null, userId));
+            catalogVersion.bump();
+        }
+
+        List<BatchItem> out = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            if (!books.containsKey(id)) out.add(new BatchItem(id, "not_found", null));
+            else if (orderIds.containsKey(id)) out.add(new BatchItem(id, "created", orderIds.get(id)));
+            else if (failed.contains(id)) out.add(new BatchItem(id, "failed", null));
+            else out.add(new BatchItem(id, "conflict", null));
+        }
+        return out;
+    }
+
+    static Order newOrder(String userId, Book book, Instant now, boolean writeLegacyBook) {
+        BookSnapshot snap = snapshotOf(book);
 
         Order o = new Order();
         o.setId(null);
-        o.setUserId(inbound.getUserId());
-        o.setBookId(inbound.getBookId());
+        o.setUserId(userId);
+        o.setBookId(book.getId());
 
-        // Upis za oba sveta: i novo (bookSnapshot) i legacy (book)
         o.setBookSnapshot(snap);
-        o.setLegacyBook(snap);
+        if (writeLegacyBook) o.setLegacyBook(snap);
 
         o.setStatus("active");
         o.setRentedAt(now);
         o.setCreatedAt(now);
         o.setUpdatedAt(now);
+        return o;
+    }
 
-        Order saved = repo.save(o);
-        hydrateDisplayBook(saved);
-        return saved;
+    // kompenzacija za batch: vraća samo knjige koje je ovaj zahtev zauzeo
+    private void releaseClaimed(String userId, Collection<String> bookIds) {
+        mongo.updateMulti(new Query(Criteria.where("id").in(bookIds).and("rentedBy").is(userId)),
+                new Update().unset("rentedBy").set("updatedAt", Instant.now()), Book.class);
+        bookCache.invalidateAll(bookIds);
+        catalogVersion.bump();
+    }
+
+    /**
+     * Atomsko zauzimanje knjige: jedan findAndModify sa uslovom rentedBy ∈ {null, userId}.
+     * Vraća knjigu u stanju PRE izmene (rentedBy = prethodni zakupac); ako je drži neko drugi -> 409.
+     */
+    private Book claim(String bookId, String userId) {
+        Book before = mongo.findAndModify(claimQuery(bookId, userId), claimUpdate(userId),
+                FindAndModifyOptions.options().returnNew(false), Book.class);
+        if (before != null) return before;
+        throw claimFailure(mongo.exists(new Query(Criteria.where("id").is(bookId)), Book.class));
+    }
+
+    static Query claimQuery(String bookId, String userId) {
+        Query q = new Query(new Criteria().andOperator(
+                Criteria.where("id").is(bookId),
+                new Criteria().orOperator(Criteria.where("rentedBy").is(null), Criteria.where("rentedBy").is(userId))));
+        q.fields().include("title", "author", "year", "image", "rentedBy");
+        return q;
+    }
+
+    static Update claimUpdate(String userId) {
+        return new Update().set("rentedBy", userId).set("updatedAt", Instant.now());
+    }
+
+    static RuntimeException claimFailure(boolean bookExists) {
+        return bookExists ? new ConflictException("Knjiga je već iznajmljena")
+                : new NoSuchElementException("Knjiga ne postoji");
+    }
+
+    // kompenzacija kad upis porudžbine padne: vraća knjigu samo ako je i dalje naša
+    private void release(String bookId, String userId, String previous) {
+        mongo.updateFirst(releaseQuery(bookId, userId), releaseUpdate(previous), Book.class);
+        bookCache.invalidate(bookId);
+        catalogVersion.bump();
+    }
+
+    static Query releaseQuery(String bookId, String userId) {
+        return new Query(Criteria.where("id").is(bookId).and("rentedBy").is(userId));
+    }
+
+    static Update releaseUpdate(String previous) {
+        Update u = previous == null ? new Update().unset("rentedBy") : new Update().set("rentedBy", previous);
+        return u.set("updatedAt", Instant.now());
     }
 
     public Order patch(String id, Map<String, Object> changes) {
@@ -114,54 +344,124 @@ public class OrderService {
         o.setUpdatedAt(Instant.now());
 
         Order saved = repo.save(o);
-        hydrateDisplayBook(saved);
+        hydrateDisplayBooks(List.of(saved));
         return saved;
     }
 
+    /**
+     * Vraćanje: uslovni $set na porudžbini (samo ako returnedAt ne postoji) koji vraća novi dokument,
+     * pa $unset rentedBy na knjizi samo ako je i dalje drži isti korisnik. Ponovljen poziv ne dira knjigu.
+     */
     public Order returnOrder(String id) {
-        Order o = repo.findById(id).orElseThrow(NoSuchElementException::new);
+        Order o = mongo.findAndModify(new Query(Criteria.where("id").is(id).and("returnedAt").is(null)),
+                returnedUpdate(Instant.now()), FindAndModifyOptions.options().returnNew(true), Order.class);
 
-        if (o.getReturnedAt() == null) {
-            o.setReturnedAt(Instant.now());
-            o.setStatus("returned");
-            o.setUpdatedAt(Instant.now());
-            repo.save(o);
+        if (o == null) {
+            // već vraćena (ili ne postoji) – idempotentno, bez upisa
+            o = repo.findById(id).orElseThrow(NoSuchElementException::new);
+        } else if (StringUtils.hasText(o.getBookId())) {
+            releaseBooks(o.getUserId(), List.of(o.getBookId()));
         }
 
-        if (StringUtils.hasText(o.getBookId())) {
-            bookRepo.findById(o.getBookId()).ifPresent(b -> {
-                b.setRentedBy(null);
-                bookRepo.save(b);
-            });
+        hydrateDisplayBooks(List.of(o));
+        return o;
+    }
+
+    /** Rezultat masovnog vraćanja: broj zatvorenih porudžbina i oslobođenih knjiga. */
+    public record ReturnAllResult(long orders, long books) {}
+
+    /**
+     * Šalter: vraća sve aktivne porudžbine korisnika jednim updateMany i oslobađa sve knjige
+     * koje on drži drugim, uz čitanje samo id-jeva knjiga (za keš).
+     */
+    public ReturnAllResult returnAllForUser(String userId) {
+        if (!StringUtils.hasText(userId)) {
+            throw new IllegalArgumentException("userId je obavezan");
         }
+        long closed = mongo.updateMulti(
+                new Query(Criteria.where("userId").is(userId).and("returnedAt").is(null)),
+                returnedUpdate(Instant.now()), Order.class).getModifiedCount();
 
-        hydrateDisplayBook(o);
-        return o;
+        Query held = new Query(Criteria.where("rentedBy").is(userId));
+        held.fields().include("id");
+        List<String> bookIds = mongo.find(held, Book.class).stream().map(Book::getId).toList();
+        long freed = releaseBooks(userId, bookIds);
+        return new ReturnAllResult(closed, freed);
+    }
+
+    static Update returnedUpdate(Instant now) {
+        return new Update().set("returnedAt", now).set("status", "returned").set("updatedAt", now);
+    }
+
+    // $unset rentedBy samo na knjigama koje userId i dalje drži; vraća broj oslobođenih
+    private long releaseBooks(String userId, List<String> bookIds) {
+        if (bookIds.isEmpty()) return 0;
+        long n = mongo.updateMulti(releaseBooksQuery(userId, bookIds),
+                new Update().unset("rentedBy").set("updatedAt", Instant.now()), Book.class).getModifiedCount();
+        bookCache.invalidateAll(bookIds);
+        if (n > 0) {
+            counters.renterCleared(userId, n);
+            catalogVersion.bump();
+        }
+        return n;
+    }
+
+    static Query releaseBooksQuery(String userId, List<String> bookIds) {
+        Query q = new Query(Criteria.where("id").in(bookIds));
+        if (StringUtils.hasText(userId)) q.addCriteria(Criteria.where("rentedBy").is(userId));
+        return q;
     }
 
     public void delete(String id) {
         repo.deleteById(id);
     }
 
-    private void hydrateDisplayBook(Order o) {
-        BookSnapshot snap = o.getBookSnapshot();
-        if (snap == null) snap = o.getLegacyBook();
+    /**
+     * Popunjava displayBook za listu porudžbina: snapshot ako postoji, inače
+     * jedna $in pretraga (po HYDRATE_CHUNK id-jeva) za sve preostale bookId-jeve.
+     */
+    void hydrateDisplayBooks(List<Order> orders) {
+        Map<String, List<Order>> missing = applySnapshots(orders);
+        if (missing.isEmpty()) return;
 
-        if (snap != null) {
-            o.setDisplayBook(Order.DisplayBook.from(snap));
-            return;
+        List<String> ids = new ArrayList<>(missing.keySet());
+        for (int from = 0; from < ids.size(); from += HYDRATE_CHUNK) {
+            applyBooks(missing, bookCache.getAll(ids.subList(from, Math.min(ids.size(), from + HYDRATE_CHUNK))));
         }
+    }
 
-        if (StringUtils.hasText(o.getBookId())) {
-            bookRepo.findById(o.getBookId()).ifPresent(b -> {
-                BookSnapshot s = new BookSnapshot();
-                s.setId(b.getId());
-                s.setTitle(b.getTitle());
-                s.setAuthor(b.getAuthor());
-                s.setYear(b.getYear());
-                s.setImage(b.getImage());
-                o.setDisplayBook(Order.DisplayBook.from(s));
-            });
+    /** displayBook iz snapshot-a/legacy-ja; vraća porudžbine bez njih, grupisane po bookId. */
+    static Map<String, List<Order>> applySnapshots(List<Order> orders) {
+        Map<String, List<Order>> missing = new LinkedHashMap<>();
+        for (Order o : orders) {
+            BookSnapshot snap = o.getBookSnapshot();
+            if (snap == null) snap = o.getLegacyBook();
+
+            if (snap != null) {
+                o.setDisplayBook(Order.DisplayBook.from(snap));
+            } else if (StringUtils.hasText(o.getBookId())) {
+                missing.computeIfAbsent(o.getBookId(), k -> new ArrayList<>()).add(o);
+            }
         }
+        return missing;
+    }
+
+    static void applyBooks(Map<String, List<Order>> missing, Collection<Book> books) {
+        for (Book b : books) {
+            List<Order> waiting = missing.get(b.getId());
+            if (waiting == null) continue;
+            Order.DisplayBook d = Order.DisplayBook.from(snapshotOf(b));
+            waiting.forEach(o -> o.setDisplayBook(d));
+        }
+    }
+
+    static BookSnapshot snapshotOf(Book b) {
+        BookSnapshot s = new BookSnapshot();
+        s.setId(b.getId());
+        s.setTitle(b.getTitle());
+        s.setAuthor(b.getAuthor());
+        s.setYear(b.getYear());
+        s.setImage(b.getImage());
+        return s;
     }
 }
@@ -0,0 +1,196 @@
+package pz.bibliotekabackend.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.BookSnapshot;
+import pz.bibliotekabackend.model.Order;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Jednokratna migracija porudžbina: popunjava bookSnapshot (iz legacy "book" ili iz žive knjige)
+ * i briše duplirano polje "book". Ide po _id u batch-evima, posle svakog batch-a upisuje checkpoint
+ * u kolekciju "migrations" pa se posle restarta nastavlja gde je stala. Brzina je ograničena
+ * na app.migration.order-snapshot.rate dokumenata u sekundi da ne guši produkcijski saobraćaj.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderSnapshotMigration {
+
+    static final String CHECKPOINTS = "migrations";
+    static final String ID = "order-snapshot";
+
+    private final MongoTemplate mongo;
+    private final BookCache bookCache;
+
+    @Value("${app.migration.order-snapshot.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.migration.order-snapshot.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${app.migration.order-snapshot.rate:2000}")
+    private int ratePerSecond = 2000;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean stopRequested;
+
+    /** Stanje za /admin: checkpoint iz baze + da li trenutno radi. */
+    public record Status(boolean running, boolean done, String lastId, long scanned, long migrated,
+                         long orphans, Instant updatedAt) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) start();
+    }
+
+    /** Pokreće migraciju u pozadini; false ako već radi. */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) return false;
+        stopRequested = false;
+        Thread t = new Thread(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                log.warn("Migracija porudžbina prekinuta: {}", e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        }, "order-snapshot-migration");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    /** Zaustavlja posle tekućeg batch-a (checkpoint ostaje upisan). */
+    public void stop() { stopRequested = true; }
+
+    public Status status() {
+        Document cp = mongo.findById(ID, Document.class, CHECKPOINTS);
+        if (cp == null) return new Status(running.get(), false, null, 0, 0, 0, null);
+        Date at = cp.getDate("updatedAt");
+        return new Status(running.get(), cp.getBoolean("done", false),
+                Objects.toString(cp.get("lastId"), null),
+                number(cp, "scanned"), number(cp, "migrated"), number(cp, "orphans"),
+                at == null ? null : at.toInstant());
+    }
+
+    void run() {
+        Document cp = mongo.findById(ID, Document.class, CHECKPOINTS);
+        if (cp != null && cp.getBoolean("done", false)) return;
+
+        String lastId = cp == null ? null : Objects.toString(cp.get("lastId"), null);
+        long scanned = cp == null ? 0 : number(cp, "scanned");
+        long migrated = cp == null ? 0 : number(cp, "migrated");
+        long orphans = cp == null ? 0 : number(cp, "orphans");
+        log.info("Migracija porudžbina: start od {}", lastId == null ? "početka" : lastId);
+
+        while (!stopRequested) {
+            long started = System.nanoTime();
+            List<Order> batch = mongo.find(nextBatch(lastId), Order.class);
+            if (batch.isEmpty()) {
+                checkpoint(lastId, scanned, migrated, orphans, true);
+                log.info("Migracija porudžbina završena: {} migrirano, {} bez knjige", migrated, orphans);
+                return;
+            }
+
+            int[] res = migrate(batch);
+            migrated += res[0];
+            orphans += res[1];
+            scanned += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+            checkpoint(lastId, scanned, migrated, orphans, false);
+
+            throttle(batch.size(), started);
+        }
+        log.info("Migracija porudžbina zaustavljena na {}", lastId);
+    }
+
+    // samo dokumenti kojima nešto fali ili imaju višak; _id opseg ide preko primarnog indeksa
+    private Query nextBatch(String lastId) {
+        Query q = new Query(new Criteria().orOperator(
+                Criteria.where("bookSnapshot").exists(false),
+                Criteria.where("legacyBook").exists(true)));
+        if (lastId != null) q.addCriteria(Criteria.where("id").gt(lastId));
+        q.with(Sort.by(Sort.Direction.ASC, "id")).limit(batchSize);
+        q.fields().include("bookId", "bookSnapshot", "legacyBook");
+        return q;
+    }
+
+    /** Vraća {migrirano, bez izvora za snapshot}. */
+    int[] migrate(List<Order> batch) {
+        // žive knjige samo za porudžbine bez ikakvog snapshot-a, jednim getAll
+        List<String> liveIds = new ArrayList<>();
+        for (Order o : batch) {
+            if (o.getBookSnapshot() == null && o.getLegacyBook() == null && StringUtils.hasText(o.getBookId())) {
+                liveIds.add(o.getBookId());
+            }
+        }
+        Map<String, Book> live = new HashMap<>();
+        if (!liveIds.isEmpty()) bookCache.getAll(liveIds).forEach(b -> live.put(b.getId(), b));
+
+        BulkOperations bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class);
+        int migrated = 0, orphans = 0;
+        for (Order o : batch) {
+            Update u = new Update().unset("legacyBook");
+            if (o.getBookSnapshot() == null) {
+                BookSnapshot snap = o.getLegacyBook();
+                if (snap == null && o.getBookId() != null && live.containsKey(o.getBookId())) {
+                    snap = OrderService.snapshotOf(live.get(o.getBookId()));
+                }
+                if (snap != null) u.set("bookSnapshot", snap);
+                else orphans++; // knjiga obrisana, nema odakle da se popuni
+            }
+            bulk.updateOne(new Query(Criteria.where("id").is(o.getId())), u);
+            migrated++;
+        }
+        bulk.execute();
+        return new int[]{migrated - orphans, orphans};
+    }
+
+    private void checkpoint(String lastId, long scanned, long migrated, long orphans, boolean done) {
+        Update u = new Update()
+                .set("lastId", lastId)
+                .set("scanned", scanned)
+                .set("migrated", migrated)
+                .set("orphans", orphans)
+                .set("done", done)
+                .set("updatedAt", new Date());
+        mongo.upsert(new Query(Criteria.where("_id").is(ID)), u, CHECKPOINTS);
+    }
+
+    // batch od n dokumenata ne sme da traje kraće od n / rate sekundi
+    private void throttle(int n, long startedNanos) {
+        if (ratePerSecond <= 0) return;
+        long minNanos = n * 1_000_000_000L / ratePerSecond;
+        long sleepMs = (minNanos - (System.nanoTime() - startedNanos)) / 1_000_000;
+        if (sleepMs <= 0) return;
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopRequested = true;
+        }
+    }
+
+    private static long number(Document d, String key) {
+        Object v = d.get(key);
+        return v instanceof Number n ? n.longValue() : 0;
+    }
+}
@@ -0,0 +1,98 @@
+package pz.bibliotekabackend.service;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * ?fields=title,author,... -> Mongo projekcija + Jackson filter ("fields") za Book/Order.
+ * JSON imena se mapiraju na imena property-ja (npr. "book" -> legacyBook); id je uvek uključen.
+ */
+public final class Projection {
+
+    public static final String FILTER_ID = "fields";
+
+    private static final Map<String, String> BOOK_FIELDS = fields(
+            "id", "title", "author", "year", "image", "description", "rentedBy", "createdAt", "updatedAt");
+
+    private static final Map<String, String> ORDER_FIELDS;
+    static {
+        Map<String, String> m = fields(
+                "id", "userId", "bookId", "bookSnapshot", "status", "rentedAt", "returnedAt", "createdAt", "updatedAt");
+        m.put("book", "legacyBook");
+        m.put("displayBook", null); // izvedeno polje, ne čita se direktno
+        ORDER_FIELDS = m;
+    }
+
+    private final Set<String> json;
+    private final Set<String> properties;
+
+    private Projection(Set<String> json, Set<String> properties) {
+        this.json = json;
+        this.properties = properties;
+    }
+
+    /** null kada fields nije zadat (pun dokument). */
+    public static Projection forBook(String csv) { return parse(csv, BOOK_FIELDS); }
+
+    public static Projection forOrder(String csv) {
+        Projection p = parse(csv, ORDER_FIELDS);
+        // displayBook se računa iz snapshot-a, legacy book-a ili bookId-ja
+        if (p != null && p.has("displayBook")) p.properties.addAll(List.of("bookSnapshot", "legacyBook", "bookId"));
+        return p;
+    }
+
+    private static Projection parse(String csv, Map<String, String> allowed) {
+        if (!StringUtils.hasText(csv)) return null;
+        Set<String> json = new LinkedHashSet<>(List.of("id"));
+        Set<String> props = new LinkedHashSet<>();
+        for (String raw : csv.split(",")) {
+            String f = raw.trim();
+            if (f.isEmpty()) continue;
+            if (!allowed.containsKey(f)) {
+                throw new IllegalArgumentException("Nepoznato polje u fields: " + f);
+            }
+            json.add(f);
+            if (allowed.get(f) != null) props.add(allowed.get(f));
+        }
+        return new Projection(json, props);
+    }
+
+    public boolean has(String jsonField) { return json.contains(jsonField); }
+
+    public Query applyTo(Query q) {
+        if (properties.isEmpty()) q.fields().include("id");
+        properties.forEach(p -> q.fields().include(p));
+        return q;
+    }
+
+    /** Dodatno polje koje mora da se pročita (npr. sort ključ za cursor), bez uticaja na izlaz. */
+    public Projection alsoRead(String property) {
+        Set<String> props = new LinkedHashSet<>(properties);
+        props.add(property);
+        return new Projection(json, props);
+    }
+
+    public FilterProvider filters() {
+        return new SimpleFilterProvider().addFilter(FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(json));
+    }
+
+    /** Telo odgovora sa filterom polja; bez projekcije vraća telo neizmenjeno. */
+    public static Object wrap(Object body, Projection p) {
+        if (p == null) return body;
+        MappingJacksonValue v = new MappingJacksonValue(body);
+        v.setFilters(p.filters());
+        return v;
+    }
+
+    private static Map<String, String> fields(String... names) {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (String n : names) m.put(n, n);
+        return m;
+    }
+}
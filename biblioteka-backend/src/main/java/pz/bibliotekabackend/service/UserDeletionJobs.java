@@ -0,0 +1,83 @@
+package pz.bibliotekabackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import pz.bibliotekabackend.config.VirtualThreads;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Asinhrono brisanje korisnika: zahtev dobija jobId odmah, kaskada (UserService.delete) radi na
+ * malom posebnom pool-u. Stanje posla se čuva u memoriji (app.users.delete-jobs.retention) i
+ * čita preko GET /users/delete-jobs/{jobId}.
+ */
+@Slf4j
+@Component
+public class UserDeletionJobs {
+
+    public enum State { PENDING, RUNNING, DONE, FAILED }
+
+    public record Job(String id, String userId, State state, UserService.DeleteResult result, String error,
+                      Instant createdAt, Instant finishedAt) {}
+
+    private final UserService users;
+    private final ThreadPoolTaskExecutor executor;
+    private final Cache<String, Job> jobs;
+
+    public UserDeletionJobs(UserService users,
+                            VirtualThreads virtualThreads,
+                            @Value("${app.users.delete-jobs.threads:2}") int threads,
+                            @Value("${app.users.delete-jobs.queue:100}") int queue,
+                            @Value("${app.users.delete-jobs.retention:1h}") Duration retention) {
+        this.users = users;
+        this.jobs = Caffeine.newBuilder().expireAfterWrite(retention).build();
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("user-delete-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        virtualThreads.apply(executor, "user-delete-").initialize();
+    }
+
+    /** Vraća posao u stanju PENDING; pun red -> TaskRejectedException (503). */
+    public Job submit(String userId) {
+        Job job = new Job(UUID.randomUUID().toString(), userId, State.PENDING, null, null, Instant.now(), null);
+        jobs.put(job.id(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RuntimeException e) {
+            jobs.invalidate(job.id());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<Job> get(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private void run(Job job) {
+        jobs.put(job.id(), new Job(job.id(), job.userId(), State.RUNNING, null, null, job.createdAt(), null));
+        try {
+            var result = users.delete(job.userId());
+            jobs.put(job.id(), new Job(job.id(), job.userId(), State.DONE, result, null, job.createdAt(), Instant.now()));
+        } catch (RuntimeException e) {
+            log.warn("Brisanje korisnika {} nije uspelo: {}", job.userId(), e.getMessage());
+            jobs.put(job.id(), new Job(job.id(), job.userId(), State.FAILED, null, e.getMessage(),
+                    job.createdAt(), Instant.now()));
+        }
+    }
+}
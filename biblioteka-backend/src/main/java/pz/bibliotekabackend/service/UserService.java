@@ -1,26 +1,40 @@
 package pz.bibliotekabackend.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.Order;
 import pz.bibliotekabackend.model.User;
-import pz.bibliotekabackend.repository.BookRepository;
-import pz.bibliotekabackend.repository.OrderRepository;
 import pz.bibliotekabackend.repository.UserRepository;
+import pz.bibliotekabackend.security.JwtService;
+import pz.bibliotekabackend.security.PasswordHasher;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository repo;
-    private final BookRepository bookRepo;
-    private final OrderRepository orderRepo;
-    private final BCryptPasswordEncoder encoder;
+    private final PasswordHasher hasher;
+    private final CatalogCounters counters;
+    private final BookCache bookCache;
+    private final MongoTemplate mongo;
+    private final CatalogVersion catalogVersion;
+    private final JwtService jwt;
+
+    private static final int STREAM_BATCH = 500;
 
     public List<User> query(String email, String password) {
         if (StringUtils.hasText(email) && StringUtils.hasText(password)) {
@@ -28,10 +42,11 @@ public class UserService {
             return users.stream()
                     .filter(u -> {
                         var stored = u.getPassword();
-                        boolean hashed = stored != null && stored.startsWith("$2");
-                        return hashed
-                                ? encoder.matches(password, stored)
-                                : Objects.equals(password, stored);
+                        if (!hasher.matches(password, stored)) return false;
+                        if (hasher.needsUpgrade(stored)) {
+                            hasher.upgradeLater(password, h -> replacePassword(u.getId(), stored, h));
+                        }
+                        return true;
                     })
                     .toList();
         }
@@ -41,19 +56,37 @@ public class UserService {
         return repo.findAll();
     }
 
+    /** Svi korisnici preko kursora, u batch-evima (GET /users bez filtera). */
+    public void streamAll(Consumer<List<User>> sink) {
+        Query q = new Query().cursorBatchSize(STREAM_BATCH);
+        try (Stream<User> s = mongo.stream(q, User.class)) {
+            List<User> batch = new ArrayList<>(STREAM_BATCH);
+            for (Iterator<User> it = s.iterator(); it.hasNext(); ) {
+                batch.add(it.next());
+                if (batch.size() == STREAM_BATCH) {
+                    sink.accept(batch);
+                    batch = new ArrayList<>(STREAM_BATCH);
+                }
+            }
+            if (!batch.isEmpty()) sink.accept(batch);
+        }
+    }
+
     public User create(User u) {
-        if (StringUtils.hasText(u.getPassword()) && !u.getPassword().startsWith("$2")) {
-            u.setPassword(encoder.encode(u.getPassword()));
+        if (StringUtils.hasText(u.getPassword()) && !PasswordHasher.isHashed(u.getPassword())) {
+            u.setPassword(hasher.hash(u.getPassword()));
         }
         return repo.save(u);
     }
 
+    /** Promena lozinke opoziva sve do tada izdate tokene korisnika (i na ostalim instancama, RevocationSync). */
     public User patch(String id, Map<String, Object> changes) {
         var u = repo.findById(id).orElseThrow();
+        String oldPassword = u.getPassword();
         if (changes.containsKey("password")) {
             var raw = (String) changes.get("password");
-            if (StringUtils.hasText(raw) && !raw.startsWith("$2")) {
-                u.setPassword(encoder.encode(raw));
+            if (StringUtils.hasText(raw) && !PasswordHasher.isHashed(raw)) {
+                u.setPassword(hasher.hash(raw));
             } else {
                 u.setPassword(raw);
             }
@@ -66,19 +99,46 @@ public class UserService {
             var favs = (List<Object>) changes.get("favorites");
             u.setFavorites(favs.stream().map(Object::toString).toList());
         }
-        return repo.save(u);
+        User saved = repo.save(u);
+        if (!Objects.equals(oldPassword, saved.getPassword())) jwt.revokeUser(id);
+        return saved;
+    }
+
+    /**
+     * Rehash posle prijave: upisuje novi hash samo ako je u bazi i dalje stari
+     * (korisnik u međuvremenu nije promenio lozinku). Lozinka je ista, pa se tokeni ne opozivaju.
+     */
+    public boolean replacePassword(String id, String oldStored, String newHash) {
+        Query q = new Query(Criteria.where("id").is(id).and("password").is(oldStored));
+        return mongo.updateFirst(q, new Update().set("password", newHash), User.class).getModifiedCount() > 0;
     }
 
-    public void delete(String id) {
-        orderRepo.deleteByUserId(id);
+    /** Rezultat kaskadnog brisanja: obrisane porudžbine, oslobođene knjige, da li je korisnik postojao. */
+    public record DeleteResult(long orders, long books, boolean user) {}
 
-        List<Book> rented = bookRepo.findByRentedBy(id);
-        rented.forEach(b -> b.setRentedBy(null));
-        if (!rented.isEmpty()) {
-            bookRepo.saveAll(rented);
+    /**
+     * Kaskada na serveru, konstantan broj round trip-ova bez obzira na istoriju korisnika:
+     * deleteMany porudžbina, čitanje samo id-jeva njegovih knjiga (za keš), updateMany $unset rentedBy,
+     * pa brisanje korisnika. Korisnik se briše poslednji – ako nešto pukne usput, ponovljen poziv dovršava posao.
+     */
+    public DeleteResult delete(String id) {
+        long orders = mongo.remove(new Query(Criteria.where("userId").is(id)), Order.class).getDeletedCount();
+
+        Query held = new Query(Criteria.where("rentedBy").is(id));
+        held.fields().include("id");
+        List<String> bookIds = mongo.find(held, Book.class).stream().map(Book::getId).toList();
+        long books = 0;
+        if (!bookIds.isEmpty()) {
+            books = mongo.updateMulti(new Query(Criteria.where("id").in(bookIds).and("rentedBy").is(id)),
+                    new Update().unset("rentedBy").set("updatedAt", Instant.now()), Book.class).getModifiedCount();
+            bookCache.invalidateAll(bookIds);
+            counters.renterCleared(id, books);
+            catalogVersion.bump();
         }
 
-        repo.deleteById(id);
+        boolean user = mongo.remove(new Query(Criteria.where("id").is(id)), User.class).getDeletedCount() > 0;
+        return new DeleteResult(orders, books, user);
     }
+
     public User get(String id) { return repo.findById(id).orElse(null); }
 }
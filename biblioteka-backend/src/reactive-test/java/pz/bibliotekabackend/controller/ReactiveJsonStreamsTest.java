@@ -0,0 +1,29 @@
+package pz.bibliotekabackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveJsonStreamsTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    @Test
+    void response_jsonArray_ndjson_andEmpty() {
+        assertThat(write(Flux.just(Map.of("n", 1), Map.of("n", 2)), false)).isEqualTo("[{\"n\":1},{\"n\":2}]");
+        assertThat(write(Flux.just(Map.of("n", 1), Map.of("n", 2)), true)).isEqualTo("{\"n\":1}\n{\"n\":2}\n");
+        assertThat(write(Flux.empty(), false)).isEqualTo("[]");
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private String write(Flux<Map> items, boolean ndjson) {
+        var body = ReactiveJsonStreams.response(om, Map.class, ndjson, null, items).getBody();
+        return DataBufferUtils.join(body).map(b -> b.toString(StandardCharsets.UTF_8)).block();
+    }
+}
@@ -0,0 +1,119 @@
+package pz.bibliotekabackend.service;
+
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pz.bibliotekabackend.exception.ConflictException;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.Order;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveOrderServiceTest {
+
+    @Mock ReactiveMongoTemplate mongo;
+    @Mock CatalogCounters counters;
+    @Mock BookCache bookCache;
+    @Mock CatalogVersion catalogVersion;
+
+    @InjectMocks ReactiveOrderService service;
+
+    @Test
+    void create_whenBookHeldByOtherUser_failsWithConflict_andInsertsNothing() {
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class)))
+                .willReturn(Mono.empty());
+        given(mongo.exists(any(Query.class), eq(Book.class))).willReturn(Mono.just(true));
+
+        assertThatThrownBy(() -> service.create("U2", "B1").block()).isInstanceOf(ConflictException.class);
+        verify(mongo, never()).insert(Mockito.<Order>any());
+        verifyNoInteractions(counters);
+    }
+
+    @Test
+    void create_whenInsertFails_releasesClaimedBook() {
+        var book = new Book();
+        book.setId("B1");
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class)))
+                .willReturn(Mono.just(book));
+        given(mongo.insert(Mockito.<Order>any())).willReturn(Mono.error(new IllegalStateException("write failed")));
+        given(mongo.updateFirst(any(Query.class), any(Update.class), eq(Book.class)))
+                .willReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        assertThatThrownBy(() -> service.create("U1", "B1").block()).isInstanceOf(IllegalStateException.class);
+
+        ArgumentCaptor<Update> upd = ArgumentCaptor.forClass(Update.class);
+        verify(mongo).updateFirst(any(Query.class), upd.capture(), eq(Book.class));
+        assertThat(upd.getValue().getUpdateObject().get("$unset", Document.class)).containsKey("rentedBy");
+        verifyNoInteractions(counters);
+    }
+
+    @Test
+    void stream_pullsFromCursorOnDemand_andHydratesPerBatch() {
+        // 5000 porudžbina bez snapshot-a, potrošač traži samo 10
+        AtomicLong requested = new AtomicLong();
+        List<Order> all = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            var o = new Order();
+            o.setId("O" + i);
+            o.setBookId("B1");
+            all.add(o);
+        }
+        var book = new Book();
+        book.setId("B1");
+        book.setTitle("Na Drini ćuprija");
+        given(mongo.find(any(Query.class), eq(Order.class)))
+                .willReturn(Flux.fromIterable(all).doOnRequest(n -> requested.addAndGet(Math.min(n, 1_000_000))));
+        given(mongo.find(any(Query.class), eq(Book.class))).willReturn(Flux.just(book));
+
+        List<Order> first = service.stream("U1", null, null).take(10, true).collectList().block();
+
+        assertThat(first).hasSize(10).allSatisfy(o -> assertThat(o.getDisplayBook().getTitle()).isEqualTo("Na Drini ćuprija"));
+        // kursor je čitan najviše batch unapred (prefetch), ne cela kolekcija
+        assertThat(requested.get()).isLessThanOrEqualTo(2L * OrderService.STREAM_BATCH);
+        verify(mongo, times(1)).find(any(Query.class), eq(Book.class));
+    }
+
+    @Test
+    void returnAllForUser_closesOrdersBeforeFreeingBooks() {
+        var book = new Book();
+        book.setId("B1");
+        given(mongo.updateMulti(any(Query.class), any(Update.class), eq(Order.class)))
+                .willReturn(Mono.just(UpdateResult.acknowledged(2, 2L, null)));
+        given(mongo.find(any(Query.class), eq(Book.class))).willReturn(Flux.just(book));
+        given(mongo.updateMulti(any(Query.class), any(Update.class), eq(Book.class)))
+                .willReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+        var result = service.returnAllForUser("U1").block();
+
+        assertThat(result).isEqualTo(new OrderService.ReturnAllResult(2, 1));
+        InOrder order = inOrder(mongo);
+        order.verify(mongo).updateMulti(any(Query.class), any(Update.class), eq(Order.class));
+        order.verify(mongo).find(any(Query.class), eq(Book.class));
+        order.verify(mongo).updateMulti(any(Query.class), any(Update.class), eq(Book.class));
+    }
+
+    @Test
+    void returnAllForUser_whenClosingOrdersFails_doesNotTouchBooks() {
+        given(mongo.updateMulti(any(Query.class), any(Update.class), eq(Order.class)))
+                .willReturn(Mono.error(new IllegalStateException("write failed")));
+
+        assertThatThrownBy(() -> service.returnAllForUser("U1").block()).isInstanceOf(IllegalStateException.class);
+        verify(mongo, never()).find(any(Query.class), eq(Book.class));
+        verifyNoInteractions(counters, catalogVersion);
+    }
+}
@@ -0,0 +1,27 @@
+package pz.bibliotekabackend.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+import pz.bibliotekabackend.security.ReactiveAuthPrincipalArgumentResolver;
+
+/**
+ * Profil "reactive": AuthPrincipal parametar u WebFlux kontrolerima i @CreatedDate/@LastModifiedDate
+ * za upise kroz ReactiveMongoTemplate (EnableMongoAuditing pokriva samo blokirajući template).
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Configuration
+@EnableReactiveMongoAuditing
+@RequiredArgsConstructor
+public class ReactiveConfig implements WebFluxConfigurer {
+
+    private final ReactiveAuthPrincipalArgumentResolver authPrincipalResolver;
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(authPrincipalResolver);
+    }
+}
@@ -0,0 +1,159 @@
+package pz.bibliotekabackend.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.service.CatalogVersion;
+import pz.bibliotekabackend.service.Projection;
+import pz.bibliotekabackend.service.ReactiveBookService;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * WebFlux varijanta BookController-a (profil "reactive"): isti URL-ovi, parametri i headeri
+ * (X-Total-Count, Content-Range, Link, ETag). Nema keša gotovih strana ni /books/import.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/books")
+@RequiredArgsConstructor
+public class ReactiveBookController {
+
+    private final ReactiveBookService books;
+    private final CatalogVersion catalogVersion;
+
+    @GetMapping
+    public Mono<ResponseEntity<?>> list(
+            @RequestParam(required = false) String rentedBy,
+            @RequestParam(required = false, name = "q") String q,
+            @RequestParam(required = false, name = "search") String search,
+
+            @RequestParam(required = false, name = "page") Integer page,
+            @RequestParam(required = false, name = "_page") Integer _page,
+            @RequestParam(required = false, name = "limit") Integer limit,
+            @RequestParam(required = false, name = "_limit") Integer _limit,
+            @RequestParam(required = false, name = "sort") String sort,
+            @RequestParam(required = false, name = "_sort") String _sort,
+            @RequestParam(required = false, name = "order") String order,
+            @RequestParam(required = false, name = "_order") String _order,
+
+            @RequestParam(required = false, name = "id") List<String> idsRepeated,
+            @RequestParam(required = false, name = "ids") String idsCsv,
+            @RequestParam(required = false, name = "ids[]") List<String> idsBracket1,
+            @RequestParam(required = false, name = "id[]") List<String> idsBracket2,
+            @RequestParam(required = false, name = "favorites") String favoritesCsv,
+            @RequestParam(required = false, name = "favorites[]") List<String> favoritesBracket,
+
+            @RequestParam(required = false, name = "after") String after,
+            @RequestParam(required = false, name = "count") Boolean count,
+
+            @RequestParam(required = false, name = "fields") String fieldsCsv,
+
+            ServerWebExchange exchange
+    ) {
+        long version = catalogVersion.current();
+        String etag = Conditional.etag("c", version, queryKey(exchange.getRequest().getQueryParams()));
+        Instant lastModified = catalogVersion.lastModified();
+        if (Conditional.notModified(exchange.getRequest(), etag, lastModified)) {
+            return Mono.just(Conditional.notModifiedResponse(etag, lastModified));
+        }
+
+        Projection fields = Projection.forBook(fieldsCsv);
+
+        LinkedHashSet<String> idsSet = BookPaging.ids(idsRepeated, idsBracket1, idsBracket2, favoritesBracket,
+                idsCsv, favoritesCsv);
+
+        if (!idsSet.isEmpty()) {
+            return books.getAll(new ArrayList<>(idsSet), fields).map(result -> {
+                int n = result.size();
+                return ResponseEntity.ok()
+                        .eTag(etag)
+                        .lastModified(lastModified)
+                        .header("X-Total-Count", String.valueOf(n))
+                        .header("Content-Range", "items 0-" + (Math.max(0, n - 1)) + "/" + n)
+                        .body(Projection.wrap(result, fields));
+            });
+        }
+
+        int p = (page != null ? page : (_page != null ? _page : 1));
+        int l = (limit != null ? limit : (_limit != null ? _limit : 12));
+        String s = (sort != null ? sort : (_sort != null ? _sort : null));
+        String o = (order != null ? order : (_order != null ? _order : "asc"));
+        String query = (q != null ? q : (search != null ? search : null));
+
+        // keyset strana ide po sort ključu, pretraga po relevantnosti -> nema smislenog cursor-a
+        if (after != null && query != null) {
+            throw new IllegalArgumentException("after se ne može kombinovati sa q/search");
+        }
+        if (after != null) {
+            return cursorPage(etag, lastModified, rentedBy, after, l, s, o, Boolean.TRUE.equals(count), fields);
+        }
+
+        return books.page(rentedBy, query, p, l, s, o, fields)
+                .map(result -> ResponseEntity.ok()
+                        .headers(BookPaging.pageHeaders(result, p, l, s, o, etag, lastModified))
+                        .body(Projection.wrap(result.getContent(), fields)));
+    }
+
+    private Mono<ResponseEntity<?>> cursorPage(String etag, Instant lastModified, String rentedBy, String after,
+                                               int l, String s, String o, boolean withCount, Projection fields) {
+        Mono<Optional<Long>> total = withCount ? books.count(rentedBy).map(Optional::of) : Mono.just(Optional.empty());
+        return books.pageAfter(rentedBy, after, l, s, o, fields).zipWith(total, (result, n) -> {
+            var res = ResponseEntity.ok().eTag(etag).lastModified(lastModified);
+            if (result.next() != null) {
+                res.header("Link", BookPaging.nextLink(l, rentedBy, result.next()));
+            }
+            n.ifPresent(c -> res.header("X-Total-Count", String.valueOf(c)));
+            return res.body(Projection.wrap(result.content(), fields));
+        });
+    }
+
+    private static String queryKey(MultiValueMap<String, String> params) {
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(params).forEach((k, v) ->
+                sb.append(k).append('=').append(String.join(",", v)).append('&'));
+        return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> get(@PathVariable String id, ServerWebExchange exchange) {
+        Mono<ResponseEntity<?>> full = books.get(id)
+                .<ResponseEntity<?>>map(b -> {
+                    var res = ResponseEntity.ok();
+                    if (b.getUpdatedAt() != null) {
+                        res.eTag(Conditional.etag("b", b.getUpdatedAt())).lastModified(b.getUpdatedAt());
+                    }
+                    return res.body(Map.of("data", b));
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+        if (!Conditional.isConditional(exchange.getRequest())) return full;
+
+        return books.version(id)
+                .filter(v -> Conditional.notModified(exchange.getRequest(), Conditional.etag("b", v), v))
+                .<ResponseEntity<?>>map(v -> Conditional.notModifiedResponse(Conditional.etag("b", v), v))
+                .switchIfEmpty(full);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<?>> create(@RequestBody Book b) {
+        return books.create(b).map(saved -> ResponseEntity.ok(Map.of("data", saved)));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<?>> patch(@PathVariable String id, @RequestBody Map<String, Object> body) {
+        return books.patch(id, body).map(updated -> ResponseEntity.ok(Map.of("data", updated)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> delete(@PathVariable String id) {
+        return books.delete(id).thenReturn(ResponseEntity.noContent().build());
+    }
+}
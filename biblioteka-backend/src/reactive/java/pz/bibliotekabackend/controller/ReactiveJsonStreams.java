@@ -0,0 +1,51 @@
+package pz.bibliotekabackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/** WebFlux strimovanje (profil "reactive"); servlet varijanta je JsonStreams. */
+public final class ReactiveJsonStreams {
+
+    private ReactiveJsonStreams() {}
+
+    /**
+     * Isti JSON niz / NDJSON kao JsonStreams, ali iz Flux-a. Element se serijalizuje tek kad ga
+     * Netty zatraži, pa se backpressure klijenta prenosi do Mongo kursora. Jackson encoder za Flux
+     * ne primenjuje filtere (?fields=), zato se piše ovde.
+     */
+    public static <T> ResponseEntity<Flux<DataBuffer>> response(ObjectMapper om, Class<T> type, boolean ndjson,
+                                                               FilterProvider filters, Flux<T> items) {
+        ObjectWriter writer = om.writerFor(type);
+        ObjectWriter w = filters != null ? writer.with(filters) : writer;
+        var buffers = DefaultDataBufferFactory.sharedInstance;
+
+        Flux<DataBuffer> body = items.index().map(t -> {
+            try {
+                byte[] json = w.writeValueAsBytes(t.getT2());
+                DataBuffer buf = buffers.allocateBuffer(json.length + 1);
+                if (ndjson) return buf.write(json).write((byte) '\n');
+                return buf.write(t.getT1() == 0 ? (byte) '[' : (byte) ',').write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (!ndjson) {
+            // prazna kolekcija -> "[]"; inače zatvara niz otvoren prvim elementom
+            body = body.switchIfEmpty(Mono.fromSupplier(() -> buffers.wrap(new byte[]{'['})))
+                    .concatWith(Mono.fromSupplier(() -> buffers.wrap(new byte[]{']'})));
+        }
+        return ResponseEntity.ok()
+                .contentType(ndjson ? JsonStreams.NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,120 @@
+package pz.bibliotekabackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import pz.bibliotekabackend.model.Order;
+import pz.bibliotekabackend.security.AuthPrincipal;
+import pz.bibliotekabackend.service.Projection;
+import pz.bibliotekabackend.service.ReactiveOrderService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * WebFlux varijanta OrderController-a (profil "reactive"). Liste se uvek strimuju iz kursora
+ * (JSON niz ili NDJSON), uz backpressure do baze. /orders/batch ostaje na servlet instanci.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RestController
+@RequestMapping("/orders")
+@RequiredArgsConstructor
+public class ReactiveOrderController {
+
+    private final ReactiveOrderService orders;
+    private final ObjectMapper om;
+
+    @GetMapping
+    public ResponseEntity<?> list(@RequestParam(required = false) String userId,
+                                  @RequestParam(required = false) String bookId,
+                                  @RequestParam(required = false, name = "fields") String fieldsCsv,
+                                  @RequestHeader(value = "Accept", required = false) String accept,
+                                  AuthPrincipal caller) {
+        boolean isAdmin = caller != null && caller.isAdmin();
+        String effectiveUserId = isAdmin ? userId : (caller != null ? caller.userId() : null);
+        Projection fields = Projection.forOrder(fieldsCsv);
+        boolean ndjson = JsonStreams.wantsNdjson(accept);
+        if (!isAdmin && effectiveUserId == null) {
+            return ReactiveJsonStreams.response(om, Order.class, ndjson, null, Flux.empty());
+        }
+        return ReactiveJsonStreams.response(om, Order.class, ndjson, fields != null ? fields.filters() : null,
+                orders.stream(effectiveUserId, bookId, fields));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Order>> get(@PathVariable String id, ServerWebExchange exchange) {
+        Mono<ResponseEntity<Order>> full = orders.get(id)
+                .map(o -> {
+                    var res = ResponseEntity.ok();
+                    if (o.getUpdatedAt() != null) {
+                        res.eTag(Conditional.etag("o", o.getUpdatedAt())).lastModified(o.getUpdatedAt());
+                    }
+                    return res.body(o);
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+        if (!Conditional.isConditional(exchange.getRequest())) return full;
+
+        return orders.version(id)
+                .filter(v -> Conditional.notModified(exchange.getRequest(), Conditional.etag("o", v), v))
+                .map(v -> Conditional.<Order>notModifiedResponse(Conditional.etag("o", v), v))
+                .switchIfEmpty(full);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Order>> create(@RequestBody Map<String, Object> body,
+                                              AuthPrincipal caller,
+                                              ServerWebExchange exchange) {
+        String callerId = caller != null ? caller.userId() : null;
+
+        // isti ključevi kao OrderController
+        String bookId = null;
+        Object v;
+        if ((v = body.get("bookId")) instanceof String s1) bookId = s1;
+        else if ((v = body.get("book_id")) instanceof String s2) bookId = s2;
+        else if ((v = body.get("book")) instanceof String s3) bookId = s3;
+        else if ((v = body.get("idBook")) instanceof String s4) bookId = s4;
+        else if ((v = body.get("book")) instanceof Map<?,?> m) {
+            Object id = m.get("id");
+            if (id != null) bookId = id.toString();
+        }
+        if (bookId == null) {
+            String qp = exchange.getRequest().getQueryParams().getFirst("bookId");
+            if (qp != null && !qp.isBlank()) bookId = qp;
+        }
+
+        return orders.create(callerId, bookId)
+                .map(saved -> ResponseEntity.created(URI.create("/orders/" + saved.getId())).body(saved));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<Order>> patch(@PathVariable String id, @RequestBody Map<String, Object> body) {
+        return orders.patch(id, body).map(ResponseEntity::ok);
+    }
+
+    @PatchMapping("/{id}/return")
+    public Mono<ResponseEntity<?>> returnOrder(@PathVariable String id) {
+        return orders.returnOrder(id)
+                .<ResponseEntity<?>>map(updated -> ResponseEntity.ok(Map.of("data", updated)))
+                .onErrorResume(NoSuchElementException.class, e -> Mono.just(ResponseEntity.notFound().build()));
+    }
+
+    @PatchMapping("/return-all")
+    public Mono<ResponseEntity<?>> returnAll(@RequestParam(required = false) String userId,
+                                             AuthPrincipal caller) {
+        boolean isAdmin = caller != null && caller.isAdmin();
+        String target = isAdmin && StringUtils.hasText(userId) ? userId : (caller != null ? caller.userId() : null);
+        return orders.returnAllForUser(target).map(r -> ResponseEntity.ok(Map.of("data", r)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> delete(@PathVariable String id) {
+        return orders.delete(id).thenReturn(ResponseEntity.noContent().build());
+    }
+}
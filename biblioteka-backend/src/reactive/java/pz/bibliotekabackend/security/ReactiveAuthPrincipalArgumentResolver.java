@@ -0,0 +1,29 @@
+package pz.bibliotekabackend.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.SyncHandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+
+/** WebFlux: parametar tipa AuthPrincipal -> pozivalac iz tokena (ili null). */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Component
+@RequiredArgsConstructor
+public class ReactiveAuthPrincipalArgumentResolver implements SyncHandlerMethodArgumentResolver {
+
+    private final AuthPrincipals principals;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.getParameterType() == AuthPrincipal.class;
+    }
+
+    @Override
+    public Object resolveArgumentValue(MethodParameter parameter, BindingContext bindingContext,
+                                       ServerWebExchange exchange) {
+        return principals.resolve(exchange).orElse(null);
+    }
+}
@@ -0,0 +1,38 @@
+package pz.bibliotekabackend.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/** WebFlux pandan JwtAuthFilter-a; registruje ga ReactiveSecurityConfig (nije @Component). */
+@RequiredArgsConstructor
+public class ReactiveJwtFilter implements WebFilter {
+
+    private final AuthPrincipals principals;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // Preflight (CORS) – pusti odmah
+        if (HttpMethod.OPTIONS.equals(exchange.getRequest().getMethod())) {
+            return chain.filter(exchange);
+        }
+
+        // provera potpisa je CPU posao (i keširana u JwtService), ne blokira event-loop
+        return principals.resolve(exchange)
+                .map(p -> {
+                    var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + p.role().toUpperCase()));
+                    var authentication = new UsernamePasswordAuthenticationToken(p.userId(), null, authorities);
+                    return chain.filter(exchange)
+                            .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+                })
+                .orElseGet(() -> chain.filter(exchange));
+    }
+}
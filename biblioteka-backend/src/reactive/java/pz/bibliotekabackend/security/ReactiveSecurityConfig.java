@@ -0,0 +1,63 @@
+package pz.bibliotekabackend.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+
+/**
+ * Pravila iz SecurityConfig-a za rute koje postoje u profilu "reactive" (/books, /orders).
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Configuration
+@EnableWebFluxSecurity
+@RequiredArgsConstructor
+public class ReactiveSecurityConfig {
+
+    private final AuthPrincipals principals;
+    private final CorsConfigurationSource corsConfigurationSource;
+
+    @Value("${app.security.enabled:false}")
+    private boolean securityEnabled;
+
+    @Bean
+    SecurityWebFilterChain reactiveFilterChain(ServerHttpSecurity http) {
+        http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .cors(cors -> cors.configurationSource(corsConfigurationSource))
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                // stateless: bez sesije, kontekst se pravi iz tokena po zahtevu
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+
+        if (!securityEnabled) {
+            http.authorizeExchange(reg -> reg.anyExchange().permitAll());
+        } else {
+            http
+                    .authorizeExchange(auth -> auth
+                            .pathMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                            .pathMatchers(HttpMethod.GET, "/books/**", "/covers/**").permitAll()
+
+                            .pathMatchers(HttpMethod.DELETE, "/books/**").hasRole("ADMIN")
+                            .pathMatchers(HttpMethod.POST, "/books/**").hasRole("ADMIN")
+                            .pathMatchers(HttpMethod.PATCH, "/books/**").hasAnyRole("ADMIN", "USER")
+
+                            .pathMatchers(HttpMethod.PATCH, "/orders/return-all").hasAnyRole("ADMIN", "USER")
+                            .pathMatchers(HttpMethod.POST, "/orders/**").hasRole("USER")
+                            .pathMatchers(HttpMethod.PATCH, "/orders/**").hasRole("USER")
+
+                            .anyExchange().authenticated()
+                    )
+                    .addFilterAt(new ReactiveJwtFilter(principals), SecurityWebFiltersOrder.AUTHENTICATION);
+        }
+        return http.build();
+    }
+}
@@ -0,0 +1,158 @@
+package pz.bibliotekabackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.search.BookSearchIndex;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * BookService nad reaktivnim Mongo drajverom (profil "reactive"): isti upiti, brojači, search indeks
+ * i verzija kataloga, ali bez blokiranja event-loop niti. Keš punih dokumenata se samo invalidira
+ * (njegov loader je blokirajući), čitanja idu direktno u bazu.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveBookService {
+
+    private final ReactiveMongoTemplate mongo;
+    private final BookSearchIndex searchIndex;
+    private final CatalogCounters counters;
+    private final BookCache cache;
+    private final CatalogVersion catalogVersion;
+
+    public Mono<Book> get(String id) {
+        Optional<Book> cached = cache.peek(id);
+        return cached.map(Mono::just).orElseGet(() -> mongo.findById(id, Book.class));
+    }
+
+    /** updatedAt za conditional GET; prazan Mono ako knjiga ne postoji ili nema updatedAt. */
+    public Mono<Instant> version(String id) {
+        Optional<Book> cached = cache.peek(id);
+        if (cached.isPresent()) return Mono.justOrEmpty(cached.get().getUpdatedAt());
+        Query q = new Query(Criteria.where("id").is(id));
+        q.fields().include("updatedAt");
+        return mongo.findOne(q, Book.class).mapNotNull(Book::getUpdatedAt);
+    }
+
+    public Mono<List<Book>> getAll(List<String> ids, Projection fields) {
+        if (ids.isEmpty()) return Mono.just(List.of());
+        Query q = BookService.project(new Query(Criteria.where("id").in(ids)), fields);
+        return mongo.find(q, Book.class).collectList().map(rows -> BookService.inOrder(ids, rows));
+    }
+
+    public Mono<Page<Book>> page(String rentedBy, String qOrSearch, int page1Based, int limit,
+                                 String sortField, String order, Projection fields) {
+        Pageable pageable = BookService.pageable(page1Based, limit, sortField, order);
+        Sort.Direction dir = BookService.sortDirection(order);
+
+        if (StringUtils.hasText(rentedBy)) {
+            String renter = rentedBy.trim();
+            Query filter = new Query(Criteria.where("rentedBy").is(renter));
+            Mono<Long> total = counters.isReady() ? Mono.just(counters.rentedBy(renter)) : mongo.count(filter, Book.class);
+            return page(filter, pageable, fields, total);
+        }
+
+        if (StringUtils.hasText(qOrSearch)) {
+            String q = qOrSearch.trim();
+            if (searchIndex.isReady()) {
+                var hits = searchIndex.search(q, sortField, dir, (int) pageable.getOffset(), pageable.getPageSize());
+                return getAll(hits.ids(), null).map(content -> new PageImpl<>(content, pageable, hits.total()));
+            }
+            // indeks se još gradi -> regex kao BookRepository.findByTitleRegexIgnoreCaseOr...
+            String rx = ".*" + Pattern.quote(q) + ".*";
+            Query filter = new Query(new Criteria().orOperator(
+                    Criteria.where("title").regex(rx, "i"),
+                    Criteria.where("author").regex(rx, "i"),
+                    Criteria.where("year").regex(rx)));
+            return page(filter, pageable, null, mongo.count(filter, Book.class));
+        }
+
+        Query all = new Query();
+        Mono<Long> total = counters.isReady() ? Mono.just(counters.total()) : mongo.count(all, Book.class);
+        return page(all, pageable, fields, total);
+    }
+
+    private Mono<Page<Book>> page(Query filter, Pageable pageable, Projection fields, Mono<Long> total) {
+        Query q = BookService.project(Query.of(filter).with(pageable), fields);
+        return Mono.zip(mongo.find(q, Book.class).collectList(), total)
+                .map(t -> new PageImpl<>(t.getT1(), pageable, t.getT2()));
+    }
+
+    public Mono<BookService.KeysetPage> pageAfter(String rentedBy, String after, int limit, String sortField,
+                                                  String order, Projection fields) {
+        return Mono.fromCallable(() -> BookService.keyset(rentedBy, after, limit, sortField, order, fields))
+                .flatMap(k -> mongo.find(k.query(), Book.class).collectList().map(k::page));
+    }
+
+    public Mono<Long> count(String rentedBy) {
+        if (counters.isReady()) {
+            return Mono.just(StringUtils.hasText(rentedBy) ? counters.rentedBy(rentedBy.trim()) : counters.total());
+        }
+        Query q = new Query();
+        if (StringUtils.hasText(rentedBy)) q.addCriteria(Criteria.where("rentedBy").is(rentedBy.trim()));
+        return mongo.count(q, Book.class);
+    }
+
+    public Mono<Book> create(Book b) {
+        if (b.getCreatedAt() == null) b.setCreatedAt(Instant.now());
+        return mongo.save(b).doOnNext(saved -> {
+            cache.invalidate(saved.getId());
+            searchIndex.index(saved);
+            counters.bookAdded(saved.getRentedBy());
+            catalogVersion.bump();
+        });
+    }
+
+    public Mono<Book> patch(String id, Map<String, Object> changes) {
+        return mongo.findById(id, Book.class)
+                .switchIfEmpty(Mono.error(NoSuchElementException::new))
+                .flatMap(b -> {
+                    String rentedBefore = b.getRentedBy();
+                    if (changes.containsKey("title")) b.setTitle((String) changes.get("title"));
+                    if (changes.containsKey("author")) b.setAuthor((String) changes.get("author"));
+                    if (changes.containsKey("year")) b.setYear((String) changes.get("year"));
+                    if (changes.containsKey("image")) b.setImage((String) changes.get("image"));
+                    if (changes.containsKey("description")) b.setDescription((String) changes.get("description"));
+                    if (changes.containsKey("rentedBy")) b.setRentedBy((String) changes.get("rentedBy"));
+                    return mongo.save(b).doOnNext(saved -> {
+                        cache.invalidate(id);
+                        searchIndex.index(saved);
+                        counters.rentedByChanged(rentedBefore, saved.getRentedBy());
+                        catalogVersion.bump();
+                    });
+                });
+    }
+
+    public Mono<Void> delete(String id) {
+        Query q = new Query(Criteria.where("id").is(id));
+        q.fields().include("rentedBy");
+        return mongo.findAndRemove(q, Book.class)
+                .doOnNext(removed -> {
+                    counters.bookRemoved(removed.getRentedBy());
+                    catalogVersion.deleted(id);
+                })
+                .doFinally(s -> {
+                    cache.invalidate(id);
+                    searchIndex.remove(id);
+                })
+                .then();
+    }
+}
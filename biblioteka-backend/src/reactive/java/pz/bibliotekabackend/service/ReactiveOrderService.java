@@ -0,0 +1,197 @@
+package pz.bibliotekabackend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.Order;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * OrderService nad reaktivnim Mongo drajverom (profil "reactive"). Isti uslovni upisi
+ * (claim/release/return) iz OrderService-a; razlika je samo u tome što se ništa ne blokira.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveOrderService {
+
+    private final ReactiveMongoTemplate mongo;
+    private final CatalogCounters counters;
+    private final BookCache bookCache;
+    private final CatalogVersion catalogVersion;
+
+    @Value("${app.orders.write-legacy-book:true}")
+    private boolean writeLegacyBook = true;
+
+    /**
+     * Porudžbine kao Flux: kursor čita sledeći batch tek kad potrošač (response) zatraži,
+     * pa spor klijent usporava čitanje umesto da se batch-evi gomilaju u memoriji.
+     * displayBook se hidrira po batch-u jednom $in pretragom.
+     */
+    public Flux<Order> stream(String userId, String bookId, Projection fields) {
+        Query q = OrderService.filter(userId, bookId).cursorBatchSize(OrderService.STREAM_BATCH);
+        if (fields != null) fields.applyTo(q);
+        Flux<Order> orders = mongo.find(q, Order.class);
+        if (fields != null && !fields.has("displayBook")) return orders;
+        return orders.buffer(OrderService.STREAM_BATCH)
+                .concatMap(batch -> hydrate(batch).flatMapIterable(b -> b), 1);
+    }
+
+    public Mono<Instant> version(String id) {
+        Query q = new Query(Criteria.where("id").is(id));
+        q.fields().include("updatedAt");
+        return mongo.findOne(q, Order.class).mapNotNull(Order::getUpdatedAt);
+    }
+
+    public Mono<Order> get(String id) {
+        return mongo.findById(id, Order.class).flatMap(this::hydrate);
+    }
+
+    public Mono<Order> create(String userId, String bookId) {
+        if (!StringUtils.hasText(userId)) {
+            return Mono.error(new IllegalArgumentException("Niste prijavljeni (nema userId u tokenu)."));
+        }
+        Mono<String> target = StringUtils.hasText(bookId) ? Mono.just(bookId) : lastHeld(userId);
+        return target
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("userId i bookId su obavezni")))
+                .flatMap(id -> claim(id, userId).flatMap(book -> insert(userId, book)))
+                .flatMap(this::hydrate);
+    }
+
+    // bez bookId: poslednja knjiga koju korisnik drži (kao BookRepository.findTopByRentedBy...)
+    private Mono<String> lastHeld(String userId) {
+        Query q = new Query(Criteria.where("rentedBy").is(userId)).with(Sort.by(Sort.Direction.DESC, "updatedAt"));
+        q.fields().include("id");
+        return mongo.findOne(q.limit(1), Book.class).map(Book::getId);
+    }
+
+    private Mono<Book> claim(String bookId, String userId) {
+        return mongo.findAndModify(OrderService.claimQuery(bookId, userId), OrderService.claimUpdate(userId),
+                        FindAndModifyOptions.options().returnNew(false), Book.class)
+                .switchIfEmpty(Mono.defer(() -> mongo.exists(new Query(Criteria.where("id").is(bookId)), Book.class)
+                        .flatMap(exists -> Mono.error(OrderService.claimFailure(exists)))));
+    }
+
+    private Mono<Order> insert(String userId, Book book) {
+        boolean claimed = !userId.equals(book.getRentedBy());
+        if (claimed) bookCache.invalidate(book.getId());
+        Order o = OrderService.newOrder(userId, book, Instant.now(), writeLegacyBook);
+        return mongo.insert(o)
+                .doOnNext(saved -> {
+                    if (claimed) {
+                        counters.rentedByChanged(book.getRentedBy(), userId);
+                        catalogVersion.bump();
+                    }
+                })
+                // kompenzacija: knjiga se vraća prethodnom stanju samo ako je i dalje naša
+                .onErrorResume(e -> !claimed ? Mono.error(e)
+                        : mongo.updateFirst(OrderService.releaseQuery(book.getId(), userId),
+                                        OrderService.releaseUpdate(book.getRentedBy()), Book.class)
+                                .doOnSuccess(r -> {
+                                    bookCache.invalidate(book.getId());
+                                    catalogVersion.bump();
+                                })
+                                .then(Mono.error(e)));
+    }
+
+    public Mono<Order> patch(String id, Map<String, Object> changes) {
+        return mongo.findById(id, Order.class)
+                .switchIfEmpty(Mono.error(NoSuchElementException::new))
+                .flatMap(o -> {
+                    if (changes.containsKey("status")) o.setStatus((String) changes.get("status"));
+                    if (changes.containsKey("rentedAt")) {
+                        Object v = changes.get("rentedAt");
+                        o.setRentedAt(v != null ? Instant.parse(v.toString()) : null);
+                    }
+                    if (changes.containsKey("returnedAt")) {
+                        Object v = changes.get("returnedAt");
+                        o.setReturnedAt(v != null ? Instant.parse(v.toString()) : null);
+                    }
+                    o.setUpdatedAt(Instant.now());
+                    return mongo.save(o);
+                })
+                .flatMap(this::hydrate);
+    }
+
+    /** Uslovni $set na porudžbini pa $unset rentedBy na knjizi; ponovljen poziv ne dira knjigu. */
+    public Mono<Order> returnOrder(String id) {
+        return mongo.findAndModify(new Query(Criteria.where("id").is(id).and("returnedAt").is(null)),
+                        OrderService.returnedUpdate(Instant.now()), FindAndModifyOptions.options().returnNew(true),
+                        Order.class)
+                .flatMap(o -> StringUtils.hasText(o.getBookId())
+                        ? releaseBooks(o.getUserId(), List.of(o.getBookId())).thenReturn(o)
+                        : Mono.just(o))
+                .switchIfEmpty(Mono.defer(() -> mongo.findById(id, Order.class)))
+                .switchIfEmpty(Mono.error(NoSuchElementException::new))
+                .flatMap(this::hydrate);
+    }
+
+    public Mono<OrderService.ReturnAllResult> returnAllForUser(String userId) {
+        if (!StringUtils.hasText(userId)) return Mono.error(new IllegalArgumentException("userId je obavezan"));
+
+        Query held = new Query(Criteria.where("rentedBy").is(userId));
+        held.fields().include("id");
+
+        // isti redosled kao servlet: prvo se zatvaraju porudžbine, tek onda oslobađaju knjige
+        return mongo.updateMulti(
+                        new Query(Criteria.where("userId").is(userId).and("returnedAt").is(null)),
+                        OrderService.returnedUpdate(Instant.now()), Order.class)
+                .map(r -> r.getModifiedCount())
+                .flatMap(closed -> mongo.find(held, Book.class).map(Book::getId).collectList()
+                        .flatMap(ids -> releaseBooks(userId, ids))
+                        .map(freed -> new OrderService.ReturnAllResult(closed, freed)));
+    }
+
+    private Mono<Long> releaseBooks(String userId, List<String> bookIds) {
+        if (bookIds.isEmpty()) return Mono.just(0L);
+        return mongo.updateMulti(OrderService.releaseBooksQuery(userId, bookIds),
+                        new Update().unset("rentedBy").set("updatedAt", Instant.now()), Book.class)
+                .map(r -> {
+                    long n = r.getModifiedCount();
+                    bookCache.invalidateAll(bookIds);
+                    if (n > 0) {
+                        counters.renterCleared(userId, n);
+                        catalogVersion.bump();
+                    }
+                    return n;
+                });
+    }
+
+    public Mono<Void> delete(String id) {
+        return mongo.remove(new Query(Criteria.where("id").is(id)), Order.class).then();
+    }
+
+    private Mono<Order> hydrate(Order o) {
+        return hydrate(List.of(o)).thenReturn(o);
+    }
+
+    // isto kao OrderService.hydrateDisplayBooks, ali $in ide kroz reaktivni drajver (ne kroz BookCache)
+    private Mono<List<Order>> hydrate(List<Order> orders) {
+        Map<String, List<Order>> missing = OrderService.applySnapshots(orders);
+        if (missing.isEmpty()) return Mono.just(orders);
+
+        Query q = new Query(Criteria.where("id").in(new ArrayList<>(missing.keySet())));
+        q.fields().include("title", "author", "year", "image");
+        return mongo.find(q, Book.class).collectList()
+                .map(books -> {
+                    OrderService.applyBooks(missing, books);
+                    return orders;
+                });
+    }
+}
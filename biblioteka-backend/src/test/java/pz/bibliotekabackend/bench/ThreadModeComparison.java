@@ -0,0 +1,137 @@
+package pz.bibliotekabackend.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Poređenje platform vs virtual thread režima pod istim opterećenjem (nije JUnit test, pokreće se ručno).
+ * Obe instance rade nad istom bazom, npr:
+ *
+ *   java -jar target/biblioteka-backend-*.jar --server.port=8081
+ *   java -jar target/biblioteka-backend-*.jar --server.port=8082 --spring.profiles.active=virtual
+ *
+ *   mvn -Pjava21 test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=pz.bibliotekabackend.bench.ThreadModeComparison \
+ *       -Dexec.args="platform=http://localhost:8081 virtual=http://localhost:8082 --path=/books?page=5&limit=20 --concurrency=400 --seconds=30"
+ *
+ * Zatvorena petlja: svaki od N klijenata šalje sledeći zahtev čim dobije odgovor, pa je ovo mera
+ * protoka pri zadatoj konkurentnosti; p99 tačan pod otvorenim opterećenjem meri load-test modul.
+ */
+public final class ThreadModeComparison {
+
+    private ThreadModeComparison() {}
+
+    record Result(String label, long requests, long errors, double seconds, long p50, long p99, long max) {
+        double throughput() { return requests / seconds; }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> targets = new LinkedHashMap<>();
+        String path = "/books?page=1&limit=20";
+        String token = System.getenv("BENCH_TOKEN");
+        int concurrency = 200;
+        int seconds = 20;
+        int warmup = 5;
+        for (String a : args) {
+            if (a.startsWith("--path=")) path = a.substring(7);
+            else if (a.startsWith("--concurrency=")) concurrency = Integer.parseInt(a.substring(14));
+            else if (a.startsWith("--seconds=")) seconds = Integer.parseInt(a.substring(10));
+            else if (a.startsWith("--warmup=")) warmup = Integer.parseInt(a.substring(9));
+            else if (a.startsWith("--token=")) token = a.substring(8);
+            else if (a.contains("=")) targets.put(a.substring(0, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+            else throw new IllegalArgumentException("Nepoznat argument: " + a);
+        }
+        if (targets.isEmpty()) {
+            targets.put("platform", "http://localhost:8081");
+            targets.put("virtual", "http://localhost:8082");
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (var t : targets.entrySet()) {
+            URI uri = URI.create(t.getValue() + path);
+            if (warmup > 0) run(t.getKey(), uri, token, concurrency, warmup);
+            results.add(run(t.getKey(), uri, token, concurrency, seconds));
+        }
+
+        System.out.printf("%n%s  c=%d  %ds%n", path, concurrency, seconds);
+        System.out.printf("%-10s %10s %8s %10s %9s %9s %9s%n", "mode", "req/s", "errors", "requests", "p50 ms", "p99 ms", "max ms");
+        for (Result r : results) {
+            System.out.printf("%-10s %10.1f %8d %10d %9.2f %9.2f %9.2f%n", r.label(), r.throughput(), r.errors(),
+                    r.requests(), r.p50() / 1e6, r.p99() / 1e6, r.max() / 1e6);
+        }
+    }
+
+    static Result run(String label, URI uri, String token, int concurrency, int seconds) throws InterruptedException {
+        // poseban klijent po rundi: konekcije iz prethodne instance se ne dele
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        HttpRequest.Builder rb = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET();
+        if (token != null && !token.isBlank()) rb.header("Authorization", "Bearer " + token);
+        HttpRequest request = rb.build();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        long[][] perWorker = new long[concurrency][];
+        int[] counts = new int[concurrency];
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        long started = System.nanoTime();
+        for (int w = 0; w < concurrency; w++) {
+            int id = w;
+            Thread th = new Thread(() -> {
+                long[] lat = new long[1024];
+                int n = 0;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long t0 = System.nanoTime();
+                        try {
+                            HttpResponse<Void> res = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (res.statusCode() >= 400) errors.incrementAndGet();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        if (n == lat.length) lat = Arrays.copyOf(lat, n * 2);
+                        lat[n++] = System.nanoTime() - t0;
+                    }
+                } finally {
+                    perWorker[id] = lat;
+                    counts[id] = n;
+                    done.countDown();
+                }
+            }, "bench-" + w);
+            th.setDaemon(true);
+            th.start();
+        }
+        done.await();
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int off = 0;
+        for (int w = 0; w < concurrency; w++) {
+            System.arraycopy(perWorker[w], 0, all, off, counts[w]);
+            off += counts[w];
+        }
+        Arrays.sort(all);
+        return new Result(label, total, errors.get(), elapsed,
+                percentile(all, 0.50), percentile(all, 0.99), total == 0 ? 0 : all[total - 1]);
+    }
+
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+    }
+}
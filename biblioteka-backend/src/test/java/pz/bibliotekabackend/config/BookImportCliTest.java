@@ -0,0 +1,80 @@
+package pz.bibliotekabackend.config;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pz.bibliotekabackend.search.BookSearchIndex;
+import pz.bibliotekabackend.service.*;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class BookImportCliTest {
+
+    @TempDir Path dir;
+
+    @Test
+    void importFile_publishesSharedVersionBeforeExit() throws Exception {
+        MongoTemplate mongo = mock(MongoTemplate.class);
+        CatalogVersion version = new CatalogVersion();
+        BookImport bookImport = mock(BookImport.class);
+        // uvoz od tri batch-a: svaki upis pomera lokalnu verziju
+        given(bookImport.run(any(InputStream.class), eq(BookImport.Format.CSV), any())).willAnswer(inv -> {
+            version.bump();
+            version.bump();
+            version.bump();
+            return new BookImport.Report(false, 3, 3, 0, 0, List.of(), 5, null);
+        });
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CatalogSync.STATE))).willReturn(new Document("version", 3L));
+        var sync = new CatalogSync(mongo, version, mock(CatalogCounters.class), mock(BookSearchIndex.class),
+                mock(BookCache.class));
+        var cli = new BookImportCli(bookImport, sync, mock(ConfigurableApplicationContext.class));
+
+        int code = cli.importFile(csv("Title,Author\nSeobe,Miloš Crnjanski\n"));
+
+        assertThat(code).isZero();
+        ArgumentCaptor<Update> upd = ArgumentCaptor.forClass(Update.class);
+        verify(mongo).findAndModify(any(Query.class), upd.capture(), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CatalogSync.STATE));
+        assertThat(upd.getValue().getUpdateObject().get("$inc", Document.class)).containsEntry("version", 3L);
+    }
+
+    @Test
+    void importFile_sharedStateUnavailable_exitsWithError() throws Exception {
+        MongoTemplate mongo = mock(MongoTemplate.class);
+        CatalogVersion version = new CatalogVersion();
+        BookImport bookImport = mock(BookImport.class);
+        given(bookImport.run(any(InputStream.class), eq(BookImport.Format.CSV), any())).willAnswer(inv -> {
+            version.bump();
+            return new BookImport.Report(false, 1, 1, 0, 0, List.of(), 5, null);
+        });
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CatalogSync.STATE))).willThrow(new IllegalStateException("mongo nedostupan"));
+        var sync = new CatalogSync(mongo, version, mock(CatalogCounters.class), mock(BookSearchIndex.class),
+                mock(BookCache.class));
+        var cli = new BookImportCli(bookImport, sync, mock(ConfigurableApplicationContext.class));
+
+        assertThat(cli.importFile(csv("Title,Author\nSeobe,Miloš Crnjanski\n"))).isEqualTo(1);
+    }
+
+    private Path csv(String content) throws Exception {
+        Path p = dir.resolve("knjige.csv");
+        Files.writeString(p, content);
+        return p;
+    }
+}
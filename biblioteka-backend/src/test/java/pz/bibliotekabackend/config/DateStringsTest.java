@@ -0,0 +1,47 @@
+package pz.bibliotekabackend.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DateStringsTest {
+
+    @Test
+    void parse_isoInstantAndOffset() {
+        assertThat(DateStrings.parse("2025-08-16T15:41:37Z")).isEqualTo(Instant.parse("2025-08-16T15:41:37Z"));
+        assertThat(DateStrings.parse("2025-08-16T17:41:37.123+02:00"))
+                .isEqualTo(Instant.parse("2025-08-16T15:41:37.123Z"));
+        assertThat(DateStrings.parse("2025-08-16T15:41Z")).isEqualTo(Instant.parse("2025-08-16T15:41:00Z"));
+    }
+
+    @Test
+    void parse_legacyToStringFormat() {
+        assertThat(DateStrings.parse("Sat Aug 16 17:41:37 CEST 2025"))
+                .isEqualTo(Instant.parse("2025-08-16T15:41:37Z"));
+        assertThat(DateStrings.parse("Wed Jan 15 10:00:00 UTC 2025"))
+                .isEqualTo(Instant.parse("2025-01-15T10:00:00Z"));
+    }
+
+    @Test
+    void parse_unrecognizedOrOutOfRange_returnsNull() {
+        assertThat(DateStrings.parse("")).isNull();
+        assertThat(DateStrings.parse("juče")).isNull();
+        assertThat(DateStrings.parse("2025-02-30T10:00:00Z")).isNull();
+        assertThat(DateStrings.parse("2025-08-16T25:00:00Z")).isNull();
+        assertThat(DateStrings.parse("2025-08-16")).isNull();
+        assertThat(DateStrings.parse("2025-08-16T15:41:37Zxyz")).isNull();
+        assertThat(DateStrings.parse("Sat Aug 16 17:41:37 CEST")).isNull();
+    }
+
+    @Test
+    void converter_throwsOnlyForUnparseable() {
+        var converter = new MongoConfig.StringToInstantConverter();
+        assertThat(converter.convert(" ")).isNull();
+        assertThat(converter.convert("2024-02-29T00:00:00Z")).isEqualTo(Instant.parse("2024-02-29T00:00:00Z"));
+        assertThatThrownBy(() -> converter.convert("nije datum"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Ne mogu da parsiram datum");
+    }
+}
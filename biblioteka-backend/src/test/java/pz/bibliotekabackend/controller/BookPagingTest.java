@@ -0,0 +1,16 @@
+package pz.bibliotekabackend.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookPagingTest {
+
+    @Test
+    void nextLink_encodesParameterValues() {
+        assertThat(BookPaging.nextLink(12, " a&b+c d ", "Y3Vyc29y-_"))
+                .isEqualTo("</api/books?limit=12&rentedBy=a%26b%2Bc%20d&after=Y3Vyc29y-_>; rel=\"next\"");
+        assertThat(BookPaging.nextLink(12, null, "abc"))
+                .isEqualTo("</api/books?limit=12&after=abc>; rel=\"next\"");
+    }
+}
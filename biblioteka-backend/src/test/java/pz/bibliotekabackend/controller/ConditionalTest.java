@@ -0,0 +1,34 @@
+package pz.bibliotekabackend.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConditionalTest {
+
+    private final Instant updatedAt = Instant.parse("2025-08-16T15:41:37.250Z");
+
+    @Test
+    void ifNoneMatch_weakComparison_andTakesPrecedence() {
+        String etag = Conditional.etag("b", updatedAt);
+        var req = new MockHttpServletRequest();
+        req.addHeader("If-None-Match", "\"x\", " + etag.substring(2));
+        req.addHeader("If-Modified-Since", "Thu, 01 Jan 1970 00:00:00 GMT");
+        assertThat(Conditional.notModified(req, etag, updatedAt)).isTrue();
+
+        var other = new MockHttpServletRequest();
+        other.addHeader("If-None-Match", Conditional.etag("b", updatedAt.plusMillis(1)));
+        assertThat(Conditional.notModified(other, etag, updatedAt)).isFalse();
+    }
+
+    @Test
+    void ifModifiedSince_comparesAtSecondPrecision() {
+        var req = new MockHttpServletRequest();
+        req.addHeader("If-Modified-Since", "Sat, 16 Aug 2025 15:41:37 GMT");
+        assertThat(Conditional.notModified(req, "W/\"v\"", updatedAt)).isTrue();
+        assertThat(Conditional.notModified(req, "W/\"v\"", updatedAt.plusSeconds(1))).isFalse();
+    }
+}
@@ -0,0 +1,35 @@
+package pz.bibliotekabackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import pz.bibliotekabackend.service.ExportService;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class ExportControllerTest {
+
+    private final ExportService exports = mock(ExportService.class);
+    private final ExportController controller = new ExportController(exports, new ObjectMapper());
+
+    @Test
+    void gzipFollowsAcceptEncodingQValues_andVariesOnIt() {
+        given(exports.watermark()).willReturn(Instant.now());
+
+        var refused = controller.export("books", "ndjson", null, null, "gzip;q=0, identity");
+        var accepted = controller.export("books", "ndjson", null, null, "br;q=1, gzip;q=0.5");
+        var forced = controller.export("books", "ndjson", null, false, "gzip");
+
+        assertThat(refused.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(refused.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(accepted.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(accepted.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        // ?gzip= je eksplicitan: odgovor ne zavisi od zaglavlja
+        assertThat(forced.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(forced.getHeaders().getVary()).isEmpty();
+    }
+}
@@ -0,0 +1,36 @@
+package pz.bibliotekabackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonStreamsTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    @Test
+    void jsonArray_acrossBatches() throws Exception {
+        assertThat(write(false)).isEqualTo("[{\"n\":1},{\"n\":2},{\"n\":3}]");
+    }
+
+    @Test
+    void ndjson_oneObjectPerLine() throws Exception {
+        assertThat(write(true)).isEqualTo("{\"n\":1}\n{\"n\":2}\n{\"n\":3}\n");
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private String write(boolean ndjson) throws Exception {
+        var out = new ByteArrayOutputStream();
+        JsonStreams.body(om, Map.class, ndjson, null, sink -> {
+            sink.accept((List) List.of(Map.of("n", 1), Map.of("n", 2)));
+            sink.accept((List) List.of(Map.of("n", 3)));
+        }).writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
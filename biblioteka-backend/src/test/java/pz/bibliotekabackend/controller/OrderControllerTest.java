@@ -0,0 +1,21 @@
+package pz.bibliotekabackend.controller;
+
+import org.junit.jupiter.api.Test;
+import pz.bibliotekabackend.security.AuthPrincipal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderControllerTest {
+
+    private static final AuthPrincipal ADMIN = new AuthPrincipal("A1", "admin", "salter@example.com");
+    private static final AuthPrincipal USER = new AuthPrincipal("U1", "user", "mika@example.com");
+
+    @Test
+    void targetUser_adminActsForGivenUser_userAlwaysForSelf() {
+        assertThat(OrderController.targetUser(ADMIN, "U2")).isEqualTo("U2");
+        assertThat(OrderController.targetUser(ADMIN, " ")).isEqualTo("A1");
+        assertThat(OrderController.targetUser(USER, "U2")).isEqualTo("U1");
+        assertThat(OrderController.targetUser(USER, null)).isEqualTo("U1");
+        assertThat(OrderController.targetUser(null, "U2")).isNull();
+    }
+}
@@ -0,0 +1,69 @@
+package pz.bibliotekabackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageResponseCacheTest {
+
+    private final PageResponseCache cache = new PageResponseCache(new ObjectMapper(), 3, 10);
+
+    @Test
+    void entryIsValidOnlyForItsCatalogVersion() {
+        HttpHeaders h = new HttpHeaders();
+        h.set("X-Total-Count", "1");
+        cache.put("k", 7, h, List.of(Map.of("title", "Na Drini ćuprija")), null);
+
+        assertThat(cache.get("k", 7)).isNotNull();
+        assertThat(cache.get("k", 8)).isNull();
+        assertThat(cache.stats()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+        assertThat(cache.cacheable(3)).isTrue();
+        assertThat(cache.cacheable(4)).isFalse();
+    }
+
+    @Test
+    void servesGzipOnlyWhenAccepted() throws IOException {
+        var body = Collections.nCopies(50, Map.of("title", "Prokleta avlija", "author", "Ivo Andrić"));
+        var e = cache.put("k", 1, new HttpHeaders(), body, null);
+        assertThat(e.gzip()).isNotNull();
+
+        var plain = cache.respond(e, new MockHttpServletRequest());
+        assertThat(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(plain.getBody()).isEqualTo(e.json());
+        assertThat(plain.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+
+        var refused = new MockHttpServletRequest();
+        refused.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, br");
+        assertThat(cache.respond(e, refused).getBody()).isEqualTo(e.json());
+
+        var req = new MockHttpServletRequest();
+        req.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+        var gz = cache.respond(e, req);
+        assertThat(gz.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gz.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gz.getBody()))) {
+            assertThat(in.readAllBytes()).isEqualTo(e.json());
+        }
+    }
+
+    @Test
+    void key_searchWithoutSortIsRelevance_notSharedWithExplicitCreatedAt() {
+        String relevance = PageResponseCache.key(1, 12, null, "asc", "andrić", null, null);
+        String byCreated = PageResponseCache.key(1, 12, "createdAt", "asc", "andrić", null, null);
+
+        assertThat(relevance).isNotEqualTo(byCreated);
+        // bez pretrage podrazumevani sort jeste createdAt
+        assertThat(PageResponseCache.key(1, 12, null, "asc", null, null, null))
+                .isEqualTo(PageResponseCache.key(1, 12, "createdAt", "ASC", null, null, null));
+    }
+}
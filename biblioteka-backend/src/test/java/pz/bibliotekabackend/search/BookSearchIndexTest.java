@@ -0,0 +1,82 @@
+package pz.bibliotekabackend.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import pz.bibliotekabackend.model.Book;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class BookSearchIndexTest {
+
+    @Mock MongoTemplate mongo;
+
+    @InjectMocks BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        given(mongo.stream(Mockito.any(Query.class), Mockito.eq(Book.class))).willReturn(Stream.of(
+                book("B1", "Gorski vijenac", "Petar Petrović Njegoš", "1847", 1),
+                book("B2", "Na Drini ćuprija", "Ivo Andrić", "1945", 2),
+                book("B3", "Šćepan Mali", "Ненад Шћепановић", "2001", 3),
+                book("B4", "Prokleta avlija", "Ivo Andrić", "1954", 4)
+        ));
+        index.rebuild();
+    }
+
+    @Test
+    void fold_mapsLatinAndCyrillicDiacriticsToAscii() {
+        assertThat(TextFolding.fold("Šćepan")).isEqualTo("scepan");
+        assertThat(TextFolding.fold("Шћепан")).isEqualTo("scepan");
+        assertThat(TextFolding.fold("Đorđe Џаја")).isEqualTo("djordje dzaja");
+    }
+
+    @Test
+    void search_matchesFoldedPrefixAndSubstring() {
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.search("scepan", null, Sort.Direction.ASC, 0, 10).ids()).containsExactly("B3");
+        assertThat(index.search("andr", null, Sort.Direction.ASC, 0, 10).ids()).containsExactlyInAnyOrder("B2", "B4");
+        assertThat(index.search("uprij", null, Sort.Direction.ASC, 0, 10).ids()).containsExactly("B2");
+        assertThat(index.search("194", null, Sort.Direction.ASC, 0, 10).ids()).containsExactly("B2");
+    }
+
+    @Test
+    void search_ranksTitleAboveAuthor_andPages() {
+        var hits = index.search("andric", "createdAt", Sort.Direction.DESC, 1, 1);
+        assertThat(hits.total()).isEqualTo(2);
+        assertThat(hits.ids()).containsExactly("B2");
+
+        // B5 ima "andric" u naslovu, B2/B4 samo u autoru
+        index.index(book("B5", "Andrić u Višegradu", "Neko", "2010", 5));
+        assertThat(index.search("andric", null, Sort.Direction.ASC, 0, 10).ids().get(0)).isEqualTo("B5");
+    }
+
+    @Test
+    void remove_dropsDocumentFromPostings() {
+        index.remove("B2");
+        assertThat(index.search("andric", null, Sort.Direction.ASC, 0, 10).ids()).containsExactly("B4");
+        assertThat(index.search("drini", null, Sort.Direction.ASC, 0, 10).total()).isZero();
+    }
+
+    private static Book book(String id, String title, String author, String year, long created) {
+        Book b = new Book();
+        b.setId(id);
+        b.setTitle(title);
+        b.setAuthor(author);
+        b.setYear(year);
+        b.setCreatedAt(Instant.ofEpochSecond(created));
+        return b;
+    }
+}
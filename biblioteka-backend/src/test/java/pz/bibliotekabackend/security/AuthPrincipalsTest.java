@@ -0,0 +1,44 @@
+package pz.bibliotekabackend.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import pz.bibliotekabackend.model.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class AuthPrincipalsTest {
+
+    private final JwtService jwt = spy(new JwtService("test-secret-test-secret-test-secret-32", 60_000, 100));
+    private final AuthPrincipals principals = new AuthPrincipals(jwt);
+
+    @Test
+    void tokenIsParsedOncePerRequest() {
+        User u = new User();
+        u.setId("U1");
+        u.setEmail("mika@example.com");
+        u.setRole("admin");
+        var req = new MockHttpServletRequest();
+        req.addHeader("Authorization", "Bearer " + jwt.generate(u));
+
+        var first = principals.resolve(req);
+        var second = principals.resolve(req);
+
+        assertThat(first).contains(new AuthPrincipal("U1", "admin", "mika@example.com"));
+        assertThat(second).isSameAs(first);
+        assertThat(first.get().isAdmin()).isTrue();
+        verify(jwt, times(1)).parse(anyString());
+    }
+
+    @Test
+    void invalidOrMissingToken_isAnonymous_andAlsoCached() {
+        var req = new MockHttpServletRequest();
+        req.addHeader("Authorization", "Bearer nije.validan.token");
+
+        assertThat(principals.resolve(req)).isEmpty();
+        assertThat(principals.resolve(req)).isEmpty();
+        verify(jwt, times(1)).parse(anyString());
+
+        assertThat(principals.resolve(new MockHttpServletRequest())).isEmpty();
+    }
+}
@@ -0,0 +1,85 @@
+package pz.bibliotekabackend.security;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import pz.bibliotekabackend.model.User;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtServiceTest {
+
+    private final JwtService jwt = spy(new JwtService("test-secret-test-secret-test-secret-32", 60_000, 100));
+
+    @Test
+    void claims_verifiesEachTokenOnce() {
+        String token = jwt.generate(user("U1"));
+
+        assertThat(jwt.claims(token).getSubject()).isEqualTo("U1");
+        assertThat(jwt.claims(token).getSubject()).isEqualTo("U1");
+
+        verify(jwt, times(1)).parse(token);
+        assertThat(jwt.cacheStats()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void revokedToken_isRejectedEvenIfCached() {
+        String token = jwt.generate(user("U1"));
+        jwt.claims(token);
+
+        jwt.revoke(token);
+
+        assertThatThrownBy(() -> jwt.claims(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void revoke_ignoresTokensThatDoNotVerify() {
+        String token = jwt.generate(user("U1"));
+
+        assertThat(jwt.revoke("junk")).isFalse();
+        assertThat(jwt.revoke(token.substring(0, token.length() - 2) + "xx")).isFalse();
+
+        assertThat(jwt.cacheStats()).containsEntry("revokedTokens", 0L);
+        assertThat(jwt.claims(token).getSubject()).isEqualTo("U1");
+    }
+
+    @Test
+    void revocations_areNotEvictedBeyondCacheSize() {
+        String first = jwt.generate(user("U0"));
+        assertThat(jwt.revoke(first)).isTrue();
+        // keš verifikovanih tokena je ograničen na 100, lista opozvanih nije
+        for (int i = 1; i <= 300; i++) jwt.revoke(jwt.generate(user("U" + i)));
+
+        assertThatThrownBy(() -> jwt.claims(first)).isInstanceOf(JwtException.class);
+        assertThat(jwt.cacheStats()).containsEntry("revokedTokens", 301L);
+    }
+
+    @Test
+    void revokeUser_invalidatesTokensIssuedBefore() {
+        String a = jwt.generate(user("U1"));
+        String b = jwt.generate(user("U2"));
+        jwt.claims(a);
+
+        jwt.revokeUser("U1");
+
+        assertThatThrownBy(() -> jwt.claims(a)).isInstanceOf(JwtException.class);
+        assertThat(jwt.claims(b).getSubject()).isEqualTo("U2");
+    }
+
+    @Test
+    void tamperedToken_isNotCached() {
+        String token = jwt.generate(user("U1"));
+        String tampered = token.substring(0, token.length() - 2) + "xx";
+
+        assertThatThrownBy(() -> jwt.claims(tampered)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> jwt.claims(tampered)).isInstanceOf(JwtException.class);
+        verify(jwt, times(2)).parse(tampered);
+    }
+
+    private static User user(String id) {
+        User u = new User();
+        u.setId(id);
+        u.setRole("user");
+        return u;
+    }
+}
@@ -0,0 +1,106 @@
+package pz.bibliotekabackend.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    @Test
+    void matchesHashAndLegacyPlaintext_andFlagsThemForUpgrade() {
+        var hasher = new PasswordHasher(new BCryptPasswordEncoder(5), 1, 4, 4, Duration.ofSeconds(5));
+        String weak = new BCryptPasswordEncoder(4).encode("tajna");
+        String current = hasher.hash("tajna");
+
+        assertThat(hasher.matches("tajna", current)).isTrue();
+        assertThat(hasher.matches("pogresna", current)).isFalse();
+        assertThat(hasher.matches("tajna", "tajna")).isTrue();
+        assertThat(hasher.matches("tajna", weak)).isTrue();
+
+        assertThat(hasher.needsUpgrade("tajna")).isTrue();
+        assertThat(hasher.needsUpgrade(weak)).isTrue();
+        assertThat(hasher.needsUpgrade(current)).isFalse();
+    }
+
+    @Test
+    void upgradeLater_storesNewHashOffTheCallerThread() throws InterruptedException {
+        var hasher = new PasswordHasher(new BCryptPasswordEncoder(4), 1, 4, 4, Duration.ofSeconds(5));
+        var stored = new AtomicReference<String>();
+        var done = new CountDownLatch(1);
+
+        hasher.upgradeLater("tajna", h -> {
+            stored.set(Thread.currentThread().getName() + "|" + h);
+            done.countDown();
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stored.get()).startsWith("bcrypt-rehash-").contains("|$2a$04$");
+    }
+
+    @Test
+    void fullPoolRejectsImmediately() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var hasher = new PasswordHasher(blocking(started, release), 1, 0, 4, Duration.ofSeconds(5));
+        var first = new Thread(() -> hasher.hash("spora"));
+        first.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            assertThatThrownBy(() -> hasher.hash("tajna")).isInstanceOf(TaskRejectedException.class);
+        } finally {
+            release.countDown();
+            first.join();
+        }
+    }
+
+    @Test
+    void backlogOfRehashJobs_doesNotBlockLogins_andExcessIsDropped() throws InterruptedException {
+        var hasher = new PasswordHasher(new BCryptPasswordEncoder(4), 1, 1, 1, Duration.ofSeconds(5));
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var stored = new AtomicInteger();
+        hasher.upgradeLater("x", h -> {
+            started.countDown();
+            try { release.await(); } catch (InterruptedException ignored) {}
+            stored.incrementAndGet();
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        var queued = new CountDownLatch(1);
+        hasher.upgradeLater("y", h -> { stored.incrementAndGet(); queued.countDown(); }); // u redu
+        hasher.upgradeLater("z", h -> stored.incrementAndGet()); // red pun -> odbačen, bez izuzetka
+
+        try {
+            // bcrypt pool je i dalje slobodan za prijave
+            assertThat(hasher.matches("tajna", hasher.hash("tajna"))).isTrue();
+        } finally {
+            release.countDown();
+        }
+        assertThat(queued.await(5, TimeUnit.SECONDS)).isTrue();
+        // posao posle svih ostalih: kad prođe, "z" bi se već izvršio da nije odbačen
+        var drained = new CountDownLatch(1);
+        hasher.upgradeLater("w", h -> drained.countDown());
+        assertThat(drained.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stored.get()).isEqualTo(2);
+    }
+
+    // encode čeka dok test ne pusti, da bi bcrypt thread ostao zauzet
+    private static BCryptPasswordEncoder blocking(CountDownLatch started, CountDownLatch release) {
+        return new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence raw) {
+                started.countDown();
+                try { release.await(); } catch (InterruptedException ignored) {}
+                return super.encode(raw);
+            }
+        };
+    }
+}
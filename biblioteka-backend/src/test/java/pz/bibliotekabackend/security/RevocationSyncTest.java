@@ -0,0 +1,78 @@
+package pz.bibliotekabackend.security;
+
+import io.jsonwebtoken.JwtException;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pz.bibliotekabackend.model.User;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class RevocationSyncTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-32";
+
+    private final MongoTemplate mongo = mock(MongoTemplate.class);
+
+    @Test
+    void poll_appliesRevocationsFromOtherInstances() {
+        // dve instance sa istim ključem: odjava ide na servlet, token se i dalje šalje reaktivnoj
+        JwtService servlet = new JwtService(SECRET, 60_000, 100);
+        JwtService reactive = new JwtService(SECRET, 60_000, 100);
+        String token = servlet.generate(user("U1"));
+        String other = servlet.generate(user("U2"));
+        assertThat(reactive.claims(token).getSubject()).isEqualTo("U1");
+
+        servlet.revoke(token);
+        servlet.revokeUser("U2");
+        List<Document> stored = servlet.drainUnpublished().stream().map(RevocationSyncTest::stored).toList();
+        given(mongo.find(any(Query.class), eq(Document.class), eq(RevocationSync.COLLECTION))).willReturn(stored);
+
+        new RevocationSync(mongo, reactive).poll();
+
+        assertThatThrownBy(() -> reactive.claims(token)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> reactive.claims(other)).isInstanceOf(JwtException.class);
+        verify(mongo, never()).bulkOps(any(BulkOperations.BulkMode.class), anyString());
+    }
+
+    @Test
+    void poll_failedPublish_isRetried() {
+        JwtService jwt = new JwtService(SECRET, 60_000, 100);
+        BulkOperations bulk = mock(BulkOperations.class);
+        given(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, RevocationSync.COLLECTION)).willReturn(bulk);
+        given(bulk.execute()).willThrow(new DataAccessResourceFailureException("mongo nedostupan")).willReturn(null);
+        RevocationSync sync = new RevocationSync(mongo, jwt);
+
+        jwt.revokeUser("U1");
+        sync.poll();
+        sync.poll();
+
+        verify(bulk, times(2)).upsert(argThat((Query q) -> "user:U1".equals(q.getQueryObject().get("_id"))),
+                any(Update.class));
+        assertThat(jwt.drainUnpublished()).isEmpty();
+    }
+
+    // oblik dokumenta koji RevocationSync upisuje
+    private static Document stored(JwtService.Revocation r) {
+        return new Document("user", r.user()).append("key", r.key())
+                .append("at", r.at()).append("expiresAt", new Date(r.expiresAt()));
+    }
+
+    private static User user(String id) {
+        User u = new User();
+        u.setId(id);
+        u.setRole("user");
+        return u;
+    }
+}
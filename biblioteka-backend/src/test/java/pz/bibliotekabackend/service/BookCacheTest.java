@@ -0,0 +1,126 @@
+package pz.bibliotekabackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.repository.BookRepository;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookCacheTest {
+
+    @Mock BookRepository repo;
+
+    BookCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new BookCache(repo, 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void get_loadsOnce_thenServesFromCache_untilInvalidated() {
+        given(repo.findById("B1")).willReturn(Optional.of(book("B1")));
+
+        assertThat(cache.peek("B1")).isEmpty();
+        assertThat(cache.get("B1")).map(Book::getTitle).contains("Naslov B1");
+        assertThat(cache.get("B1")).isPresent();
+        assertThat(cache.peek("B1")).isPresent();
+        verify(repo, times(1)).findById("B1");
+
+        cache.invalidate("B1");
+        assertThat(cache.peek("B1")).isEmpty();
+        cache.get("B1");
+        verify(repo, times(2)).findById("B1");
+    }
+
+    @Test
+    void get_missingOrNullId_isEmpty_andNotCached() {
+        given(repo.findById("X")).willReturn(Optional.empty());
+
+        assertThat(cache.get("X")).isEmpty();
+        assertThat(cache.get("X")).isEmpty();
+        assertThat(cache.get(null)).isEmpty();
+        assertThat(cache.peek(null)).isEmpty();
+        verify(repo, times(2)).findById("X");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getAll_loadsOnlyMisses_inOneQuery_keepsRequestOrder_andSkipsUnknown() {
+        given(repo.findById("B2")).willReturn(Optional.of(book("B2")));
+        cache.get("B2");
+        given(repo.findAllById(Mockito.<Iterable<String>>any())).willAnswer(inv -> {
+            Collection<String> ids = inv.getArgument(0);
+            return ids.stream().filter(id -> !id.equals("NEMA")).map(BookCacheTest::book).toList();
+        });
+
+        List<Book> out = cache.getAll(List.of("B3", "NEMA", "B2", "B1"));
+
+        assertThat(out).extracting(Book::getId).containsExactly("B3", "B2", "B1");
+        var ids = ArgumentCaptor.forClass(Iterable.class);
+        verify(repo, times(1)).findAllById(ids.capture());
+        assertThat((Iterable<String>) ids.getValue()).containsExactlyInAnyOrder("B3", "NEMA", "B1");
+        assertThat(cache.getAll(List.of())).isEmpty();
+    }
+
+    @Test
+    void getAll_invalidateDuringBulkLoad_isNotLost() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        // Mongo vraća staro stanje; upis (claim) i njegov invalidate stižu pre nego što punjenje upiše u keš
+        given(repo.findAllById(Mockito.<Iterable<String>>any())).willAnswer(inv -> {
+            reading.countDown();
+            assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+            return List.of(book("B1"), book("B2"));
+        });
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Book>> load = pool.submit(() -> cache.getAll(List.of("B1", "B2")));
+            assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+            cache.invalidate("B1");
+            written.countDown();
+
+            assertThat(load.get(5, TimeUnit.SECONDS)).extracting(Book::getId).containsExactly("B1", "B2");
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(cache.peek("B1")).isEmpty();
+    }
+
+    @Test
+    void invalidateAll_dropsGivenIds_orEverything() {
+        given(repo.findById(anyString())).willAnswer(inv -> Optional.of(book(inv.getArgument(0))));
+        cache.get("B1");
+        cache.get("B2");
+        cache.get("B3");
+
+        cache.invalidateAll(List.of("B1", "B2"));
+        assertThat(cache.peek("B1")).isEmpty();
+        assertThat(cache.peek("B3")).isPresent();
+
+        cache.invalidateAll();
+        assertThat(cache.peek("B3")).isEmpty();
+        assertThat(cache.stats()).containsKeys("hits", "misses", "size");
+    }
+
+    private static Book book(String id) {
+        var b = new Book();
+        b.setId(id);
+        b.setTitle("Naslov " + id);
+        return b;
+    }
+}
@@ -0,0 +1,36 @@
+package pz.bibliotekabackend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BookCursorTest {
+
+    @Test
+    void encodeDecode_roundTripsValueAndNull() {
+        var c = new BookCursor("title", Sort.Direction.DESC, "Na Drini ćuprija", "64f0c0ffee0000000000000a");
+        assertThat(BookCursor.decode(c.encode())).isEqualTo(c);
+
+        var n = new BookCursor("createdAt", Sort.Direction.ASC, null, "64f0c0ffee0000000000000b");
+        assertThat(BookCursor.decode(n.encode())).isEqualTo(n);
+        assertThat(n.typedValue()).isNull();
+    }
+
+    @Test
+    void createdAt_isTypedAsInstant() {
+        var c = new BookCursor("createdAt", Sort.Direction.ASC, "1700000000000", "x");
+        assertThat(BookCursor.decode(c.encode()).typedValue()).isEqualTo(Instant.ofEpochMilli(1700000000000L));
+    }
+
+    @Test
+    void decode_rejectsGarbage() {
+        assertThatThrownBy(() -> BookCursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+        var bad = new BookCursor("year", Sort.Direction.ASC, "2001", "x");
+        assertThatThrownBy(() -> BookCursor.decode(bad.encode()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,133 @@
+package pz.bibliotekabackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonInt32;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.search.BookSearchIndex;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+class BookImportTest {
+
+    @Test
+    void csvRows_handlesQuotesEscapesAndNewlinesInFields() {
+        String csv = "Title,Author,Year\r\n"
+                + "\"Na Drini, ćuprija\",Ivo Andrić,1945\r\n"
+                + "\n"
+                + "\"Rekao je \"\"ne\"\"\",\"Autor\nsa dva reda\",\n"
+                + "samo,dve\n";
+        var rows = new ArrayList<BookImport.RawRow>();
+        new CsvRows(new BufferedReader(new StringReader(csv))).forEachRemaining(rows::add);
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).values()).containsEntry("title", "Na Drini, ćuprija").containsEntry("year", "1945");
+        assertThat(rows.get(1).values()).containsEntry("title", "Rekao je \"ne\"")
+                .containsEntry("author", "Autor\nsa dva reda").containsEntry("year", "");
+        assertThat(rows.get(2).error()).contains("Očekivano 3 kolona");
+    }
+
+    @Test
+    void run_csvWithUtf8Bom_readsFirstHeaderColumn() {
+        MongoTemplate mongo = mock(MongoTemplate.class);
+        BulkOperations bulk = mock(BulkOperations.class);
+        given(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)).willReturn(bulk);
+        given(bulk.execute()).willReturn(mock(BulkWriteResult.class));
+        var importer = new BookImport(mongo, new ObjectMapper(), mock(BookSearchIndex.class),
+                mock(CatalogCounters.class), mock(BookCache.class), mock(CatalogVersion.class));
+
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        byte[] body = "Title,Author\nSeobe,Miloš Crnjanski\n".getBytes(StandardCharsets.UTF_8);
+        byte[] csv = new byte[bom.length + body.length];
+        System.arraycopy(bom, 0, csv, 0, bom.length);
+        System.arraycopy(body, 0, csv, bom.length, body.length);
+
+        var report = importer.run(new ByteArrayInputStream(csv), BookImport.Format.CSV, null);
+
+        assertThat(report.failed()).isZero();
+        ArgumentCaptor<Update> upd = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).upsert(any(Query.class), upd.capture());
+        assertThat(upd.getValue().getUpdateObject().toString()).contains("Seobe");
+    }
+
+    @Test
+    void run_upsertsInBatches_dedupesKeys_andReportsRowErrors() {
+        MongoTemplate mongo = mock(MongoTemplate.class);
+        BulkOperations bulk = mock(BulkOperations.class);
+        BulkWriteResult res = mock(BulkWriteResult.class);
+        given(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)).willReturn(bulk);
+        given(bulk.execute()).willReturn(res);
+        given(res.getUpserts()).willReturn(List.of(new BulkWriteUpsert(0, new BsonInt32(1))));
+        given(res.getMatchedCount()).willReturn(1);
+
+        var importer = new BookImport(mongo, new ObjectMapper(), mock(BookSearchIndex.class),
+                mock(CatalogCounters.class), mock(BookCache.class), mock(CatalogVersion.class));
+
+        String ndjson = """
+                {"title":"Seobe","author":"Miloš Crnjanski","year":1929}
+                {"title":"  Seobe ","author":"Miloš  Crnjanski","image":"https://x/seobe.jpg"}
+                {"title":"Bez autora"}
+                nije json
+                {"title":"Prokleta avlija","author":"Ivo Andrić","year":"pedesete"}
+                {"title":"Tvrđava","author":"Meša Selimović"}
+                """;
+        var report = importer.run(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                BookImport.Format.NDJSON, 2);
+
+        assertThat(report.rows()).isEqualTo(6);
+        assertThat(report.failed()).isEqualTo(3);
+        assertThat(report.errors()).extracting(BookImport.RowError::row).containsExactly(3L, 4L, 5L);
+        // prva dva reda su isti ključ -> jedan upsert; sa Tvrđavom batch od 2 se upisuje jednim bulkWrite-om
+        verify(bulk, times(2)).upsert(any(Query.class), any(Update.class));
+        verify(bulk, times(1)).execute();
+        assertThat(report.inserted()).isEqualTo(1);
+        assertThat(report.updated()).isEqualTo(1);
+        assertThat(importer.progress()).isEqualTo(report);
+    }
+
+    @Test
+    void run_abortedMidway_stillRefreshesDerivedState_andReportsError() {
+        MongoTemplate mongo = mock(MongoTemplate.class);
+        BulkOperations bulk = mock(BulkOperations.class);
+        BulkWriteResult res = mock(BulkWriteResult.class);
+        given(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)).willReturn(bulk);
+        given(bulk.execute()).willReturn(res).willThrow(new IllegalStateException("mongo nedostupan"));
+        given(res.getUpserts()).willReturn(List.of(new BulkWriteUpsert(0, new BsonInt32(1))));
+
+        var counters = mock(CatalogCounters.class);
+        var cache = mock(BookCache.class);
+        var version = mock(CatalogVersion.class);
+        var importer = new BookImport(mongo, new ObjectMapper(), mock(BookSearchIndex.class), counters, cache, version);
+
+        String ndjson = """
+                {"title":"Seobe","author":"Miloš Crnjanski"}
+                {"title":"Tvrđava","author":"Meša Selimović"}
+                """;
+        assertThatThrownBy(() -> importer.run(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                BookImport.Format.NDJSON, 1)).isInstanceOf(IllegalStateException.class);
+
+        // prvi batch je u bazi -> keš, brojači i verzija kataloga se ipak osvežavaju
+        verify(cache).invalidateAll();
+        verify(counters).reconcile();
+        verify(version).fullRefresh();
+        var report = importer.progress();
+        assertThat(report.running()).isFalse();
+        assertThat(report.inserted()).isEqualTo(1);
+        assertThat(report.error()).contains("mongo nedostupan");
+    }
+}
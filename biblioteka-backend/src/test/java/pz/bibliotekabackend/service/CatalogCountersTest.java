@@ -0,0 +1,108 @@
+package pz.bibliotekabackend.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import pz.bibliotekabackend.model.Book;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogCountersTest {
+
+    @Mock MongoTemplate mongo;
+
+    @InjectMocks CatalogCounters counters;
+
+    @Test
+    void reconcile_seedsFromAggregation_thenTracksWrites() {
+        var rows = List.of(
+                new Document("_id", null).append("n", 7),
+                new Document("_id", "U1").append("n", 2),
+                new Document("_id", "U2").append("n", 1));
+        given(mongo.aggregate(Mockito.any(Aggregation.class), Mockito.eq(Book.class), Mockito.eq(Document.class)))
+                .willReturn(new AggregationResults<>(rows, new Document()));
+
+        counters.reconcile();
+
+        assertThat(counters.isReady()).isTrue();
+        assertThat(counters.total()).isEqualTo(10);
+        assertThat(counters.rented()).isEqualTo(3);
+        assertThat(counters.available()).isEqualTo(7);
+
+        counters.rentedByChanged(null, "U2");
+        counters.rentedByChanged("U1", null);
+        counters.bookAdded(null);
+        counters.bookRemoved("U2");
+
+        assertThat(counters.total()).isEqualTo(10);
+        assertThat(counters.rentedBy("U1")).isEqualTo(1);
+        assertThat(counters.rentedBy("U2")).isEqualTo(1);
+        assertThat(counters.rented()).isEqualTo(2);
+
+        counters.renterCleared("U1", 1);
+        assertThat(counters.rentedBy("U1")).isZero();
+        assertThat(counters.available()).isEqualTo(9);
+    }
+
+    @Test
+    void reconcile_racingDelta_repeatsAggregation_insteadOfCountingTwice() {
+        var before = List.of(
+                new Document("_id", null).append("n", 4),
+                new Document("_id", "U1").append("n", 1));
+        given(mongo.aggregate(Mockito.any(Aggregation.class), Mockito.eq(Book.class), Mockito.eq(Document.class)))
+                .willReturn(new AggregationResults<>(before, new Document()));
+        counters.reconcile();
+
+        // upis U2 je u Mongu pre agregacije (ona ga vidi), a delta stiže dok agregacija traje
+        var after = List.of(
+                new Document("_id", null).append("n", 4),
+                new Document("_id", "U1").append("n", 1),
+                new Document("_id", "U2").append("n", 1));
+        AtomicBoolean first = new AtomicBoolean(true);
+        given(mongo.aggregate(Mockito.any(Aggregation.class), Mockito.eq(Book.class), Mockito.eq(Document.class)))
+                .willAnswer(inv -> {
+                    if (first.getAndSet(false)) counters.bookAdded("U2");
+                    return new AggregationResults<>(after, new Document());
+                });
+        counters.reconcile();
+
+        assertThat(counters.total()).isEqualTo(6);
+        assertThat(counters.rented()).isEqualTo(2);
+        assertThat(counters.rentedBy("U2")).isEqualTo(1);
+    }
+
+    @Test
+    void reconcile_racingEveryAttempt_stillAppliesLastAggregation() {
+        var rows = List.of(new Document("_id", null).append("n", 4));
+        given(mongo.aggregate(Mockito.any(Aggregation.class), Mockito.eq(Book.class), Mockito.eq(Document.class)))
+                .willReturn(new AggregationResults<>(rows, new Document()));
+        counters.reconcile();
+
+        // stalni upisi: svaka agregacija je u trci -> posle RETRIES pokušaja ispravka se ipak primenjuje
+        given(mongo.aggregate(Mockito.any(Aggregation.class), Mockito.eq(Book.class), Mockito.eq(Document.class)))
+                .willAnswer(inv -> {
+                    counters.bookAdded(null);
+                    return new AggregationResults<>(List.of(new Document("_id", null).append("n", 100)), new Document());
+                });
+        counters.reconcile();
+
+        verify(mongo, times(1 + CatalogCounters.RETRIES))
+                .aggregate(Mockito.any(Aggregation.class), Mockito.eq(Book.class), Mockito.eq(Document.class));
+        // agregacija + delta iz poslednjeg pokušaja (možda već viđena): eventualno konzistentno
+        assertThat(counters.total()).isEqualTo(101);
+    }
+}
@@ -0,0 +1,132 @@
+package pz.bibliotekabackend.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.search.BookSearchIndex;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSyncTest {
+
+    @Mock MongoTemplate mongo;
+    @Mock CatalogCounters counters;
+    @Mock BookSearchIndex searchIndex;
+    @Mock BookCache cache;
+    @Spy CatalogVersion version = new CatalogVersion();
+
+    @InjectMocks CatalogSync sync;
+
+    @Test
+    void poll_ownWritesAreNotRemote_otherInstanceWritesRefreshCacheIndexAndCounters() {
+        given(mongo.findOne(any(Query.class), eq(Document.class), eq(CatalogSync.STATE)))
+                .willReturn(state(10), state(13));
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CatalogSync.STATE))).willReturn(state(12));
+
+        sync.poll(); // početno stanje
+        version.bump();
+        version.bump();
+        sync.poll(); // 10 -> 12: samo naša dva upisa
+        verifyNoInteractions(searchIndex, cache, counters);
+
+        Book changed = new Book();
+        changed.setId("B1");
+        given(mongo.stream(any(Query.class), eq(Book.class))).willReturn(Stream.of(changed));
+        given(mongo.find(any(Query.class), eq(Document.class), eq(CatalogSync.TOMBSTONES)))
+                .willReturn(List.of(new Document("_id", "B2")));
+        long before = version.current();
+
+        sync.poll(); // 12 -> 13: upisala druga instanca
+
+        verify(cache).invalidate("B1");
+        verify(searchIndex).index(changed);
+        verify(cache).invalidate("B2");
+        verify(searchIndex).remove("B2");
+        verify(counters).reconcile();
+        assertThat(version.current()).isGreaterThan(before);
+    }
+
+    @Test
+    void poll_failedPublish_isRetriedWithSameWritesAndTombstones() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        given(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, CatalogSync.TOMBSTONES)).willReturn(bulk);
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CatalogSync.STATE)))
+                .willThrow(new DataAccessResourceFailureException("mongo nedostupan"))
+                .willReturn(state(2));
+
+        version.bump();
+        version.deleted("B9");
+        sync.poll();
+        sync.poll();
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongo, times(2)).findAndModify(any(Query.class), updates.capture(), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CatalogSync.STATE));
+        assertThat(updates.getValue().getUpdateObject().get("$inc", Document.class)).containsEntry("version", 2L);
+        verify(bulk, times(2)).upsert(argThat((Query q) -> "B9".equals(q.getQueryObject().get("_id"))), any(Update.class));
+        assertThat(version.drainUnpublished()).isZero();
+        assertThat(version.drainDeleted()).isEmpty();
+    }
+
+    @Test
+    void poll_importOnOtherInstance_refreshesEverything_evenOutsideLagWindow() {
+        given(mongo.findOne(any(Query.class), eq(Document.class), eq(CatalogSync.STATE)))
+                .willReturn(state(10), state(12).append("refresh", 2L));
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CatalogSync.STATE))).willReturn(state(11).append("refresh", 1L));
+
+        sync.poll(); // početno stanje
+        version.fullRefresh();
+        sync.poll(); // naš uvoz: nije tuđa izmena
+        verifyNoInteractions(searchIndex, cache, counters);
+
+        // uvoz na drugoj instanci: knjige su upisane pre više od lag-a, applyRemote ih ne bi našao
+        sync.poll();
+
+        verify(cache).invalidateAll();
+        verify(counters).reconcile();
+        verify(searchIndex, timeout(5000)).rebuild();
+        verify(mongo, never()).stream(any(Query.class), eq(Book.class));
+    }
+
+    @Test
+    void poll_fullRefresh_isPublishedAsRefreshCounter() {
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CatalogSync.STATE))).willReturn(state(1).append("refresh", 1L));
+
+        version.fullRefresh();
+        sync.poll();
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongo).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(Document.class), eq(CatalogSync.STATE));
+        assertThat(update.getValue().getUpdateObject().get("$inc", Document.class))
+                .containsEntry("version", 1L).containsEntry("refresh", 1L);
+    }
+
+    private static Document state(long v) {
+        return new Document("_id", CatalogSync.ID).append("version", v);
+    }
+}
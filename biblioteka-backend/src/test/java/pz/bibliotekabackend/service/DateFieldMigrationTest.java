@@ -0,0 +1,63 @@
+package pz.bibliotekabackend.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DateFieldMigrationTest {
+
+    @Mock MongoTemplate mongo;
+    @Mock BulkOperations bulk;
+
+    @InjectMocks DateFieldMigration migration;
+
+    @Test
+    void convert_setsDatesConditionally_andCountsUnparseable() {
+        var legacy = new Document("_id", "O1")
+                .append("rentedAt", "Sat Aug 16 17:41:37 CEST 2025")
+                .append("createdAt", "2025-08-16T15:41:37Z")
+                .append("updatedAt", new Date());
+        var broken = new Document("_id", "O2").append("returnedAt", "juče");
+        given(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, "orders")).willReturn(bulk);
+
+        long[] res = migration.convert("orders", List.of(legacy, broken));
+
+        assertThat(res).containsExactly(2, 1);
+        ArgumentCaptor<Query> q = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> u = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(1)).updateOne(q.capture(), u.capture());
+        verify(bulk).execute();
+
+        // upis samo ako je polje i dalje isti string
+        assertThat(q.getValue().getQueryObject())
+                .containsEntry("_id", "O1")
+                .containsEntry("rentedAt", "Sat Aug 16 17:41:37 CEST 2025");
+        Document set = u.getValue().getUpdateObject().get("$set", Document.class);
+        assertThat(set).containsOnlyKeys("rentedAt", "createdAt");
+        assertThat(set.get("rentedAt")).isEqualTo(Date.from(Instant.parse("2025-08-16T15:41:37Z")));
+    }
+
+    @Test
+    void convert_nothingParseable_skipsBulkWrite() {
+        given(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, "books")).willReturn(bulk);
+
+        long[] res = migration.convert("books", List.of(new Document("_id", "B1").append("createdAt", "?")));
+
+        assertThat(res).containsExactly(0, 1);
+        verify(bulk, never()).execute();
+    }
+}
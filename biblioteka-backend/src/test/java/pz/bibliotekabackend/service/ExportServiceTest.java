@@ -0,0 +1,125 @@
+package pz.bibliotekabackend.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import pz.bibliotekabackend.model.BookSnapshot;
+import pz.bibliotekabackend.model.Order;
+import pz.bibliotekabackend.model.User;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportServiceTest {
+
+    @Mock MongoTemplate mongo;
+    @Mock OrderService orders;
+
+    @InjectMocks ExportService service;
+
+    @Test
+    void users_neverReadOrExportPassword_andSinceBecomesUpdatedAtFilter() {
+        var u = new User();
+        u.setId("U1");
+        u.setEmail("pera@example.com");
+        u.setPassword("$2a$10$hash");
+        given(mongo.stream(any(Query.class), eq(User.class))).willAnswer(inv -> Stream.of(u));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        service.export(ExportService.Dataset.USERS, Instant.parse("2025-01-01T00:00:00Z"),
+                Instant.parse("2025-02-01T00:00:00Z"), rows::addAll);
+
+        ArgumentCaptor<Query> q = ArgumentCaptor.forClass(Query.class);
+        verify(mongo).stream(q.capture(), eq(User.class));
+        assertThat(q.getValue().getQueryObject()).containsKey("updatedAt");
+        assertThat(q.getValue().getFieldsObject()).containsEntry("password", 0);
+        assertThat(rows).singleElement().satisfies(r -> {
+            assertThat(r).doesNotContainKey("password");
+            assertThat(r.keySet()).containsExactlyElementsOf(ExportService.Dataset.USERS.columns);
+        });
+    }
+
+    @Test
+    void orders_areHydratedPerBatch_andFlattened() {
+        var o = new Order();
+        o.setId("O1");
+        var snap = new BookSnapshot();
+        snap.setTitle("Roman o Londonu");
+        o.setBookSnapshot(snap);
+        given(mongo.stream(any(Query.class), eq(Order.class))).willAnswer(inv -> Stream.of(o));
+        willAnswer(inv -> {
+            List<Order> batch = inv.getArgument(0);
+            batch.forEach(x -> x.setDisplayBook(Order.DisplayBook.from(x.getBookSnapshot())));
+            return null;
+        }).given(orders).hydrateDisplayBooks(anyList());
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        service.export(ExportService.Dataset.ORDERS, null, Instant.now(), rows::addAll);
+
+        assertThat(rows).singleElement().satisfies(r -> assertThat(r).containsEntry("bookTitle", "Roman o Londonu"));
+    }
+
+    @Test
+    void fullExport_includesDocumentsWithStringOrMissingUpdatedAt() {
+        // korisnik iz starog importa: updatedAt je string, pa ga $lte (poređenje datuma) ne bi vratio
+        var legacy = new Document("_id", "U1").append("email", "stari@example.com")
+                .append("updatedAt", "2019-05-01T10:00:00Z");
+        given(mongo.stream(any(Query.class), eq(User.class))).willAnswer(inv -> {
+            Document filter = inv.getArgument(0, Query.class).getQueryObject();
+            return matches(filter, legacy) ? Stream.of(user("U1")) : Stream.empty();
+        });
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        service.export(ExportService.Dataset.USERS, null, Instant.now(), rows::addAll);
+
+        assertThat(rows).singleElement().satisfies(r -> assertThat(r).containsEntry("id", "U1"));
+    }
+
+    @Test
+    void export_isBoundedByWatermark_andWatermarkLagsBehindNow() {
+        Instant before = Instant.now();
+        Instant watermark = service.watermark();
+        assertThat(watermark).isBefore(before);
+
+        given(mongo.stream(any(Query.class), eq(User.class))).willAnswer(inv -> Stream.empty());
+        Instant since = watermark.minusSeconds(3600);
+        service.export(ExportService.Dataset.USERS, since, watermark, rows -> {});
+
+        ArgumentCaptor<Query> q = ArgumentCaptor.forClass(Query.class);
+        verify(mongo).stream(q.capture(), eq(User.class));
+        // sledeći izvoz sa since = watermark počinje tačno gde je ovaj stao
+        assertThat(q.getValue().getQueryObject().get("updatedAt", Document.class))
+                .containsEntry("$gt", since)
+                .containsEntry("$lte", watermark);
+    }
+
+    // samo oblik koji ExportService pravi za pun izvoz: $or [{updatedAt: {$lte}}, {updatedAt: {$not: {$type}}}]
+    private static boolean matches(Document filter, Document doc) {
+        Object value = doc.get("updatedAt");
+        for (Object branch : filter.getList("$or", Object.class)) {
+            Document cond = ((Document) branch).get("updatedAt", Document.class);
+            if (cond.containsKey("$lte") && value instanceof Date) return true;
+            if (cond.get("$not") instanceof Document not && not.containsKey("$type")
+                    && !(value instanceof Date) && List.of("date").equals(not.get("$type"))) return true;
+        }
+        return false;
+    }
+
+    private static User user(String id) {
+        var u = new User();
+        u.setId(id);
+        return u;
+    }
+}
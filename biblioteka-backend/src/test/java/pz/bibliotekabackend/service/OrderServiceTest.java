@@ -1,16 +1,34 @@
 package pz.bibliotekabackend.service;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonDocument;
+import org.bson.Document;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pz.bibliotekabackend.exception.ConflictException;
 import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.BookSnapshot;
 import pz.bibliotekabackend.model.Order;
 import pz.bibliotekabackend.repository.BookRepository;
 import pz.bibliotekabackend.repository.OrderRepository;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.BDDMockito.*;
@@ -20,6 +38,10 @@ class OrderServiceTest {
 
     @Mock OrderRepository orderRepo;
     @Mock BookRepository bookRepo;
+    @Mock CatalogCounters counters;
+    @Mock BookCache bookCache;
+    @Mock CatalogVersion catalogVersion;
+    @Mock MongoTemplate mongo;
 
     @InjectMocks OrderService service;
 
@@ -37,7 +59,9 @@ class OrderServiceTest {
         book.setYear("2008");
         // book.setRentedBy(null);  // default is null
 
-        given(bookRepo.findById("B1")).willReturn(Optional.of(book));
+        // findAndModify vraća knjigu pre izmene (slobodna)
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class)))
+                .willReturn(book);
         // vrati isti entity sa upisanim ID-jem (simuliramo save u repo)
         given(orderRepo.save(Mockito.any(Order.class)))
                 .willAnswer(inv -> {
@@ -45,7 +69,6 @@ class OrderServiceTest {
                     if (o.getId() == null) o.setId("O1");
                     return o;
                 });
-        given(bookRepo.save(Mockito.any(Book.class))).willAnswer(inv -> inv.getArgument(0));
 
         // when
         Order saved = service.create(inbound);
@@ -59,10 +82,47 @@ class OrderServiceTest {
         assertThat(saved.getBookSnapshot()).isNotNull();
         assertThat(saved.getBookSnapshot().getTitle()).isEqualTo("Clean Code");
 
-        // knjiga obeležena kao iznajmljena od U1
-        ArgumentCaptor<Book> bookCap = ArgumentCaptor.forClass(Book.class);
-        verify(bookRepo).save(bookCap.capture());
-        assertThat(bookCap.getValue().getRentedBy()).isEqualTo("U1");
+        // knjiga zauzeta uslovnim upisom (rentedBy null -> U1), bez čitanja/snimanja celog dokumenta
+        ArgumentCaptor<Update> upd = ArgumentCaptor.forClass(Update.class);
+        verify(mongo).findAndModify(any(Query.class), upd.capture(), any(FindAndModifyOptions.class), eq(Book.class));
+        assertThat(upd.getValue().getUpdateObject().get("$set", Document.class)).containsEntry("rentedBy", "U1");
+        verify(bookRepo, never()).save(Mockito.any());
+        verify(counters).rentedByChanged(null, "U1");
+    }
+
+    @Test
+    void create_whenBookHeldByOtherUser_throwsConflict_andWritesNothing() {
+        var inbound = new Order();
+        inbound.setUserId("U2");
+        inbound.setBookId("B1");
+
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class)))
+                .willReturn(null);
+        given(mongo.exists(any(Query.class), eq(Book.class))).willReturn(true);
+
+        assertThatThrownBy(() -> service.create(inbound)).isInstanceOf(ConflictException.class);
+        verify(orderRepo, never()).save(Mockito.any());
+        verifyNoInteractions(counters);
+    }
+
+    @Test
+    void create_whenOrderInsertFails_releasesClaimedBook() {
+        var inbound = new Order();
+        inbound.setUserId("U1");
+        inbound.setBookId("B1");
+        var book = new Book();
+        book.setId("B1");
+
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Book.class)))
+                .willReturn(book);
+        given(orderRepo.save(Mockito.any(Order.class))).willThrow(new IllegalStateException("write failed"));
+
+        assertThatThrownBy(() -> service.create(inbound)).isInstanceOf(IllegalStateException.class);
+
+        ArgumentCaptor<Update> upd = ArgumentCaptor.forClass(Update.class);
+        verify(mongo).updateFirst(any(Query.class), upd.capture(), eq(Book.class));
+        assertThat(upd.getValue().getUpdateObject().get("$unset", Document.class)).containsKey("rentedBy");
+        verifyNoInteractions(counters);
     }
 
     @Test
@@ -75,7 +135,6 @@ class OrderServiceTest {
         // u servisu se proverava i pokušava da se zaključi poslednja knjiga po rentedBy;
         // simuliramo da takve knjige nema
         given(bookRepo.findTopByRentedByOrderByUpdatedAtDesc("U1")).willReturn(Optional.empty());
-        given(bookRepo.findTopByRentedByOrderByCreatedAtDesc("U1")).willReturn(Optional.empty());
 
         // when / then
         assertThatThrownBy(() -> service.create(inbound))
@@ -84,27 +143,134 @@ class OrderServiceTest {
         verify(orderRepo, never()).save(Mockito.any());
     }
 
+    @Test
+    void createBatch_claimsFreeBooksInOneUpdate_andReportsPerBook() {
+        var free = new Book();
+        free.setId("B1");
+        free.setTitle("Hazarski rečnik");
+        var taken = new Book();
+        taken.setId("B2");
+        taken.setRentedBy("U9");
+
+        given(mongo.find(any(Query.class), eq(Book.class))).willReturn(List.of(free, taken));
+        given(mongo.updateMulti(any(Query.class), any(Update.class), eq(Book.class)))
+                .willReturn(UpdateResult.acknowledged(1, 1L, null));
+        BulkOperations bulk = orderBulk();
+
+        var items = service.createBatch("U1", List.of("B1", "B2", "B3", "B1"));
+
+        assertThat(items).containsExactly(
+                new OrderService.BatchItem("B1", "created", insertedId(bulk, "B1")),
+                new OrderService.BatchItem("B2", "conflict", null),
+                new OrderService.BatchItem("B3", "not_found", null));
+        // jedan updateMany zauzima sve slobodne; drugi samo skida privremenu oznaku zahteva
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongo, times(2)).updateMulti(any(Query.class), updates.capture(), eq(Book.class));
+        assertThat(updates.getAllValues().get(0).getUpdateObject().get("$set", Document.class))
+                .containsEntry("rentedBy", "U1");
+        assertThat(updates.getAllValues().get(1).getUpdateObject().get("$unset", Document.class))
+                .containsOnlyKeys(OrderService.BATCH_CLAIM);
+        verify(mongo, times(1)).find(any(Query.class), eq(Book.class));
+        verify(bulk, times(1)).execute();
+        verify(counters).rentedByChanged(null, "U1");
+        verify(orderRepo, never()).save(Mockito.any());
+    }
+
+    @Test
+    void createBatch_partialClaim_countsOnlyCopiesTaggedByThisRequest() {
+        var b1 = new Book();
+        b1.setId("B1");
+        var b2 = new Book();
+        b2.setId("B2");
+        var mine = new Book();
+        mine.setId("B1");
+
+        // B2 je između čitanja i upisa uzeo isti korisnik drugim zahtevom -> nije naš claim
+        given(mongo.find(any(Query.class), eq(Book.class))).willReturn(List.of(b1, b2), List.of(mine));
+        given(mongo.updateMulti(any(Query.class), any(Update.class), eq(Book.class)))
+                .willReturn(UpdateResult.acknowledged(2, 1L, null));
+        BulkOperations bulk = orderBulk();
+
+        var items = service.createBatch("U1", List.of("B1", "B2"));
+
+        assertThat(items).containsExactly(
+                new OrderService.BatchItem("B1", "created", insertedId(bulk, "B1")),
+                new OrderService.BatchItem("B2", "conflict", null));
+
+        ArgumentCaptor<Query> reads = ArgumentCaptor.forClass(Query.class);
+        verify(mongo, times(2)).find(reads.capture(), eq(Book.class));
+        Document ours = reads.getAllValues().get(1).getQueryObject();
+        assertThat(ours).containsKey(OrderService.BATCH_CLAIM).doesNotContainKey("rentedBy");
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongo, times(2)).updateMulti(any(Query.class), updates.capture(), eq(Book.class));
+        assertThat(updates.getAllValues().get(1).getUpdateObject().get("$unset", Document.class))
+                .containsKey(OrderService.BATCH_CLAIM);
+        verify(counters, times(1)).rentedByChanged(null, "U1");
+    }
+
+    @Test
+    void createBatch_partialInsertFailure_releasesOnlyBooksOfFailedOrders() {
+        var b1 = new Book();
+        b1.setId("B1");
+        var b2 = new Book();
+        b2.setId("B2");
+        var b3 = new Book();
+        b3.setId("B3");
+
+        given(mongo.find(any(Query.class), eq(Book.class))).willReturn(List.of(b1, b2, b3));
+        given(mongo.updateMulti(any(Query.class), any(Update.class), eq(Book.class)))
+                .willReturn(UpdateResult.acknowledged(3, 3L, null));
+        BulkOperations bulk = orderBulk();
+        // neuređen insertMany: druga porudžbina (indeks 1) pada, prva i treća su upisane
+        var source = new MongoBulkWriteException(BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)), null,
+                new ServerAddress(), Set.of());
+        given(bulk.execute()).willThrow(new BulkOperationException("insert", source));
+
+        var items = service.createBatch("U1", List.of("B1", "B2", "B3"));
+
+        assertThat(items).containsExactly(
+                new OrderService.BatchItem("B1", "created", insertedId(bulk, "B1")),
+                new OrderService.BatchItem("B2", "failed", null),
+                new OrderService.BatchItem("B3", "created", insertedId(bulk, "B3")));
+        ArgumentCaptor<Query> releases = ArgumentCaptor.forClass(Query.class);
+        verify(mongo, times(3)).updateMulti(releases.capture(), any(Update.class), eq(Book.class));
+        assertThat(releases.getAllValues().get(2).getQueryObject().get("id", Document.class).get("$in"))
+                .isEqualTo(List.of("B2"));
+        verify(counters, times(2)).rentedByChanged(null, "U1");
+    }
+
+    @Test
+    void createBatch_insertFailsEntirely_releasesAllClaimedAndRethrows() {
+        var b1 = new Book();
+        b1.setId("B1");
+        given(mongo.find(any(Query.class), eq(Book.class))).willReturn(List.of(b1));
+        given(mongo.updateMulti(any(Query.class), any(Update.class), eq(Book.class)))
+                .willReturn(UpdateResult.acknowledged(1, 1L, null));
+        BulkOperations bulk = orderBulk();
+        given(bulk.execute()).willThrow(new DataAccessResourceFailureException("mongo nedostupan"));
+
+        assertThatThrownBy(() -> service.createBatch("U1", List.of("B1")))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        verify(mongo, times(3)).updateMulti(any(Query.class), any(Update.class), eq(Book.class));
+        verifyNoInteractions(counters);
+    }
+
     @Test
     void returnOrder_setsReturnedAndFreesBook() {
-        // given
+        // given: uslovni $set vraća već ažuriranu porudžbinu
         var order = new Order();
         order.setId("O1");
         order.setUserId("U1");
         order.setBookId("B1");
-        order.setStatus("active");
-        order.setRentedAt(Instant.now());
+        order.setStatus("returned");
+        order.setReturnedAt(Instant.now());
 
-        var book = new Book();
-        book.setId("B1");
-        book.setTitle("DDD");
-        book.setAuthor("Evans");
-        book.setYear("2003");
-        book.setRentedBy("U1");
-
-        given(orderRepo.findById("O1")).willReturn(Optional.of(order));
-        given(orderRepo.save(Mockito.any(Order.class))).willAnswer(inv -> inv.getArgument(0));
-        given(bookRepo.findById("B1")).willReturn(Optional.of(book));
-        given(bookRepo.save(Mockito.any(Book.class))).willAnswer(inv -> inv.getArgument(0));
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Order.class)))
+                .willReturn(order);
+        given(mongo.updateMulti(any(Query.class), any(Update.class), eq(Book.class)))
+                .willReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // when
         Order updated = service.returnOrder("O1");
@@ -113,8 +279,76 @@ class OrderServiceTest {
         assertThat(updated.getStatus()).isEqualTo("returned");
         assertThat(updated.getReturnedAt()).isNotNull();
 
-        ArgumentCaptor<Book> bookCap = ArgumentCaptor.forClass(Book.class);
-        verify(bookRepo).save(bookCap.capture());
-        assertThat(bookCap.getValue().getRentedBy()).isNull();
+        ArgumentCaptor<Query> bookQ = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> bookU = ArgumentCaptor.forClass(Update.class);
+        verify(mongo).updateMulti(bookQ.capture(), bookU.capture(), eq(Book.class));
+        assertThat(bookQ.getValue().getQueryObject()).containsEntry("rentedBy", "U1");
+        assertThat(bookU.getValue().getUpdateObject().get("$unset", Document.class)).containsKey("rentedBy");
+        verify(orderRepo, never()).save(Mockito.any());
+        verify(bookRepo, never()).save(Mockito.any());
+        verify(counters).renterCleared("U1", 1);
+    }
+
+    @Test
+    void returnOrder_alreadyReturned_doesNotTouchBook() {
+        var order = new Order();
+        order.setId("O1");
+        order.setUserId("U1");
+        order.setBookId("B1");
+        order.setReturnedAt(Instant.now());
+
+        given(mongo.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Order.class)))
+                .willReturn(null);
+        given(orderRepo.findById("O1")).willReturn(Optional.of(order));
+
+        assertThat(service.returnOrder("O1").getReturnedAt()).isNotNull();
+        verify(mongo, never()).updateMulti(any(Query.class), any(Update.class), eq(Book.class));
+        verifyNoInteractions(counters);
+    }
+
+    @Test
+    void list_hydratesLegacyOrdersWithSingleBatchLookup() {
+        // given: dve stare porudžbine bez snapshot-a za istu knjigu + jedna sa snapshot-om
+        var legacy1 = new Order();
+        legacy1.setBookId("B1");
+        var legacy2 = new Order();
+        legacy2.setBookId("B1");
+        var withSnap = new Order();
+        withSnap.setBookId("B2");
+        var snap = new BookSnapshot();
+        snap.setId("B2");
+        snap.setTitle("Refactoring");
+        withSnap.setBookSnapshot(snap);
+
+        var book = new Book();
+        book.setId("B1");
+        book.setTitle("Clean Code");
+
+        given(orderRepo.findByUserId("U1")).willReturn(List.of(legacy1, legacy2, withSnap));
+        given(bookCache.getAll(List.of("B1"))).willReturn(List.of(book));
+
+        // when
+        List<Order> out = service.list("U1", null);
+
+        // then
+        assertThat(out).extracting(o -> o.getDisplayBook().getTitle())
+                .containsExactly("Clean Code", "Clean Code", "Refactoring");
+        verify(bookCache, times(1)).getAll(Mockito.anyList());
+        verify(bookRepo, never()).findById(Mockito.any());
+    }
+
+    private BulkOperations orderBulk() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        given(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class)).willReturn(bulk);
+        given(bulk.insert(Mockito.<List<?>>any())).willReturn(bulk);
+        return bulk;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String insertedId(BulkOperations bulk, String bookId) {
+        ArgumentCaptor<List<Object>> in = ArgumentCaptor.forClass(List.class);
+        verify(bulk).insert(in.capture());
+        return in.getValue().stream().map(Order.class::cast)
+                .filter(o -> bookId.equals(o.getBookId())).findFirst().orElseThrow().getId();
     }
 }
@@ -0,0 +1,69 @@
+package pz.bibliotekabackend.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.BookSnapshot;
+import pz.bibliotekabackend.model.Order;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderSnapshotMigrationTest {
+
+    @Mock MongoTemplate mongo;
+    @Mock BookCache bookCache;
+    @Mock BulkOperations bulk;
+
+    @InjectMocks OrderSnapshotMigration migration;
+
+    @Test
+    void migrate_backfillsFromLegacyThenLiveBook_andUnsetsLegacy() {
+        var legacySnap = new BookSnapshot();
+        legacySnap.setId("B1");
+        legacySnap.setTitle("Derviš i smrt");
+        var fromLegacy = order("O1", "B1");
+        fromLegacy.setLegacyBook(legacySnap);
+
+        var fromLive = order("O2", "B2");
+        var orphan = order("O3", "B3"); // knjiga obrisana
+
+        var live = new Book();
+        live.setId("B2");
+        live.setTitle("Seobe");
+        given(bookCache.getAll(List.of("B2", "B3"))).willReturn(List.of(live));
+        given(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class)).willReturn(bulk);
+
+        int[] res = migration.migrate(List.of(fromLegacy, fromLive, orphan));
+
+        assertThat(res).containsExactly(2, 1);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(3)).updateOne(any(Query.class), updates.capture());
+        verify(bulk).execute();
+
+        var u = updates.getAllValues();
+        assertThat(u.get(0).getUpdateObject().get("$unset", Document.class)).containsKey("legacyBook");
+        assertThat(((BookSnapshot) u.get(0).getUpdateObject().get("$set", Document.class).get("bookSnapshot"))
+                .getTitle()).isEqualTo("Derviš i smrt");
+        assertThat(((BookSnapshot) u.get(1).getUpdateObject().get("$set", Document.class).get("bookSnapshot"))
+                .getTitle()).isEqualTo("Seobe");
+        assertThat(u.get(2).getUpdateObject()).doesNotContainKey("$set");
+    }
+
+    private static Order order(String id, String bookId) {
+        var o = new Order();
+        o.setId(id);
+        o.setBookId(bookId);
+        return o;
+    }
+}
@@ -0,0 +1,44 @@
+package pz.bibliotekabackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+import pz.bibliotekabackend.model.Book;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ProjectionTest {
+
+    private final ObjectMapper om = new ObjectMapper()
+            .setFilterProvider(new SimpleFilterProvider().setFailOnUnknownId(false));
+
+    @Test
+    void bookFields_becomeProjectionAndSerializationFilter() throws Exception {
+        Projection p = Projection.forBook("title, author");
+        Query q = p.applyTo(new Query());
+        assertThat(q.getFieldsObject().keySet()).containsExactlyInAnyOrder("title", "author");
+
+        Book b = new Book();
+        b.setId("B1");
+        b.setTitle("Dune");
+        b.setAuthor("Herbert");
+        b.setDescription("dugačak opis");
+        String json = om.writer(p.filters()).writeValueAsString(b);
+        assertThat(json).isEqualTo("{\"id\":\"B1\",\"title\":\"Dune\",\"author\":\"Herbert\"}");
+
+        // bez projekcije: sva polja
+        assertThat(om.writeValueAsString(b)).contains("\"description\"");
+    }
+
+    @Test
+    void orderDisplayBook_readsSourcesButUnknownFieldIsRejected() {
+        Projection p = Projection.forOrder("status,displayBook");
+        assertThat(p.applyTo(new Query()).getFieldsObject().keySet())
+                .containsExactlyInAnyOrder("status", "bookSnapshot", "legacyBook", "bookId");
+
+        assertThat(Projection.forOrder(" ")).isNull();
+        assertThatThrownBy(() -> Projection.forBook("password"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
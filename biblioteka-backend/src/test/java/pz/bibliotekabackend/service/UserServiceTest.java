@@ -1,27 +1,42 @@
 package pz.bibliotekabackend.service;
 
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import pz.bibliotekabackend.model.Book;
+import pz.bibliotekabackend.model.Order;
 import pz.bibliotekabackend.model.User;
-import pz.bibliotekabackend.repository.BookRepository;
-import pz.bibliotekabackend.repository.OrderRepository;
 import pz.bibliotekabackend.repository.UserRepository;
+import pz.bibliotekabackend.security.JwtService;
+import pz.bibliotekabackend.security.PasswordHasher;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceTest {
 
     @Mock UserRepository repo;
-    @Mock BookRepository bookRepo;
-    @Mock OrderRepository orderRepo;
+    @Mock CatalogCounters counters;
+    @Mock BookCache bookCache;
+    @Mock CatalogVersion catalogVersion;
+    @Mock MongoTemplate mongo;
+    @Mock JwtService jwt;
 
     // koristimo pravi encoder da potvrdimo da je hashovan
-    @Spy BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+    @Spy PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), 1, 4, 4, Duration.ofSeconds(5));
 
     @InjectMocks UserService service;
 
@@ -41,4 +56,36 @@ class UserServiceTest {
                 .startsWith("$2a$")
                 .isNotEqualTo("tajna");
     }
+
+    @Test
+    void patch_passwordChange_revokesUserTokens_otherChangesDoNot() {
+        User u = new User();
+        u.setId("U1");
+        u.setPassword("$2a$04$staristarihashstaristarihashstaristarihashstaris");
+        given(repo.findById("U1")).willReturn(Optional.of(u));
+        given(repo.save(Mockito.any(User.class))).willAnswer(inv -> inv.getArgument(0));
+
+        service.patch("U1", Map.of("name", "Marko"));
+        then(jwt).shouldHaveNoInteractions();
+
+        service.patch("U1", Map.of("password", "nova-lozinka"));
+        then(jwt).should().revokeUser("U1");
+    }
+
+    @Test
+    void delete_cascadesWithServerSideBulkOps() {
+        var held = new Book();
+        held.setId("B1");
+        given(mongo.remove(any(Query.class), eq(Order.class))).willReturn(DeleteResult.acknowledged(3));
+        given(mongo.find(any(Query.class), eq(Book.class))).willReturn(List.of(held));
+        given(mongo.updateMulti(any(Query.class), any(Update.class), eq(Book.class)))
+                .willReturn(UpdateResult.acknowledged(1, 1L, null));
+        given(mongo.remove(any(Query.class), eq(User.class))).willReturn(DeleteResult.acknowledged(1));
+
+        var res = service.delete("U1");
+
+        assertThat(res).isEqualTo(new UserService.DeleteResult(3, 1, true));
+        verify(bookCache).invalidateAll(List.of("B1"));
+        verify(counters).renterCleared("U1", 1);
+    }
 }